@@ -0,0 +1,80 @@
+package com.aspire.benchmarks;
+
+import com.aspire.money.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The arithmetic behind schedule generation and repayment allocation, without entities or persistence around it,
+ * with {@link BigDecimal} and with {@link Money}. Run with {@code -prof gc} to compare allocation per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AllocationMathBenchmark {
+
+    @Param({"52", "520"})
+    private int term;
+
+    private final BigDecimal amount = new BigDecimal("100000.00");
+
+    private final Money money = Money.parse("100000.00");
+
+    @Benchmark
+    public void installmentSplit(Blackhole blackhole) {
+        BigDecimal weeklyAmount = amount.divide(BigDecimal.valueOf(term), RoundingMode.HALF_UP);
+        for (int i = 0; i < term; i++) {
+            blackhole.consume(i == term - 1 ? amount.subtract(weeklyAmount.multiply(BigDecimal.valueOf(i))) : weeklyAmount);
+        }
+    }
+
+    @Benchmark
+    public BigDecimal overpaymentCarry() {
+        BigDecimal weeklyAmount = amount.divide(BigDecimal.valueOf(term), RoundingMode.HALF_UP);
+        BigDecimal pending = amount;
+        BigDecimal extraAmount = weeklyAmount.multiply(BigDecimal.valueOf(term / 2));
+        while (extraAmount.compareTo(BigDecimal.ZERO) > 0) {
+            BigDecimal settled = extraAmount.min(weeklyAmount);
+            pending = pending.subtract(settled);
+            extraAmount = extraAmount.subtract(settled);
+        }
+        return pending;
+    }
+
+    @Benchmark
+    public void moneyInstallmentSplit(Blackhole blackhole) {
+        Money weeklyAmount = money.divide(term, RoundingMode.HALF_UP);
+        for (int i = 0; i < term; i++) {
+            blackhole.consume(i == term - 1 ? money.minus(weeklyAmount.times(i)) : weeklyAmount);
+        }
+    }
+
+    @Benchmark
+    public Money moneyOverpaymentCarry() {
+        Money weeklyAmount = money.divide(term, RoundingMode.HALF_UP);
+        Money pending = money;
+        Money extraAmount = weeklyAmount.times(term / 2);
+        while (extraAmount.signum() > 0) {
+            Money settled = extraAmount.min(weeklyAmount);
+            pending = pending.minus(settled);
+            extraAmount = extraAmount.minus(settled);
+        }
+        return pending;
+    }
+}
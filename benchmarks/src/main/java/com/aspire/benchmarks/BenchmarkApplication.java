@@ -0,0 +1,32 @@
+package com.aspire.benchmarks;
+
+import com.aspire.MiniAspireApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Boots the application in-process for benchmarks that need the database or the web layer. Every context gets
+ * its own in-memory database and SQL logging and rate limiting are switched off so they do not dominate the measurements.
+ */
+final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(String... extraArgs) {
+        List<String> args = new ArrayList<>(Arrays.asList(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID(),
+                "--spring.jpa.show-sql=false",
+                "--aspire.rate-limit.enabled=false",
+                "--logging.level.root=WARN",
+                "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=OFF"));
+        args.addAll(Arrays.asList(extraArgs));
+        return new SpringApplicationBuilder(MiniAspireApplication.class).run(args.toArray(new String[0]));
+    }
+}
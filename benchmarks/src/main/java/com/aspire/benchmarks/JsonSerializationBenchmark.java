@@ -0,0 +1,69 @@
+package com.aspire.benchmarks;
+
+import com.aspire.entities.Loan;
+import com.aspire.enums.LoanStatus;
+import com.aspire.money.Money;
+import com.aspire.response.BaseResponse;
+import com.aspire.service.impl.RepaymentScheduleGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of a GET /api/loans response: a BaseResponse holding loans with their weekly schedules.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonSerializationBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int loans;
+
+    @Param({"4", "52"})
+    private int term;
+
+    private ObjectMapper objectMapper;
+    private BaseResponse response;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        List<Loan> data = new ArrayList<>(loans);
+        for (long id = 1; id <= loans; id++) {
+            Loan loan = new Loan();
+            loan.setId(id);
+            loan.setAmount(Money.parse("10000.00"));
+            loan.setPendingAmount(loan.getAmount());
+            loan.setTerm(term);
+            loan.setStartDate(LocalDate.now());
+            loan.setStatus(LoanStatus.APPROVED);
+            loan.setRepayments(RepaymentScheduleGenerator.generate(loan));
+            data.add(loan);
+        }
+        response = new BaseResponse("Success", true, data);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return objectMapper.writeValueAsBytes(response);
+    }
+}
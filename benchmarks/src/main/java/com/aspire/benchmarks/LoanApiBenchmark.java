@@ -0,0 +1,90 @@
+package com.aspire.benchmarks;
+
+import com.aspire.config.filter.RequestFilter;
+import com.aspire.entities.Loan;
+import com.aspire.entities.User;
+import com.aspire.money.Money;
+import com.aspire.service.LoanService;
+import com.aspire.service.UserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * End-to-end in-process request path: RequestFilter, controller, service, JPA against H2 and Jackson, driven
+ * through MockMvc so no socket is involved.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoanApiBenchmark {
+
+    @Param({"1", "20"})
+    private int loans;
+
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+    private Long loanId;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context)
+                .addFilters(context.getBean(RequestFilter.class))
+                .build();
+
+        LoanService loanService = context.getBean(LoanService.class);
+        User user = context.getBean(UserService.class).getUserByToken("token1");
+        for (int i = 0; i < loans; i++) {
+            Loan loan = loanService.createLoan(user, Money.parse("10000.00"), 52, LocalDate.now());
+            loanId = loanService.approveLoan(loan).getId();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int listLoans() throws Exception {
+        return mockMvc.perform(get("/api/loans").header("x-user-token", "token1")).andReturn().getResponse().getStatus();
+    }
+
+    @Benchmark
+    public int listLoanSummaries() throws Exception {
+        return mockMvc.perform(get("/api/loans").param("view", "summary").header("x-user-token", "token1"))
+                .andReturn().getResponse().getStatus();
+    }
+
+    @Benchmark
+    public int getLoan() throws Exception {
+        return mockMvc.perform(get("/api/loans/{loanId}", loanId).header("x-user-token", "token1")).andReturn().getResponse().getStatus();
+    }
+
+    @Benchmark
+    public int rejectedByFilter() throws Exception {
+        return mockMvc.perform(get("/api/loans").header("x-user-token", "unknown-token")).andReturn().getResponse().getStatus();
+    }
+}
@@ -0,0 +1,70 @@
+package com.aspire.benchmarks;
+
+import com.aspire.entities.Loan;
+import com.aspire.entities.User;
+import com.aspire.money.Money;
+import com.aspire.service.LoanService;
+import com.aspire.service.UserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * approveLoan latency against term length. {@code batchSize=1} disables JDBC batching and stands in for the
+ * row-at-a-time inserts of the old IDENTITY mapping; {@code batchSize=50} is the shipped configuration.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoanApprovalBenchmark {
+
+    @Param({"4", "52", "260"})
+    private int term;
+
+    @Param({"1", "50"})
+    private int batchSize;
+
+    private ConfigurableApplicationContext context;
+    private LoanService loanService;
+    private User user;
+    private Loan loan;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = BenchmarkApplication.start("--spring.jpa.properties.hibernate.jdbc.batch_size=" + batchSize);
+        loanService = context.getBean(LoanService.class);
+        user = context.getBean(UserService.class).getUserByToken("token1");
+    }
+
+    @Setup(Level.Invocation)
+    public void createLoan() {
+        loan = loanService.createLoan(user, Money.parse("100000.00"), term, LocalDate.now());
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    public Loan approve() {
+        return loanService.approveLoan(loan);
+    }
+}
@@ -0,0 +1,90 @@
+package com.aspire.benchmarks;
+
+import com.aspire.repo.LoanRepository;
+import com.aspire.repo.RepaymentRepository;
+import com.aspire.response.LoanImportReport;
+import com.aspire.service.LoanImportService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to import a CSV of approved loans spread over the six seeded users. With the defaults one operation writes
+ * 20,000 loans of 50 installments, i.e. one million installments, so the score reads directly against a target of
+ * one million installments a minute.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class LoanImportBenchmark {
+
+    private static final int USERS = 6;
+
+    @Param({"20000"})
+    private int loans;
+
+    @Param({"50"})
+    private int term;
+
+    private ConfigurableApplicationContext context;
+    private LoanImportService loanImportService;
+    private LoanRepository loanRepository;
+    private RepaymentRepository repaymentRepository;
+    private byte[] csv;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = BenchmarkApplication.start();
+        loanImportService = context.getBean(LoanImportService.class);
+        loanRepository = context.getBean(LoanRepository.class);
+        repaymentRepository = context.getBean(RepaymentRepository.class);
+
+        StringBuilder content = new StringBuilder("username,amount,term,startDate,status,paidAmount\n");
+        LocalDate startDate = LocalDate.now().minusMonths(3);
+        for (int i = 0; i < loans; i++) {
+            content.append("user").append(i % USERS + 1).append(",5000,").append(term).append(',')
+                    .append(startDate).append(",APPROVED,").append(i % 4 * 100).append('\n');
+        }
+        csv = content.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteImportedLoans() {
+        repaymentRepository.deleteAllInBatch();
+        loanRepository.deleteAllInBatch();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    public LoanImportReport importCsv() throws IOException {
+        LoanImportReport report = loanImportService.importLoans(new ByteArrayInputStream(csv), true);
+        if (report.getRejected() != 0) {
+            throw new IllegalStateException("Import rejected rows: " + report);
+        }
+        return report;
+    }
+}
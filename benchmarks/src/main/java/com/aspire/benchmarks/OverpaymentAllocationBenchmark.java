@@ -0,0 +1,100 @@
+package com.aspire.benchmarks;
+
+import com.aspire.entities.Loan;
+import com.aspire.entities.Repayment;
+import com.aspire.enums.LoanStatus;
+import com.aspire.enums.RepaymentStatus;
+import com.aspire.money.Money;
+import com.aspire.service.impl.RepaymentAllocator;
+import com.aspire.service.impl.RepaymentScheduleGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * An overpayment that settles the paid installment plus two more, against schedules of growing length.
+ * {@code allocator} is the current engine; {@code streamSort} is the filter/sort/allMatch implementation it
+ * replaced, kept here as the baseline.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OverpaymentAllocationBenchmark {
+
+    @Param({"4", "52", "520", "5200"})
+    private int term;
+
+    private Loan loan;
+    private Repayment repayment;
+    private Money amount;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        loan = new Loan();
+        loan.setAmount(Money.ofMajor(term * 100L));
+        loan.setPendingAmount(loan.getAmount());
+        loan.setTerm(term);
+        loan.setStartDate(LocalDate.now());
+        loan.setStatus(LoanStatus.APPROVED);
+        loan.setRepayments(RepaymentScheduleGenerator.generate(loan));
+        loan.setUnpaidInstallments(term);
+        loan.setFirstUnpaidInstallment(0);
+        repayment = loan.getRepayments().get(0);
+        amount = Money.ofMajor(Math.min(term, 3) * 100L);
+    }
+
+    @Benchmark
+    public List<Repayment> allocator() {
+        return RepaymentAllocator.allocate(loan, repayment, amount);
+    }
+
+    @Benchmark
+    public Loan streamSort() {
+        Money extraAmount = amount.minus(repayment.getPendingAmount());
+        loan.setPendingAmount(loan.getPendingAmount().minus(repayment.getPendingAmount()));
+        repayment.setPendingAmount(Money.ZERO);
+        repayment.setStatus(RepaymentStatus.PAID);
+
+        List<Repayment> futureRepayments = loan.getRepayments().stream()
+                .filter(r -> r.getStatus().equals(RepaymentStatus.PENDING) && r.getDueDate().isAfter(repayment.getDueDate()))
+                .sorted(Comparator.comparing(Repayment::getDueDate))
+                .collect(Collectors.toList());
+        for (Repayment futureRepayment : futureRepayments) {
+            if (extraAmount.compareTo(Money.ZERO) <= 0) {
+                break;
+            }
+            if (extraAmount.compareTo(futureRepayment.getPendingAmount()) >= 0) {
+                loan.setPendingAmount(loan.getPendingAmount().minus(futureRepayment.getPendingAmount()));
+                extraAmount = extraAmount.minus(futureRepayment.getPendingAmount());
+                futureRepayment.setPendingAmount(Money.ZERO);
+                futureRepayment.setStatus(RepaymentStatus.PAID);
+            } else {
+                loan.setPendingAmount(loan.getPendingAmount().minus(extraAmount));
+                futureRepayment.setPendingAmount(futureRepayment.getPendingAmount().minus(extraAmount));
+                extraAmount = Money.ZERO;
+            }
+        }
+        if (loan.getRepayments().stream().allMatch(r -> r.getStatus() == RepaymentStatus.PAID)) {
+            loan.setStatus(LoanStatus.PAID);
+        }
+        return loan;
+    }
+}
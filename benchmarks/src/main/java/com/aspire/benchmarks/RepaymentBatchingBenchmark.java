@@ -0,0 +1,126 @@
+package com.aspire.benchmarks;
+
+import com.aspire.config.filter.RequestFilter;
+import com.aspire.entities.Loan;
+import com.aspire.entities.Repayment;
+import com.aspire.entities.User;
+import com.aspire.money.Money;
+import com.aspire.repo.RepaymentRepository;
+import com.aspire.service.LoanService;
+import com.aspire.service.UserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Repayment throughput with one commit per request against group commit. 32 threads post repayments through
+ * MockMvc, each paying down its own loans so the comparison measures commit overhead rather than optimistic
+ * lock conflicts. Compare the {@code batching=false} and {@code batching=true} scores.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(32)
+@State(Scope.Benchmark)
+public class RepaymentBatchingBenchmark {
+
+    private static final int TERM = 520;
+
+    @Param({"false", "true"})
+    private boolean batching;
+
+    @Param({"32"})
+    private int maxBatchSize;
+
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+    private LoanService loanService;
+    private RepaymentRepository repaymentRepository;
+    private User user;
+
+    @Setup
+    public void setUp() {
+        // A file database so commits reach the disk like they would on a real server
+        context = BenchmarkApplication.start(
+                "--spring.datasource.url=jdbc:h2:file:./target/repayment-batching-" + System.nanoTime(),
+                "--aspire.repayment.batch.enabled=" + batching,
+                "--aspire.repayment.batch.max-batch-size=" + maxBatchSize);
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context)
+                .addFilters(context.getBean(RequestFilter.class))
+                .build();
+        loanService = context.getBean(LoanService.class);
+        repaymentRepository = context.getBean(RepaymentRepository.class);
+        user = context.getBean(UserService.class).getUserByToken("token1");
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Payer {
+
+        private RepaymentBatchingBenchmark benchmark;
+        private Iterator<Repayment> installments;
+
+        /**
+         * Approves the first loan here so its schedule insert is not timed as part of the first repayments.
+         */
+        @Setup
+        public void setUp(RepaymentBatchingBenchmark benchmark) {
+            this.benchmark = benchmark;
+            installments = approvedSchedule();
+        }
+
+        Repayment next() {
+            if (!installments.hasNext()) {
+                installments = approvedSchedule();
+            }
+            return installments.next();
+        }
+
+        private Iterator<Repayment> approvedSchedule() {
+            Loan loan = benchmark.loanService.createLoan(benchmark.user, Money.ofMajor(100L * TERM), TERM, LocalDate.now());
+            // The approved loan comes back detached with its schedule not loaded, so read the installments back
+            List<Repayment> schedule = benchmark.repaymentRepository.findByLoanId(benchmark.loanService.approveLoan(loan).getId());
+            schedule.sort(Comparator.comparing(Repayment::getDueDate));
+            return schedule.iterator();
+        }
+    }
+
+    @Benchmark
+    public int repay(Payer payer) throws Exception {
+        Repayment installment = payer.next();
+        return mockMvc.perform(post("/api/loans/repayments/{repaymentId}", installment.getId())
+                        .header("x-user-token", "token1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"amount\":" + installment.getPendingAmount() + "}"))
+                .andReturn().getResponse().getStatus();
+    }
+}
@@ -0,0 +1,54 @@
+package com.aspire.benchmarks;
+
+import com.aspire.entities.Loan;
+import com.aspire.entities.Repayment;
+import com.aspire.enums.LoanStatus;
+import com.aspire.money.Money;
+import com.aspire.service.impl.RepaymentScheduleGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory cost of building a repayment schedule, as done by approveLoan and bulk approval.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScheduleGenerationBenchmark {
+
+    @Param({"4", "52", "260", "520", "5200"})
+    private int term;
+
+    private Loan loan;
+
+    @Setup
+    public void setUp() {
+        loan = new Loan();
+        loan.setAmount(Money.parse("100000.00"));
+        loan.setPendingAmount(loan.getAmount());
+        loan.setTerm(term);
+        loan.setStartDate(LocalDate.now());
+        loan.setStatus(LoanStatus.PENDING);
+    }
+
+    @Benchmark
+    public List<Repayment> generate() {
+        return RepaymentScheduleGenerator.generate(loan);
+    }
+}
@@ -0,0 +1,140 @@
+package com.aspire.loadgen;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+
+/**
+ * Builds the requests of each operation with the users seeded by {@code data.sql} and feeds the created and
+ * approved loans back into the {@link LoanPool}.
+ */
+final class ApiClient {
+
+    static final List<String> USER_TOKENS = List.of("token1", "token2", "token3", "token4", "token5", "token6");
+
+    static final String ADMIN_TOKEN = "admin-token6";
+
+    private static final String TOKEN_HEADER = "x-user-token";
+
+    private static final String LOAN_AMOUNT = "1200.00";
+
+    private static final int LOAN_TERM = 12;
+
+    private final HttpClient http;
+    private final String baseUrl;
+    private final Duration timeout;
+    private final LoanPool pool;
+    private final ObjectMapper objectMapper = new ObjectMapper().enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+
+    ApiClient(String baseUrl, Duration timeout, LoanPool pool) {
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+        this.baseUrl = baseUrl;
+        this.timeout = timeout;
+        this.pool = pool;
+    }
+
+    HttpClient http() {
+        return http;
+    }
+
+    /**
+     * The next request of {@code operation}, or null when there is nothing for it to target yet: no pending loan to
+     * approve, no loan of the picked user to read or no installment left to pay.
+     */
+    Call prepare(Operation operation, SplittableRandom random) {
+        String token = USER_TOKENS.get(random.nextInt(USER_TOKENS.size()));
+        switch (operation) {
+            case CREATE:
+                return createLoan(token);
+            case APPROVE:
+                LoanPool.Target pending = pool.nextPendingLoan();
+                return pending == null ? null : approveLoan(pending);
+            case LIST:
+                return new Call(request("/api/loans", token).GET().build(), body -> {
+                });
+            case GET:
+                Long loanId = pool.randomLoan(token, random);
+                return loanId == null ? null : new Call(request("/api/loans/" + loanId, token).GET().build(), body -> {
+                });
+            case REPAY:
+                LoanPool.Installment installment = pool.nextInstallment();
+                return installment == null ? null : repay(installment);
+            default:
+                throw new IllegalArgumentException("Unknown operation " + operation);
+        }
+    }
+
+    Call createLoan(String token) {
+        String loan = "{\"amount\":" + LOAN_AMOUNT + ",\"term\":" + LOAN_TERM + ",\"startDate\":\"" + LocalDate.now() + "\"}";
+        return new Call(json(request("/api/loans", token), loan), body -> pool.created(token, data(body).path("id").asLong()));
+    }
+
+    Call approveLoan(LoanPool.Target loan) {
+        return new Call(json(request("/api/admin/loans/" + loan.id + "/approve", ADMIN_TOKEN), "{}"),
+                body -> pool.approved(loan.token, data(body)));
+    }
+
+    private Call repay(LoanPool.Installment installment) {
+        return new Call(json(request("/api/loans/repayments/" + installment.id, installment.token), "{\"amount\":" + installment.amount + "}"),
+                body -> {
+                });
+    }
+
+    private HttpRequest.Builder request(String path, String token) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(timeout)
+                .header(TOKEN_HEADER, token);
+    }
+
+    private static HttpRequest json(HttpRequest.Builder request, String body) {
+        return request.header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private JsonNode data(byte[] body) {
+        try {
+            return objectMapper.readTree(body).path("data");
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Sends {@code call} and waits for it, failing unless it succeeds. Used to seed data before the measured run.
+     */
+    void execute(Call call) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = http.send(call.request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() / 100 != 2) {
+            throw new IllegalStateException(call.request.method() + " " + call.request.uri() + " returned " + response.statusCode()
+                    + ": " + new String(response.body()));
+        }
+        call.onSuccess.accept(response.body());
+    }
+
+    static final class Call {
+
+        final HttpRequest request;
+        final Consumer<byte[]> onSuccess;
+
+        Call(HttpRequest request, Consumer<byte[]> onSuccess) {
+            this.request = request;
+            this.onSuccess = onSuccess;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.aspire.loadgen;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * Results of one endpoint. {@code responseTime} is measured from when the request was due to be sent, so time spent
+ * queued behind a stalled generator or server counts (corrected for coordinated omission); {@code serviceTime} is
+ * measured from when it was actually sent. {@code skipped} counts requests that had no loan or installment to target.
+ */
+@Data
+@AllArgsConstructor
+public class EndpointReport {
+
+    private String endpoint;
+    private long requests;
+    private double throughput;
+    private Map<Integer, Long> statuses;
+    private long errors;
+    private long skipped;
+    private LatencySummary responseTime;
+    private LatencySummary serviceTime;
+}
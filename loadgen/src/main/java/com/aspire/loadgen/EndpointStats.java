@@ -0,0 +1,44 @@
+package com.aspire.loadgen;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Latencies and outcomes of one operation during the measured part of a run. Responses of any status are timed;
+ * requests that got no response at all (connection failures, timeouts) are only counted as errors.
+ */
+final class EndpointStats {
+
+    private final Operation operation;
+    private final Histogram responseTime = new Histogram(3);
+    private final Histogram serviceTime = new Histogram(3);
+    private final Map<Integer, Long> statuses = new TreeMap<>();
+    private long errors;
+    private long skipped;
+
+    EndpointStats(Operation operation) {
+        this.operation = operation;
+    }
+
+    synchronized void record(int status, long intendedNanos, long sentNanos, long doneNanos) {
+        responseTime.recordValue(Math.max(0, doneNanos - intendedNanos) / 1000);
+        serviceTime.recordValue(Math.max(0, doneNanos - sentNanos) / 1000);
+        statuses.merge(status, 1L, Long::sum);
+    }
+
+    synchronized void error() {
+        errors++;
+    }
+
+    synchronized void skip() {
+        skipped++;
+    }
+
+    synchronized EndpointReport report(double seconds) {
+        long requests = responseTime.getTotalCount();
+        return new EndpointReport(operation.endpoint(), requests, requests / seconds, new TreeMap<>(statuses), errors, skipped,
+                LatencySummary.of(responseTime), LatencySummary.of(serviceTime));
+    }
+}
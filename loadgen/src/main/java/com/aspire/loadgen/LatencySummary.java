@@ -0,0 +1,31 @@
+package com.aspire.loadgen;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Percentiles of a latency histogram recorded in microseconds, reported in milliseconds.
+ */
+@Data
+@AllArgsConstructor
+@JsonPropertyOrder({"p50", "p99", "p99.9", "max"})
+public class LatencySummary {
+
+    private double p50;
+    private double p99;
+    @JsonProperty("p99.9")
+    private double p999;
+    private double max;
+
+    static LatencySummary of(Histogram micros) {
+        return new LatencySummary(millis(micros.getValueAtPercentile(50)), millis(micros.getValueAtPercentile(99)),
+                millis(micros.getValueAtPercentile(99.9)), millis(micros.getMaxValue()));
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,72 @@
+package com.aspire.loadgen;
+
+import com.aspire.MiniAspireApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Entry point of the load generator jar. Without {@code --url} it boots the application in-process on a random
+ * port with its own in-memory database, like the benchmarks do, and drives that. See {@link LoadOptions} for the
+ * options and {@link LoadRun} for how load is applied.
+ */
+public final class LoadGenerator {
+
+    private static final String USAGE = "Usage: java -jar loadgen.jar [--url=http://host:port] [--rate=200] [--duration=60s]"
+            + " [--warmup=10s] [--mix=" + LoadOptions.DEFAULT_MIX + "] [--seed-loans=10] [--seed=42] [--timeout=10s]"
+            + " [--json=loadgen-result.json] [--<application property>=value ...]";
+
+    private LoadGenerator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadOptions options;
+        try {
+            options = LoadOptions.parse(args);
+        } catch (IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+        ConfigurableApplicationContext context = options.bootsApplication() ? start(options.getAppArgs()) : null;
+        try {
+            String target = context != null
+                    ? "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort()
+                    : options.getUrl();
+            LoadRun run = new LoadRun(options, target);
+            run.seed();
+            LoadReport report = run.run();
+            System.out.print(report.toText());
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(options.getJson().toFile(), report);
+            System.out.println("Report written to " + options.getJson());
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    /**
+     * SQL logging and rate limiting are switched off so they do not dominate the measurements; later arguments
+     * override these defaults.
+     */
+    private static ConfigurableApplicationContext start(List<String> appArgs) {
+        List<String> args = new ArrayList<>(Arrays.asList(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:loadgen-" + UUID.randomUUID(),
+                "--spring.jpa.show-sql=false",
+                "--aspire.rate-limit.enabled=false",
+                "--logging.level.root=WARN",
+                "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=OFF"));
+        args.addAll(appArgs);
+        return new SpringApplicationBuilder(MiniAspireApplication.class).run(args.toArray(new String[0]));
+    }
+}
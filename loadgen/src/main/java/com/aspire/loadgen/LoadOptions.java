@@ -0,0 +1,104 @@
+package com.aspire.loadgen;
+
+import lombok.Getter;
+import org.springframework.boot.convert.DurationStyle;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Command line of the generator. Options are given as {@code --name=value}; without {@code --url} any other
+ * {@code --} argument is passed on to the application booted in-process, e.g. {@code --aspire.schedule.virtual=true}.
+ */
+@Getter
+final class LoadOptions {
+
+    static final String DEFAULT_MIX = "create=20,approve=10,list=30,get=30,repay=10";
+
+    private String url;
+    private double rate = 200;
+    private Duration duration = Duration.ofSeconds(60);
+    private Duration warmup = Duration.ofSeconds(10);
+    private Duration timeout = Duration.ofSeconds(10);
+    private OperationMix mix = OperationMix.parse(DEFAULT_MIX);
+    private int seedLoans = 10;
+    private long seed = 42;
+    private Path json = Paths.get("loadgen-result.json");
+    private final List<String> appArgs = new ArrayList<>();
+
+    private LoadOptions() {
+    }
+
+    static LoadOptions parse(String... args) {
+        LoadOptions options = new LoadOptions();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Arguments should look like --name=value, got '" + arg + "'");
+            }
+            String name = arg.substring(2, separator);
+            String value = arg.substring(separator + 1);
+            switch (name) {
+                case "url":
+                    options.url = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+                    break;
+                case "rate":
+                    options.rate = Double.parseDouble(value);
+                    break;
+                case "duration":
+                    options.duration = DurationStyle.detectAndParse(value);
+                    break;
+                case "warmup":
+                    options.warmup = DurationStyle.detectAndParse(value);
+                    break;
+                case "timeout":
+                    options.timeout = DurationStyle.detectAndParse(value);
+                    break;
+                case "mix":
+                    options.mix = OperationMix.parse(value);
+                    break;
+                case "seed-loans":
+                    options.seedLoans = Integer.parseInt(value);
+                    break;
+                case "seed":
+                    options.seed = Long.parseLong(value);
+                    break;
+                case "json":
+                    options.json = Paths.get(value);
+                    break;
+                default:
+                    options.appArgs.add(arg);
+            }
+        }
+        options.validate();
+        return options;
+    }
+
+    private void validate() {
+        if (rate <= 0) {
+            throw new IllegalArgumentException("Rate should be greater than 0");
+        }
+        if (duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("Duration should be greater than 0");
+        }
+        if (warmup.isNegative()) {
+            throw new IllegalArgumentException("Warmup should not be negative");
+        }
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("Timeout should be greater than 0");
+        }
+        if (seedLoans < 0) {
+            throw new IllegalArgumentException("Seed loans should not be negative");
+        }
+        if (url != null && !appArgs.isEmpty()) {
+            throw new IllegalArgumentException("Unknown options " + appArgs + "; application arguments only apply without --url");
+        }
+    }
+
+    boolean bootsApplication() {
+        return url == null;
+    }
+}
@@ -0,0 +1,50 @@
+package com.aspire.loadgen;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Outcome of a run, written as JSON and printed as a table. {@code maxDispatchLagMs} is how far the generator itself
+ * fell behind its schedule; the response times already include that lag.
+ */
+@Data
+@AllArgsConstructor
+public class LoadReport {
+
+    private String target;
+    private String mix;
+    private double targetRate;
+    private double warmupSeconds;
+    private double durationSeconds;
+    private long requests;
+    private double throughput;
+    private double maxDispatchLagMs;
+    private List<EndpointReport> endpoints;
+
+    String toText() {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format(Locale.ROOT, "Target %s, mix %s%n", target, mix));
+        text.append(String.format(Locale.ROOT, "%.1f req/s offered for %.0fs after %.0fs warmup: %d responses, %.1f req/s, dispatcher lag up to %.1f ms%n%n",
+                targetRate, durationSeconds, warmupSeconds, requests, throughput, maxDispatchLagMs));
+        text.append(String.format(Locale.ROOT, "%-40s %8s %9s %9s %9s %9s %9s %9s  %s%n",
+                "Endpoint", "Requests", "Req/s", "p50 ms", "p99 ms", "p99.9 ms", "Max ms", "Svc p99", "Statuses"));
+        for (EndpointReport endpoint : endpoints) {
+            StringBuilder statuses = new StringBuilder();
+            endpoint.getStatuses().forEach((status, count) -> statuses.append(status).append('=').append(count).append(' '));
+            if (endpoint.getErrors() > 0) {
+                statuses.append("errors=").append(endpoint.getErrors()).append(' ');
+            }
+            if (endpoint.getSkipped() > 0) {
+                statuses.append("skipped=").append(endpoint.getSkipped());
+            }
+            LatencySummary latency = endpoint.getResponseTime();
+            text.append(String.format(Locale.ROOT, "%-40s %8d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f  %s%n",
+                    endpoint.getEndpoint(), endpoint.getRequests(), endpoint.getThroughput(), latency.getP50(), latency.getP99(),
+                    latency.getP999(), latency.getMax(), endpoint.getServiceTime().getP99(), statuses.toString().trim()));
+        }
+        return text.toString();
+    }
+}
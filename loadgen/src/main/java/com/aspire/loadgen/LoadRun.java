@@ -0,0 +1,137 @@
+package com.aspire.loadgen;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives the API at a fixed arrival rate. Request {@code i} is due at {@code start + i / rate} and is sent then,
+ * whether or not earlier requests have been answered (an open model), so a slow server builds up requests in flight
+ * instead of quietly lowering the offered load. Latency is taken from the due time rather than the send time, which
+ * keeps stalls of the generator itself in the numbers too.
+ */
+final class LoadRun {
+
+    private final LoadOptions options;
+    private final String target;
+    private final LoanPool pool = new LoanPool();
+    private final ApiClient client;
+    private final Map<Operation, EndpointStats> stats = new EnumMap<>(Operation.class);
+    private final AtomicLong inFlight = new AtomicLong();
+    private final AtomicLong lastResponseNanos = new AtomicLong();
+
+    LoadRun(LoadOptions options, String target) {
+        this.options = options;
+        this.target = target;
+        this.client = new ApiClient(target, options.getTimeout(), pool);
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new EndpointStats(operation));
+        }
+    }
+
+    /**
+     * Creates {@code seedLoans} loans for every user and approves half of them, so reads, approvals and repayments
+     * have something to target from the first second.
+     */
+    void seed() throws IOException, InterruptedException {
+        for (int i = 0; i < options.getSeedLoans(); i++) {
+            for (String token : ApiClient.USER_TOKENS) {
+                client.execute(client.createLoan(token));
+            }
+        }
+        for (int i = 0; i < options.getSeedLoans() * ApiClient.USER_TOKENS.size() / 2; i++) {
+            client.execute(client.approveLoan(pool.nextPendingLoan()));
+        }
+    }
+
+    LoadReport run() throws InterruptedException {
+        SplittableRandom random = new SplittableRandom(options.getSeed());
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / options.getRate();
+        long start = System.nanoTime();
+        long measuredFrom = start + options.getWarmup().toNanos();
+        long end = measuredFrom + options.getDuration().toNanos();
+        long maxLag = 0;
+        for (long i = 0; ; i++) {
+            long due = start + (long) (i * intervalNanos);
+            if (due >= end) {
+                break;
+            }
+            for (long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()) {
+                LockSupport.parkNanos(wait);
+            }
+            boolean measured = due >= measuredFrom;
+            Operation operation = options.getMix().pick(random);
+            ApiClient.Call call = client.prepare(operation, random);
+            if (call == null) {
+                if (measured) {
+                    stats.get(operation).skip();
+                }
+                continue;
+            }
+            long sent = System.nanoTime();
+            if (measured) {
+                maxLag = Math.max(maxLag, sent - due);
+            }
+            send(operation, call, due, sent, measured);
+        }
+        awaitInFlight();
+        return report(measuredFrom, maxLag);
+    }
+
+    private void send(Operation operation, ApiClient.Call call, long due, long sent, boolean measured) {
+        inFlight.incrementAndGet();
+        client.http().sendAsync(call.request, HttpResponse.BodyHandlers.ofByteArray()).whenComplete((response, ex) -> {
+            long done = System.nanoTime();
+            try {
+                if (measured) {
+                    lastResponseNanos.accumulateAndGet(done, Math::max);
+                    if (ex != null) {
+                        stats.get(operation).error();
+                    } else {
+                        stats.get(operation).record(response.statusCode(), due, sent, done);
+                    }
+                }
+                if (response != null && response.statusCode() / 100 == 2) {
+                    call.onSuccess.accept(response.body());
+                }
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Waits for the requests still in flight, up to the request timeout, so slow responses at the end of the run
+     * are counted rather than dropped.
+     */
+    private void awaitInFlight() throws InterruptedException {
+        long deadline = System.nanoTime() + options.getTimeout().toNanos() + TimeUnit.SECONDS.toNanos(1);
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private LoadReport report(long measuredFrom, long maxLagNanos) {
+        // Responses still arriving after the schedule ended stretch the window, so throughput is never overstated
+        long window = Math.max(options.getDuration().toNanos(), lastResponseNanos.get() - measuredFrom);
+        double seconds = window / (double) TimeUnit.SECONDS.toNanos(1);
+        List<EndpointReport> endpoints = new ArrayList<>();
+        long requests = 0;
+        for (Operation operation : Operation.values()) {
+            if (options.getMix().includes(operation)) {
+                EndpointReport endpoint = stats.get(operation).report(seconds);
+                requests += endpoint.getRequests();
+                endpoints.add(endpoint);
+            }
+        }
+        return new LoadReport(target, options.getMix().toString(), options.getRate(), options.getWarmup().toMillis() / 1000.0,
+                options.getDuration().toMillis() / 1000.0, requests, requests / seconds, maxLagNanos / 1e6, endpoints);
+    }
+}
@@ -0,0 +1,82 @@
+package com.aspire.loadgen;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * What the generator knows about the data it created: each user's loans, loans waiting for approval and
+ * installments still to be paid. Filled from the responses of create and approve calls, so approve, get and
+ * repay only ever target rows that exist. Each pending loan and installment is handed out once.
+ */
+final class LoanPool {
+
+    private final Map<String, List<Long>> loansByToken = new ConcurrentHashMap<>();
+    private final Queue<Target> pendingLoans = new ConcurrentLinkedQueue<>();
+    private final Queue<Installment> installments = new ConcurrentLinkedQueue<>();
+
+    void created(String token, long loanId) {
+        List<Long> loans = loansByToken.computeIfAbsent(token, ignored -> new ArrayList<>());
+        synchronized (loans) {
+            loans.add(loanId);
+        }
+        pendingLoans.add(new Target(token, loanId));
+    }
+
+    /**
+     * Records the installments of an approved loan, as returned by the approve call.
+     */
+    void approved(String token, JsonNode loan) {
+        for (JsonNode repayment : loan.path("repayments")) {
+            installments.add(new Installment(token, repayment.path("id").asLong(), repayment.path("pendingAmount").decimalValue().toPlainString()));
+        }
+    }
+
+    Long randomLoan(String token, SplittableRandom random) {
+        List<Long> loans = loansByToken.get(token);
+        if (loans == null) {
+            return null;
+        }
+        synchronized (loans) {
+            return loans.isEmpty() ? null : loans.get(random.nextInt(loans.size()));
+        }
+    }
+
+    Target nextPendingLoan() {
+        return pendingLoans.poll();
+    }
+
+    Installment nextInstallment() {
+        return installments.poll();
+    }
+
+    static final class Target {
+
+        final String token;
+        final long id;
+
+        Target(String token, long id) {
+            this.token = token;
+            this.id = id;
+        }
+    }
+
+    static final class Installment {
+
+        final String token;
+        final long id;
+        final String amount;
+
+        Installment(String token, long id, String amount) {
+            this.token = token;
+            this.id = id;
+            this.amount = amount;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.aspire.loadgen;
+
+/**
+ * The API calls the generator can issue, named as they are given in {@code --mix}.
+ */
+enum Operation {
+
+    CREATE("POST /api/loans"),
+    APPROVE("POST /api/admin/loans/{loanId}/approve"),
+    LIST("GET /api/loans"),
+    GET("GET /api/loans/{loanId}"),
+    REPAY("POST /api/loans/repayments/{repaymentId}");
+
+    private final String endpoint;
+
+    Operation(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    String endpoint() {
+        return endpoint;
+    }
+
+    String optionName() {
+        return name().toLowerCase();
+    }
+}
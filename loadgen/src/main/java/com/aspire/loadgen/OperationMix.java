@@ -0,0 +1,89 @@
+package com.aspire.loadgen;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Relative weights of the operations, e.g. {@code create=20,approve=10,list=30,get=30,repay=10}. Operations left
+ * out are never issued.
+ */
+final class OperationMix {
+
+    private final Map<Operation, Integer> weights;
+    private final Operation[] operations;
+    private final int[] cumulative;
+
+    private OperationMix(Map<Operation, Integer> weights) {
+        this.weights = weights;
+        this.operations = weights.keySet().toArray(new Operation[0]);
+        this.cumulative = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += weights.get(operations[i]);
+            cumulative[i] = total;
+        }
+    }
+
+    static OperationMix parse(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Mix entries should look like create=20, got '" + entry + "'");
+            }
+            Operation operation = operation(parts[0].trim());
+            int weight;
+            try {
+                weight = Integer.parseInt(parts[1].trim());
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Weight of " + parts[0].trim() + " should be a number");
+            }
+            if (weight < 0) {
+                throw new IllegalArgumentException("Weight of " + parts[0].trim() + " should not be negative");
+            }
+            if (weight > 0) {
+                weights.put(operation, weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("Mix should give at least one operation a weight");
+        }
+        return new OperationMix(weights);
+    }
+
+    private static Operation operation(String name) {
+        for (Operation operation : Operation.values()) {
+            if (operation.optionName().equals(name)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operation " + name);
+    }
+
+    Operation pick(SplittableRandom random) {
+        int roll = random.nextInt(cumulative[cumulative.length - 1]);
+        for (int i = 0; i < cumulative.length; i++) {
+            if (roll < cumulative[i]) {
+                return operations[i];
+            }
+        }
+        throw new IllegalStateException("Roll " + roll + " is out of range");
+    }
+
+    boolean includes(Operation operation) {
+        return weights.containsKey(operation);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder mix = new StringBuilder();
+        weights.forEach((operation, weight) -> {
+            if (mix.length() > 0) {
+                mix.append(',');
+            }
+            mix.append(operation.optionName()).append('=').append(weight);
+        });
+        return mix.toString();
+    }
+}
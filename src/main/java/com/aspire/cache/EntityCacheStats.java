@@ -0,0 +1,19 @@
+package com.aspire.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class EntityCacheStats {
+    private String region;
+    private long entries;
+    private long hits;
+    private long misses;
+    private long puts;
+
+    public double getHitRatio() {
+        long requests = hits + misses;
+        return requests == 0 ? 0.0 : (double) hits / requests;
+    }
+}
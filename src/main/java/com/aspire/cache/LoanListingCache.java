@@ -0,0 +1,234 @@
+package com.aspire.cache;
+
+import com.aspire.config.datasource.ReadYourWrites;
+import com.aspire.enums.LoanStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serialized {@code GET /api/loans} responses, keyed by user, status filter and view, within a byte budget. The least
+ * recently used listings are evicted once the budget is exceeded, and listings are dropped at midnight because
+ * computed schedules turn installments OVERDUE by date.
+ * <p>
+ * Writes invalidate a user's listings after they commit. A listing is only stored if no invalidation of its user
+ * happened while it was loaded, so a load that raced a write can never be cached. The invalidation also keeps the
+ * user's reads on the primary for the read-your-writes window, whoever wrote: otherwise a borrower reading right after
+ * an admin approved their loan could load, and cache, a listing from a replica that has not caught up yet.
+ */
+@Component
+public class LoanListingCache {
+
+    /** Rough per-entry overhead of the key, the entry and the map node. */
+    private static final int ENTRY_OVERHEAD = 128;
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final long maxBytes;
+    private final Clock clock;
+    private final ReadYourWrites readYourWrites;
+    private final LinkedHashMap<Key, CachedListing> entries;
+    /** Invalidation counts per user, striped so memory stays fixed; a collision only makes a load skip the cache. */
+    private final long[] generations = new long[GENERATION_STRIPES];
+    private long bytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    @Autowired
+    public LoanListingCache(@Value("${aspire.loan-listing-cache.max-bytes:33554432}") long maxBytes,
+                            ReadYourWrites readYourWrites) {
+        this(maxBytes, Clock.systemDefaultZone(), readYourWrites);
+    }
+
+    LoanListingCache(long maxBytes, Clock clock, ReadYourWrites readYourWrites) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Cache budget should be greater than 0");
+        }
+        this.maxBytes = maxBytes;
+        this.clock = clock;
+        this.readYourWrites = readYourWrites;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    public synchronized CachedListing get(Long userId, String status, boolean summary) {
+        Key key = new Key(userId, normalize(status), summary);
+        CachedListing cached = entries.get(key);
+        if (cached != null && cached.day != LocalDate.now(clock).toEpochDay()) {
+            remove(key);
+            cached = null;
+        }
+        if (cached == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return cached;
+    }
+
+    /**
+     * Read before loading a listing and passed back to {@link #put}.
+     */
+    public synchronized long generation(Long userId) {
+        return generations[stripe(userId)];
+    }
+
+    /**
+     * Stores a listing unless the user was invalidated since {@code generation} was read or the listing alone is
+     * over the budget.
+     *
+     * @return whether the listing was stored
+     */
+    public synchronized boolean put(Long userId, String status, boolean summary, long generation, String etag, byte[] body) {
+        long size = body.length + ENTRY_OVERHEAD;
+        if (generations[stripe(userId)] != generation || size > maxBytes) {
+            return false;
+        }
+        Key key = new Key(userId, normalize(status), summary);
+        remove(key);
+        entries.put(key, new CachedListing(etag, body, LocalDate.now(clock).toEpochDay()));
+        bytes += size;
+        Iterator<Map.Entry<Key, CachedListing>> eldest = entries.entrySet().iterator();
+        while (bytes > maxBytes) {
+            bytes -= eldest.next().getValue().body.length + ENTRY_OVERHEAD;
+            eldest.remove();
+            evictions.increment();
+        }
+        return true;
+    }
+
+    /**
+     * Removes the user's listings key by key: there is at most one per status filter and view, so this never scans
+     * other users' entries while holding the lock.
+     */
+    public synchronized void invalidateUser(Long userId) {
+        generations[stripe(userId)]++;
+        for (boolean summary : new boolean[]{false, true}) {
+            remove(new Key(userId, null, summary));
+            for (LoanStatus status : LoanStatus.values()) {
+                remove(new Key(userId, status.name(), summary));
+            }
+        }
+        invalidations.increment();
+    }
+
+    /**
+     * Pins the user to the primary and invalidates their listings once the current transaction commits, or right
+     * away outside a transaction. Pinning comes first so no listing reloaded after the invalidation reads a replica.
+     */
+    public void invalidateUserAfterCommit(Long userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            writeCommitted(userId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                writeCommitted(userId);
+            }
+        });
+    }
+
+    private void writeCommitted(Long userId) {
+        readYourWrites.recordWrite(userId);
+        invalidateUser(userId);
+    }
+
+    public synchronized void invalidateAll() {
+        Arrays.setAll(generations, i -> generations[i] + 1);
+        entries.clear();
+        bytes = 0;
+        invalidations.increment();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    public ListingCacheStats stats() {
+        return new ListingCacheStats(size(), bytes(), maxBytes, hits.sum(), misses.sum(), evictions.sum(), invalidations.sum());
+    }
+
+    private void remove(Key key) {
+        CachedListing removed = entries.remove(key);
+        if (removed != null) {
+            bytes -= removed.body.length + ENTRY_OVERHEAD;
+        }
+    }
+
+    private static int stripe(Long userId) {
+        return (int) Math.floorMod(userId, (long) GENERATION_STRIPES);
+    }
+
+    /**
+     * Unknown statuses list every loan, so they share the unfiltered entry instead of adding their own.
+     */
+    private static String normalize(String status) {
+        return Arrays.stream(LoanStatus.values()).anyMatch(s -> s.name().equals(status)) ? status : null;
+    }
+
+    public static final class CachedListing {
+        private final String etag;
+        private final byte[] body;
+        private final long day;
+
+        private CachedListing(String etag, byte[] body, long day) {
+            this.etag = etag;
+            this.body = body;
+            this.day = day;
+        }
+
+        public String getETag() {
+            return etag;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+    }
+
+    private static final class Key {
+        private final Long userId;
+        private final String status;
+        private final boolean summary;
+
+        private Key(Long userId, String status, boolean summary) {
+            this.userId = userId;
+            this.status = status;
+            this.summary = summary;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return summary == key.summary && userId.equals(key.userId) && Objects.equals(status, key.status);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, status, summary);
+        }
+    }
+}
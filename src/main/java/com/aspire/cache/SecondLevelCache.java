@@ -0,0 +1,57 @@
+package com.aspire.cache;
+
+import com.aspire.entities.Loan;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Statistics and targeted eviction for Hibernate's second-level cache. Writes through entities keep the cache
+ * current on their own; only writes that bypass an entity's collection need to evict it here.
+ */
+@Component
+public class SecondLevelCache {
+
+    private static final String LOAN_REPAYMENTS = Loan.class.getName() + ".repayments";
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Drops the cached repayment lists of loans whose repayments were inserted without going through
+     * {@code Loan.repayments}.
+     */
+    public void evictRepayments(Collection<Long> loanIds) {
+        org.hibernate.Cache cache = sessionFactory().getCache();
+        for (Long loanId : loanIds) {
+            cache.evictCollectionData(LOAN_REPAYMENTS, loanId);
+        }
+    }
+
+    public List<EntityCacheStats> stats() {
+        Statistics statistics = sessionFactory().getStatistics();
+        String[] regions = statistics.getSecondLevelCacheRegionNames();
+        Arrays.sort(regions);
+        List<EntityCacheStats> stats = new ArrayList<>(regions.length);
+        for (String region : regions) {
+            CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(region);
+            if (regionStatistics != null) {
+                stats.add(new EntityCacheStats(region, regionStatistics.getElementCountInMemory(),
+                        regionStatistics.getHitCount(), regionStatistics.getMissCount(), regionStatistics.getPutCount()));
+            }
+        }
+        return stats;
+    }
+
+    private SessionFactory sessionFactory() {
+        return entityManagerFactory.unwrap(SessionFactory.class);
+    }
+}
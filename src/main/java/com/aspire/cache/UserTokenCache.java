@@ -0,0 +1,109 @@
+package com.aspire.cache;
+
+import com.aspire.entities.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded token to user cache. Entries expire after a fixed TTL and the least recently used entry is
+ * evicted once the cache is full. Unknown tokens are never cached.
+ */
+@Component
+public class UserTokenCache {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final LinkedHashMap<String, CachedUser> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    @Autowired
+    public UserTokenCache(@Value("${aspire.user-token-cache.max-size:10000}") int maxSize,
+                          @Value("${aspire.user-token-cache.ttl:PT5M}") Duration ttl) {
+        this(maxSize, ttl, System::nanoTime);
+    }
+
+    UserTokenCache(int maxSize, Duration ttl, LongSupplier clock) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache size should be greater than 0");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    public synchronized User get(String token) {
+        CachedUser cached = entries.get(token);
+        if (cached == null) {
+            misses.increment();
+            return null;
+        }
+        if (clock.getAsLong() - cached.loadedAt >= ttlNanos) {
+            entries.remove(token);
+            expirations.increment();
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return cached.user;
+    }
+
+    public synchronized void put(String token, User user) {
+        entries.put(token, new CachedUser(user, clock.getAsLong()));
+        if (entries.size() > maxSize) {
+            Iterator<String> eldest = entries.keySet().iterator();
+            eldest.next();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Invalidation hook for token rotation: drops the entry for the given token.
+     */
+    public synchronized void invalidateToken(String token) {
+        entries.remove(token);
+    }
+
+    /**
+     * Invalidation hook for role changes: drops every entry that resolves to the given user.
+     */
+    public synchronized void invalidateUser(Long userId) {
+        entries.values().removeIf(cached -> userId.equals(cached.user.getId()));
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(size(), maxSize, hits.sum(), misses.sum(), evictions.sum(), expirations.sum());
+    }
+
+    private static final class CachedUser {
+        private final User user;
+        private final long loadedAt;
+
+        private CachedUser(User user, long loadedAt) {
+            this.user = user;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
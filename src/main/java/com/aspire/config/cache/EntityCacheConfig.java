@@ -0,0 +1,68 @@
+package com.aspire.config.cache;
+
+import com.aspire.entities.Loan;
+import com.aspire.entities.Repayment;
+import com.aspire.entities.User;
+import org.ehcache.config.CacheConfiguration;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.core.config.DefaultConfiguration;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Builds the JCache (Ehcache) regions behind Hibernate's second-level and query caches with the bounds from
+ * {@link EntityCacheProperties}, and hands the cache manager to Hibernate.
+ */
+@Configuration
+public class EntityCacheConfig {
+
+    /** Short property name of each bounded region, mapped to the region name Hibernate uses. */
+    static final Map<String, String> REGIONS = new LinkedHashMap<>();
+
+    static {
+        REGIONS.put("loan", Loan.class.getName());
+        REGIONS.put("loan-repayments", Loan.class.getName() + ".repayments");
+        REGIONS.put("repayment", Repayment.class.getName());
+        REGIONS.put("user", User.class.getName());
+        REGIONS.put("query-results", RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME);
+    }
+
+    @Bean(destroyMethod = "close")
+    public CacheManager entityCacheManager(EntityCacheProperties properties) {
+        Map<String, CacheConfiguration<?, ?>> caches = new HashMap<>();
+        REGIONS.forEach((name, region) -> caches.put(region, CacheConfigurationBuilder
+                .newCacheConfigurationBuilder(Object.class, Object.class, ResourcePoolsBuilder.heap(properties.maxEntries(name)))
+                .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(properties.ttl(name)))
+                .build()));
+        // Query results are only valid while the update timestamps of their tables are known, so this region is
+        // neither bounded nor expired; it holds one entry per table
+        caches.put(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, CacheConfigurationBuilder
+                .newCacheConfigurationBuilder(Object.class, Object.class, ResourcePoolsBuilder.heap(1000))
+                .withExpiry(ExpiryPolicyBuilder.noExpiration())
+                .build());
+
+        EhcacheCachingProvider provider = (EhcacheCachingProvider) Caching.getCachingProvider(EhcacheCachingProvider.class.getName());
+        ClassLoader classLoader = getClass().getClassLoader();
+        // A URI of its own per application context, so test contexts do not share (or close) each other's regions
+        URI uri = URI.create("urn:aspire:entity-cache:" + UUID.randomUUID());
+        return provider.getCacheManager(uri, new DefaultConfiguration(caches, classLoader));
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer entityCacheManagerCustomizer(CacheManager entityCacheManager) {
+        return properties -> properties.put("hibernate.javax.cache.cache_manager", entityCacheManager);
+    }
+}
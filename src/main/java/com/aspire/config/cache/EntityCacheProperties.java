@@ -0,0 +1,46 @@
+package com.aspire.config.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bounds of the Hibernate second-level cache regions, bound from {@code aspire.entity-cache.*}. Regions are keyed
+ * by their short name ({@code loan}, {@code loan-repayments}, {@code repayment}, {@code user} and
+ * {@code query-results}); a region without an entry uses the defaults.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "aspire.entity-cache")
+public class EntityCacheProperties {
+
+    /** Entries kept on heap per region. */
+    private long maxEntries = 10_000;
+
+    /** Time after which a cached entry is dropped, however often it is read. */
+    private Duration ttl = Duration.ofMinutes(10);
+
+    private Map<String, Region> regions = new HashMap<>();
+
+    @Data
+    public static class Region {
+
+        private Long maxEntries;
+
+        private Duration ttl;
+    }
+
+    public long maxEntries(String region) {
+        Region bounds = regions.get(region);
+        return bounds != null && bounds.getMaxEntries() != null ? bounds.getMaxEntries() : maxEntries;
+    }
+
+    public Duration ttl(String region) {
+        Region bounds = regions.get(region);
+        return bounds != null && bounds.getTtl() != null ? bounds.getTtl() : ttl;
+    }
+}
@@ -0,0 +1,87 @@
+package com.aspire.config.datasource;
+
+import com.aspire.config.filter.RequestFilter;
+import com.aspire.entities.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps a user's reads on the primary for a short window after they write, so they see their own changes while
+ * the replica catches up. Write requests themselves never read from the replica either: a replica read followed by
+ * a write would only end in an optimistic lock conflict.
+ */
+@Component
+public class ReadYourWrites {
+
+    private static final int PRUNE_THRESHOLD = 10_000;
+
+    private final boolean enabled;
+    private final long windowNanos;
+    private final LongSupplier nanoClock;
+    private final Map<Long, Long> pinnedUntil = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ReadYourWrites(@Value("${aspire.datasource.replica.url:}") String replicaUrl,
+                          @Value("${aspire.datasource.replica.read-your-writes-window:2s}") Duration window) {
+        this(StringUtils.hasText(replicaUrl), window, System::nanoTime);
+    }
+
+    ReadYourWrites(boolean enabled, Duration window, LongSupplier nanoClock) {
+        this.enabled = enabled;
+        this.windowNanos = window.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    public static boolean isWrite(String method) {
+        return !"GET".equals(method) && !"HEAD".equals(method) && !"OPTIONS".equals(method);
+    }
+
+    public void recordWrite(Long userId) {
+        if (!enabled || userId == null) {
+            return;
+        }
+        long now = nanoClock.getAsLong();
+        pinnedUntil.put(userId, now + windowNanos);
+        if (pinnedUntil.size() > PRUNE_THRESHOLD) {
+            pinnedUntil.values().removeIf(until -> until - now <= 0);
+        }
+    }
+
+    public boolean isPinned(Long userId) {
+        Long until = pinnedUntil.get(userId);
+        if (until == null) {
+            return false;
+        }
+        if (until - nanoClock.getAsLong() > 0) {
+            return true;
+        }
+        pinnedUntil.remove(userId, until);
+        return false;
+    }
+
+    /**
+     * Whether the request bound to the current thread must read from the primary. Threads outside a request, such
+     * as jobs, are never pinned.
+     */
+    public boolean isCurrentRequestPinned() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes)) {
+            return false;
+        }
+        if (isWrite(((ServletRequestAttributes) attributes).getRequest().getMethod())) {
+            return true;
+        }
+        Object user = attributes.getAttribute(RequestFilter.USER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        return user instanceof User && isPinned(((User) user).getId());
+    }
+}
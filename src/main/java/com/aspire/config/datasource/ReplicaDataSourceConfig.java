@@ -0,0 +1,59 @@
+package com.aspire.config.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Replaces the single {@code spring.datasource} pool with a primary and a replica pool once
+ * {@code aspire.datasource.replica.url} is set. The primary is still configured from {@code spring.datasource.*};
+ * the replica takes {@code url}, {@code username}, {@code password} and {@code driver-class-name} from
+ * {@code aspire.datasource.replica.*} and its pool settings from {@code aspire.datasource.replica.hikari.*}.
+ * Schema updates run outside a read-only transaction, so they only reach the primary. Not available while sharding
+ * is enabled.
+ */
+@Configuration
+@ConditionalOnExpression("'${aspire.datasource.replica.url:}' != '' and !${aspire.sharding.enabled:false}")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("aspire.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(Environment environment, DataSourceProperties properties) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(environment.getRequiredProperty("aspire.datasource.replica.url"))
+                .username(environment.getProperty("aspire.datasource.replica.username", properties.determineUsername()))
+                .password(environment.getProperty("aspire.datasource.replica.password", properties.determinePassword()))
+                .driverClassName(environment.getProperty("aspire.datasource.replica.driver-class-name",
+                        properties.determineDriverClassName()))
+                .build();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, HikariDataSource replicaDataSource,
+                                 ReadYourWrites readYourWrites) {
+        return new LazyConnectionDataSourceProxy(
+                new ReadWriteRoutingDataSource(primaryDataSource, replicaDataSource, readYourWrites));
+    }
+}
@@ -1,28 +1,61 @@
 package com.aspire.config.filter;
 
+import com.aspire.config.datasource.ReadYourWrites;
 import com.aspire.entities.User;
 import com.aspire.enums.UserRoles;
+import com.aspire.logging.AccessLogger;
+import com.aspire.ratelimit.AimdConcurrencyLimiter;
+import com.aspire.ratelimit.RequestAdmission;
 import com.aspire.service.UserService;
+import com.aspire.shard.ShardContext;
+import com.aspire.shard.ShardRouter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
 
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class RequestFilter extends OncePerRequestFilter {
 
+    public static final String USER_ATTRIBUTE = "aspire.user";
+
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private AccessLogger accessLogger;
+
+    @Autowired
+    private RequestAdmission requestAdmission;
+
+    @Autowired
+    private ReadYourWrites readYourWrites;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
-        System.out.println("Request received for: " + request.getRequestURI());
+        long start = System.nanoTime();
+        try {
+            authorizeAndContinue(request, response, filterChain);
+        } finally {
+            whenComplete(request, () -> logAccess(request, response, System.nanoTime() - start));
+        }
+    }
 
+    private void authorizeAndContinue(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
         if(request.getRequestURI().contains("api")){
             String token = request.getHeader("x-user-token");
             if(token == null){
@@ -43,8 +76,99 @@ public class RequestFilter extends OncePerRequestFilter {
                 response.sendError(HttpServletResponse.SC_FORBIDDEN, "User not allowed to access this resource");
                 return;
             }
+            request.setAttribute(USER_ATTRIBUTE, user);
+            // All of a user's loans live on one shard; binding it before the entity manager opens keeps the whole
+            // request there. Admin requests stay on shard 0 and reach the other shards explicitly
+            int shard = user.getRole().equals(UserRoles.USER) ? shardRouter.shardOfUser(user.getId()) : 0;
+            try (ShardContext.Scope ignored = ShardContext.bind(shard)) {
+                continueWithinLimits(request, response, filterChain, url, token);
+            } finally {
+                // The user's next reads stay on the primary until the replica has caught up with this write
+                if(ReadYourWrites.isWrite(request.getMethod())){
+                    readYourWrites.recordWrite(user.getId());
+                }
+            }
+            return;
         }
 
         filterChain.doFilter(request, response);
     }
+
+    /**
+     * Throttles each token to its route's rate and sheds writes beyond the route's adaptive concurrency limit,
+     * so one client cannot tie up the worker and connection pools.
+     */
+    private void continueWithinLimits(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain, String url, String token) throws ServletException, IOException {
+        long waitNanos = requestAdmission.checkRate(url, token);
+        if(waitNanos > 0){
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1))));
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Too many requests");
+            return;
+        }
+        AimdConcurrencyLimiter writeLimiter = requestAdmission.writeLimiter(url, request.getMethod());
+        if(writeLimiter == null){
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if(!writeLimiter.tryAcquire()){
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Server is busy, please retry");
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } catch (Throwable e) {
+            writeLimiter.release(System.nanoTime() - start, true);
+            throw e;
+        }
+        // An async write keeps its slot until the response is complete, so the sampled latency covers the work itself
+        whenComplete(request, () -> writeLimiter.release(System.nanoTime() - start,
+                response.getStatus() >= HttpServletResponse.SC_INTERNAL_SERVER_ERROR));
+    }
+
+    /**
+     * Runs {@code action} once the response is finished. An async handler (StreamingResponseBody, Callable,
+     * DeferredResult) returns from the initial dispatch before its work runs, so for those the action waits for the
+     * async context to complete, which the container also does after an error or timeout.
+     */
+    private static void whenComplete(HttpServletRequest request, Runnable action) {
+        if(!request.isAsyncStarted()){
+            action.run();
+            return;
+        }
+        request.getAsyncContext().addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+                action.run();
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+                // Listeners are dropped when async processing is restarted on a dispatch
+                event.getAsyncContext().addListener(this);
+            }
+        });
+    }
+
+    /**
+     * Logs the URI template rather than the raw path so lines for the same endpoint group together.
+     */
+    private void logAccess(HttpServletRequest request, HttpServletResponse response, long latencyNanos) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        Object user = request.getAttribute(USER_ATTRIBUTE);
+        accessLogger.log(request.getMethod(),
+                pattern != null ? pattern.toString() : request.getRequestURI(),
+                user instanceof User ? ((User) user).getId() : null,
+                response.getStatus(),
+                latencyNanos);
+    }
 }
@@ -0,0 +1,100 @@
+package com.aspire.config.metrics;
+
+import com.aspire.cache.LoanListingCache;
+import com.aspire.cache.UserTokenCache;
+import com.aspire.logging.AccessLogger;
+import com.aspire.repayment.RepaymentBatcher;
+import com.aspire.retry.OptimisticRetryExecutor;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class MetricsConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private StatementCountingInspector statementCountingInspector;
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new StatementMetricsInterceptor(statementCountingInspector, meterRegistry.getObject()));
+    }
+
+    @Bean
+    public MeterBinder userTokenCacheMetrics(UserTokenCache userTokenCache) {
+        return registry -> {
+            Gauge.builder("aspire.user.token.cache.size", userTokenCache, UserTokenCache::size).register(registry);
+            FunctionCounter.builder("aspire.user.token.cache.requests", userTokenCache, cache -> cache.stats().getHits())
+                    .tag("result", "hit").register(registry);
+            FunctionCounter.builder("aspire.user.token.cache.requests", userTokenCache, cache -> cache.stats().getMisses())
+                    .tag("result", "miss").register(registry);
+            FunctionCounter.builder("aspire.user.token.cache.evictions", userTokenCache, cache -> cache.stats().getEvictions())
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder loanListingCacheMetrics(LoanListingCache loanListingCache) {
+        return registry -> {
+            Gauge.builder("aspire.loan.listing.cache.bytes", loanListingCache, LoanListingCache::bytes).register(registry);
+            FunctionCounter.builder("aspire.loan.listing.cache.requests", loanListingCache, cache -> cache.stats().getHits())
+                    .tag("result", "hit").register(registry);
+            FunctionCounter.builder("aspire.loan.listing.cache.requests", loanListingCache, cache -> cache.stats().getMisses())
+                    .tag("result", "miss").register(registry);
+            FunctionCounter.builder("aspire.loan.listing.cache.evictions", loanListingCache, cache -> cache.stats().getEvictions())
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder repaymentRetryMetrics(OptimisticRetryExecutor optimisticRetryExecutor) {
+        return registry -> {
+            FunctionCounter.builder("aspire.repayment.attempts", optimisticRetryExecutor, executor -> executor.stats().getAttempts())
+                    .register(registry);
+            FunctionCounter.builder("aspire.repayment.conflicts", optimisticRetryExecutor, executor -> executor.stats().getConflicts())
+                    .register(registry);
+            FunctionCounter.builder("aspire.repayment.retries.exhausted", optimisticRetryExecutor, executor -> executor.stats().getExhausted())
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder repaymentBatchMetrics(RepaymentBatcher repaymentBatcher) {
+        return registry -> {
+            Gauge.builder("aspire.repayment.batch.queued", repaymentBatcher, batcher -> batcher.stats().getQueued()).register(registry);
+            FunctionCounter.builder("aspire.repayment.batches", repaymentBatcher, batcher -> batcher.stats().getBatches())
+                    .register(registry);
+            FunctionCounter.builder("aspire.repayment.batch.commands", repaymentBatcher, batcher -> batcher.stats().getCommands())
+                    .register(registry);
+            FunctionCounter.builder("aspire.repayment.batch.replays", repaymentBatcher, batcher -> batcher.stats().getReplayedBatches())
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder accessLogMetrics(AccessLogger accessLogger) {
+        return registry -> {
+            Gauge.builder("aspire.access.log.pending", accessLogger, logger -> logger.stats().getPending()).register(registry);
+            FunctionCounter.builder("aspire.access.log.written", accessLogger, logger -> logger.stats().getWritten())
+                    .register(registry);
+            FunctionCounter.builder("aspire.access.log.dropped", accessLogger, logger -> logger.stats().getDropped())
+                    .register(registry);
+        };
+    }
+}
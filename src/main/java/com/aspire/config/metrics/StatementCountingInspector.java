@@ -0,0 +1,67 @@
+package com.aspire.config.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread, so the number of queries issued while
+ * serving a request can be measured. The statements themselves are only kept while recording is switched on.
+ */
+public class StatementCountingInspector implements StatementInspector {
+
+    private final ThreadLocal<int[]> count = ThreadLocal.withInitial(() -> new int[1]);
+    private final ThreadLocal<List<String>> recorded = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        count.get()[0]++;
+        List<String> statements = recorded.get();
+        if (statements != null) {
+            statements.add(sql);
+        }
+        return sql;
+    }
+
+    public void reset() {
+        count.get()[0] = 0;
+    }
+
+    public int count() {
+        return count.get()[0];
+    }
+
+    public void startRecording() {
+        recorded.set(Collections.synchronizedList(new ArrayList<>()));
+    }
+
+    /**
+     * @return the list this thread is recording into, or null if it is not recording
+     */
+    public List<String> recording() {
+        return recorded.get();
+    }
+
+    /**
+     * Makes this thread record into {@code statements}, typically the {@link #recording()} of the thread that
+     * handed it work, or stop recording when null.
+     */
+    public void recordInto(List<String> statements) {
+        if (statements == null) {
+            recorded.remove();
+        } else {
+            recorded.set(statements);
+        }
+    }
+
+    /**
+     * @return the statements prepared on this thread since {@link #startRecording()}
+     */
+    public List<String> stopRecording() {
+        List<String> statements = recorded.get();
+        recorded.remove();
+        return statements == null ? Collections.emptyList() : statements;
+    }
+}
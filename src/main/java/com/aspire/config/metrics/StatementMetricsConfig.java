@@ -0,0 +1,23 @@
+package com.aspire.config.metrics;
+
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registers the statement counter with Hibernate. Kept apart from {@link MetricsConfig}: the customizer is needed
+ * while the session factory is built, before the meter registry and its binders can exist.
+ */
+@Configuration
+public class StatementMetricsConfig {
+
+    @Bean
+    public StatementCountingInspector statementCountingInspector() {
+        return new StatementCountingInspector();
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer statementInspectorCustomizer(StatementCountingInspector statementCountingInspector) {
+        return properties -> properties.put("hibernate.session_factory.statement_inspector", statementCountingInspector);
+    }
+}
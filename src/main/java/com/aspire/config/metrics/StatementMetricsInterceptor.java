@@ -0,0 +1,41 @@
+package com.aspire.config.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Records how many SQL statements each handled request issued, tagged with the matched URI template.
+ */
+public class StatementMetricsInterceptor implements HandlerInterceptor {
+
+    private final StatementCountingInspector statementInspector;
+    private final MeterRegistry meterRegistry;
+
+    public StatementMetricsInterceptor(StatementCountingInspector statementInspector, MeterRegistry meterRegistry) {
+        this.statementInspector = statementInspector;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        statementInspector.reset();
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        DistributionSummary.builder("hibernate.statements.per.request")
+                .description("SQL statements issued while handling a request")
+                .tag("uri", pattern == null ? "UNKNOWN" : pattern.toString())
+                .tag("method", request.getMethod())
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry)
+                .record(statementInspector.count());
+    }
+}
@@ -1,29 +1,256 @@
 package com.aspire.controller;
 
+import com.aspire.cache.LoanListingCache;
+import com.aspire.cache.SecondLevelCache;
 import com.aspire.entities.Loan;
+import com.aspire.enums.LoanStatus;
+import com.aspire.export.ExportFormat;
+import com.aspire.export.Ledger;
+import com.aspire.export.LedgerExporter;
+import com.aspire.logging.AccessLogger;
+import com.aspire.overdue.OverdueProcessingJob;
+import com.aspire.portfolio.PortfolioAggregates;
+import com.aspire.portfolio.PortfolioReconciliationJob;
+import com.aspire.repayment.RepaymentBatcher;
+import com.aspire.request.BulkApprovalRequest;
 import com.aspire.response.BaseResponse;
+import com.aspire.retry.OptimisticRetryExecutor;
+import com.aspire.service.LoanApprovalService;
+import com.aspire.service.LoanImportService;
 import com.aspire.service.LoanService;
+import com.aspire.service.UserService;
+import com.aspire.shard.ShardRouter;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/admin")
 public class AdminController {
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
 
     @Autowired
     private LoanService loanService;
 
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private LoanApprovalService loanApprovalService;
+
+    @Autowired
+    private LoanImportService loanImportService;
+
+    @Autowired
+    private LedgerExporter ledgerExporter;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OptimisticRetryExecutor optimisticRetryExecutor;
+
+    @Autowired
+    private RepaymentBatcher repaymentBatcher;
+
+    @Autowired
+    private SecondLevelCache secondLevelCache;
+
+    @Autowired
+    private LoanListingCache loanListingCache;
+
+    @Autowired
+    private AccessLogger accessLogger;
+
+    @Autowired
+    private PortfolioAggregates portfolioAggregates;
+
+    @Autowired
+    private PortfolioReconciliationJob portfolioReconciliationJob;
+
+    @Autowired
+    private OverdueProcessingJob overdueProcessingJob;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @GetMapping("loans")
+    public ResponseEntity<BaseResponse> getLoans(@RequestParam(defaultValue = "PENDING") String status, @RequestParam(required = false) Integer limit,
+                                                 @RequestParam(required = false) String cursor) {
+        if(limit != null && limit <= 0){
+            return ResponseEntity.badRequest().body(new BaseResponse("Limit should be greater than 0", false, null));
+        }
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+        try {
+            return ResponseEntity.ok(new BaseResponse("Success", true, loanService.getLoanPageByStatus(status, cursor, pageSize)));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(new BaseResponse(ex.getMessage(), false, null));
+        }
+    }
+
     @PostMapping("loans/{loanId}/approve")
     public ResponseEntity<BaseResponse> approveLoan(@PathVariable Long loanId) {
-        Loan loan = loanService.getLoanById(loanId);
-        if(loan == null){
-            return ResponseEntity.badRequest().body(new BaseResponse("Loan not found", false, null));
+        // The loan id names its shard, so the approval runs there and nowhere else
+        return shardRouter.onShard(shardRouter.shardOfId(loanId), () -> {
+            Loan loan = loanService.getLoanById(loanId);
+            if(loan == null){
+                return ResponseEntity.badRequest().body(new BaseResponse("Loan not found", false, null));
+            }
+            return ResponseEntity.ok(new BaseResponse("Loan approved successfully", true, loanService.approveLoan(loan)));
+        });
+    }
+
+    @PostMapping("loans/approve")
+    public ResponseEntity<StreamingResponseBody> approveLoans(@RequestBody BulkApprovalRequest request) {
+        boolean hasIds = request.getLoanIds() != null && !request.getLoanIds().isEmpty();
+        if(!hasIds && request.getStatus() == null){
+            return streamedBadRequest("Loan ids or status is required");
+        }
+        if(!hasIds && !LoanStatus.PENDING.name().equals(request.getStatus())){
+            return streamedBadRequest("Only PENDING loans can be approved");
+        }
+        StreamingResponseBody body = outputStream -> loanApprovalService.approveLoans(request, result -> {
+            try {
+                outputStream.write(objectMapper.writeValueAsBytes(result));
+                outputStream.write('\n');
+                outputStream.flush();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
+    }
+
+    @PostMapping(value = "loans/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<BaseResponse> importLoans(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body) throws IOException {
+        boolean csv = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.parseMediaType("text/csv"));
+        try {
+            return ResponseEntity.ok(new BaseResponse("Import finished", true, loanImportService.importLoans(body, csv)));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(new BaseResponse(ex.getMessage(), false, null));
+        }
+    }
+
+    @GetMapping("exports/{ledger}")
+    public ResponseEntity<StreamingResponseBody> exportLedger(@PathVariable String ledger, @RequestParam(defaultValue = "csv") String format,
+                                          @RequestParam(defaultValue = "false") boolean gzip) {
+        Ledger exported;
+        ExportFormat exportFormat;
+        try {
+            exported = Ledger.valueOf(ledger.toUpperCase(Locale.ROOT));
+            exportFormat = ExportFormat.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            return streamedBadRequest("Unknown ledger or format");
+        }
+        StreamingResponseBody body = outputStream -> {
+            if(gzip){
+                try (GZIPOutputStream compressed = new GZIPOutputStream(outputStream, 64 * 1024)) {
+                    ledgerExporter.export(exported, exportFormat, compressed);
+                }
+            } else {
+                ledgerExporter.export(exported, exportFormat, outputStream);
+            }
+        };
+        String filename = ledger.toLowerCase(Locale.ROOT) + "." + format.toLowerCase(Locale.ROOT) + (gzip ? ".gz" : "");
+        MediaType contentType = gzip ? MediaType.parseMediaType("application/gzip")
+                : exportFormat == ExportFormat.CSV ? MediaType.parseMediaType("text/csv") : MediaType.parseMediaType("application/x-ndjson");
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .contentType(contentType)
+                .body(body);
+    }
+
+    @GetMapping("portfolio")
+    public ResponseEntity<BaseResponse> getPortfolioSummary() {
+        return ResponseEntity.ok(new BaseResponse("Success", true, portfolioAggregates.summary()));
+    }
+
+    @GetMapping("portfolio/users/{userId}")
+    public ResponseEntity<BaseResponse> getUserExposure(@PathVariable Long userId) {
+        return ResponseEntity.ok(new BaseResponse("Success", true, portfolioAggregates.exposure(userId)));
+    }
+
+    @PostMapping("portfolio/reconcile")
+    public ResponseEntity<BaseResponse> reconcilePortfolio() {
+        return ResponseEntity.ok(new BaseResponse("Portfolio reconciled", true, portfolioReconciliationJob.reconcile()));
+    }
+
+    @PostMapping("repayments/overdue/run")
+    public ResponseEntity<BaseResponse> runOverdueProcessing(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate asOf) {
+        try {
+            return ResponseEntity.ok(new BaseResponse("Overdue processing finished", true,
+                    overdueProcessingJob.run(asOf == null ? LocalDate.now() : asOf)));
+        } catch (IllegalStateException ex) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new BaseResponse(ex.getMessage(), false, null));
         }
-        return ResponseEntity.ok(new BaseResponse("Loan approved successfully", true, loanService.approveLoan(loan)));
+    }
+
+    @GetMapping("cache/user-tokens")
+    public ResponseEntity<BaseResponse> getUserTokenCacheStats() {
+        return ResponseEntity.ok(new BaseResponse("Success", true, userService.getTokenCacheStats()));
+    }
+
+    @GetMapping("cache/entities")
+    public ResponseEntity<BaseResponse> getEntityCacheStats() {
+        return ResponseEntity.ok(new BaseResponse("Success", true, secondLevelCache.stats()));
+    }
+
+    @GetMapping("cache/loan-listings")
+    public ResponseEntity<BaseResponse> getLoanListingCacheStats() {
+        return ResponseEntity.ok(new BaseResponse("Success", true, loanListingCache.stats()));
+    }
+
+    @GetMapping("metrics/repayment-retries")
+    public ResponseEntity<BaseResponse> getRepaymentRetryStats() {
+        return ResponseEntity.ok(new BaseResponse("Success", true, optimisticRetryExecutor.stats()));
+    }
+
+    @GetMapping("metrics/repayment-batches")
+    public ResponseEntity<BaseResponse> getRepaymentBatchStats() {
+        return ResponseEntity.ok(new BaseResponse("Success", true, repaymentBatcher.stats()));
+    }
+
+    @GetMapping("metrics/access-log")
+    public ResponseEntity<BaseResponse> getAccessLogStats() {
+        return ResponseEntity.ok(new BaseResponse("Success", true, accessLogger.stats()));
+    }
+
+    @DeleteMapping("cache/user-tokens/{userId}")
+    public ResponseEntity<BaseResponse> evictUserTokens(@PathVariable Long userId) {
+        userService.evictUser(userId);
+        return ResponseEntity.ok(new BaseResponse("User evicted from token cache", true, null));
+    }
+
+    /**
+     * Spring MVC only streams a body when the method is declared to return ResponseEntity&lt;StreamingResponseBody&gt;,
+     * so streaming endpoints write their errors through a streaming body too, in the usual envelope.
+     */
+    private ResponseEntity<StreamingResponseBody> streamedBadRequest(String message) {
+        return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON)
+                .body(outputStream -> outputStream.write(objectMapper.writeValueAsBytes(new BaseResponse(message, false, null))));
     }
 }
@@ -1,94 +1,211 @@
 package com.aspire.controller;
 
+import com.aspire.cache.LoanListingCache;
+import com.aspire.config.filter.RequestFilter;
 import com.aspire.entities.Loan;
 import com.aspire.entities.Repayment;
 import com.aspire.entities.User;
 import com.aspire.enums.LoanStatus;
 import com.aspire.enums.RepaymentStatus;
+import com.aspire.repayment.RepaymentBatcher;
 import com.aspire.request.LoanRequest;
+import com.aspire.request.LoanRequestValidator;
 import com.aspire.request.RepaymentRequest;
 import com.aspire.response.BaseResponse;
+import com.aspire.response.LoanListingVersion;
+import com.aspire.response.LoanPage;
+import com.aspire.response.LoanVersion;
+import com.aspire.retry.OptimisticRetryExecutor;
 import com.aspire.service.LoanService;
-import com.aspire.service.UserService;
+import com.aspire.shard.ShardContext;
+import com.aspire.shard.ShardRouter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.repository.query.Param;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestAttribute;
 import org.springframework.web.bind.annotation.RequestBody;
-import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.persistence.EntityNotFoundException;
-import java.math.BigDecimal;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
-import java.util.Map;
 
 @RestController
 @RequestMapping("/api/loans")
 public class LoanController {
 
-    @Autowired
-    private UserService userService;
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
 
     @Autowired
     private LoanService loanService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OptimisticRetryExecutor optimisticRetryExecutor;
+
+    @Autowired
+    private LoanListingCache loanListingCache;
+
+    @Autowired
+    private RepaymentBatcher repaymentBatcher;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
     @PostMapping
-    public ResponseEntity<BaseResponse> createLoan(@RequestHeader Map<String, String> headers, @RequestBody LoanRequest loanRequest){
-        if(loanRequest.getAmount() == null ||  loanRequest.getAmount().compareTo(BigDecimal.valueOf(0.0)) <= 0){
-            return ResponseEntity.badRequest().body(new BaseResponse("Amount should be greater than 0", false, null));
-        }
-        if( loanRequest.getTerm() <= 0){
-            return ResponseEntity.badRequest().body(new BaseResponse("Term should be greater than 0", false, null));
-        }
-        if(loanRequest.getStartDate() == null){
-            return ResponseEntity.badRequest().body(new BaseResponse("Start date is required", false, null));
-        }
-        if(loanRequest.getStartDate().isBefore(LocalDate.now().atStartOfDay().toLocalDate())){
-            return ResponseEntity.badRequest().body(new BaseResponse("Start date should not be in past", false, null));
+    public ResponseEntity<BaseResponse> createLoan(@RequestAttribute(RequestFilter.USER_ATTRIBUTE) User user, @RequestBody LoanRequest loanRequest){
+        String error = LoanRequestValidator.validate(loanRequest.getAmount(), loanRequest.getTerm(), loanRequest.getStartDate(), true);
+        if(error != null){
+            return ResponseEntity.badRequest().body(new BaseResponse(error, false, null));
         }
 
-        User user = userService.getUserByToken(headers.get("x-user-token"));
         Loan loan = loanService.createLoan(user, loanRequest.getAmount(), loanRequest.getTerm(), loanRequest.getStartDate());
         return ResponseEntity.ok(new BaseResponse("Loan created successfully",true,loan));
     }
 
     @GetMapping
-    public ResponseEntity<BaseResponse> getLoans(@RequestHeader Map<String, String> headers, @RequestParam(required = false) String status){
-        User user = userService.getUserByToken(headers.get("x-user-token"));
-        return ResponseEntity.ok(new BaseResponse("Success",true,loanService.getLoansByUser(user.getId(), status)));
+    public ResponseEntity<?> getLoans(@RequestAttribute(RequestFilter.USER_ATTRIBUTE) User user, @RequestParam(required = false) String status,
+                                      @RequestParam(defaultValue = "full") String view, @RequestParam(required = false) Integer limit,
+                                      @RequestParam(required = false) String cursor, WebRequest webRequest){
+        if(limit != null && limit <= 0){
+            return ResponseEntity.badRequest().body(new BaseResponse("Limit should be greater than 0", false, null));
+        }
+        if(limit == null && cursor == null){
+            return getListing(user.getId(), status, "summary".equals(view), webRequest);
+        }
+        if(webRequest.checkNotModified(listingETag(user.getId(), loanService.getLoanListingVersion(user.getId())))){
+            return null;
+        }
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        try {
+            LoanPage page = loanService.getLoanPage(user.getId(), status, "summary".equals(view), cursor, Math.min(pageSize, MAX_PAGE_SIZE));
+            return ResponseEntity.ok(new BaseResponse("Success",true,page));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(new BaseResponse(ex.getMessage(), false, null));
+        }
+    }
+
+    /**
+     * Full listings are served from {@link LoanListingCache} as the bytes Jackson produced for them, so a hit runs
+     * no query and no serialization.
+     */
+    private ResponseEntity<?> getListing(Long userId, String status, boolean summary, WebRequest webRequest){
+        LoanListingCache.CachedListing cached = loanListingCache.get(userId, status, summary);
+        if(cached != null){
+            if(webRequest.checkNotModified(cached.getETag())){
+                return null;
+            }
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(cached.getBody());
+        }
+
+        long generation = loanListingCache.generation(userId);
+        String etag = listingETag(userId, loanService.getLoanListingVersion(userId));
+        if(webRequest.checkNotModified(etag)){
+            return null;
+        }
+        Object loans = summary ? loanService.getLoanSummariesByUser(userId, status) : loanService.getLoansByUser(userId, status);
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(new BaseResponse("Success",true,loans));
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        loanListingCache.put(userId, status, summary, generation, etag, body);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    @GetMapping(value = "/stream", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamLoans(@RequestAttribute(RequestFilter.USER_ATTRIBUTE) User user, @RequestParam(required = false) String status){
+        Long userId = user.getId();
+        // The body is written from another thread, which has to read from the user's shard as well
+        int shard = ShardContext.current();
+        StreamingResponseBody body = outputStream -> ShardContext.call(shard, () -> {
+            loanService.streamLoanSummaries(userId, status, summary -> {
+                try {
+                    outputStream.write(objectMapper.writeValueAsBytes(summary));
+                    outputStream.write('\n');
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+            return null;
+        });
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
     }
 
     @GetMapping("/{loanId}")
-    public ResponseEntity<BaseResponse> getLoans(@RequestHeader Map<String, String> headers, @PathVariable Long loanId){
-        User user = userService.getUserByToken(headers.get("x-user-token"));
-        Loan loan = loanService.getLoanById(loanId);
-        if(loan == null){
+    public ResponseEntity<BaseResponse> getLoans(@RequestAttribute(RequestFilter.USER_ATTRIBUTE) User user, @PathVariable Long loanId, WebRequest webRequest){
+        // Only the user's own shard is read, so a loan on another shard is someone else's
+        if(shardRouter.shardOfId(loanId) != shardRouter.shardOfUser(user.getId())){
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(new BaseResponse("Loan does not belong to user", false, null));
+        }
+        LoanVersion version = loanService.getLoanVersion(loanId);
+        if(version == null){
             return ResponseEntity.badRequest().body(new BaseResponse("Loan not found", false, null));
         }
-        if(!user.getId().equals(loan.getUser().getId())){
+        if(!user.getId().equals(version.getUserId())){
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body(new BaseResponse("Loan does not belong to user", false, null));
         }
+        if(webRequest.checkNotModified(loanETag(loanId, version))){
+            return null;
+        }
+        Loan loan = loanService.getLoanById(loanId);
+        if(loan == null){
+            return ResponseEntity.badRequest().body(new BaseResponse("Loan not found", false, null));
+        }
         return ResponseEntity.ok(new BaseResponse("Success",true,loan));
     }
 
+    /**
+     * The version is read before the loan, so a write in between can only make the tag older than the body, which
+     * costs the client one extra full response and never hides a change.
+     */
+    static String loanETag(Long loanId, LoanVersion version) {
+        return "\"loan-" + loanId + "-" + version.getVersion() + daySuffix(Boolean.TRUE.equals(version.getVirtualSchedule())) + "\"";
+    }
+
+    static String listingETag(Long userId, LoanListingVersion version) {
+        return "\"loans-" + userId + "-" + version.getLoans() + "-" + version.getVersions()
+                + daySuffix(version.getVirtualSchedules() != null && version.getVirtualSchedules() > 0) + "\"";
+    }
+
+    /**
+     * Computed schedules turn installments OVERDUE as days pass without any write, so their tags also carry the date.
+     */
+    private static String daySuffix(boolean virtualSchedule) {
+        return virtualSchedule ? "-" + LocalDate.now().toEpochDay() : "";
+    }
+
     @PostMapping("/repayments/{repaymentId}")
-    public ResponseEntity<BaseResponse> addRepayment(@PathVariable Long repaymentId, @RequestBody RepaymentRequest repaymentRequest, @RequestHeader Map<String, String> headers) {
+    public ResponseEntity<BaseResponse> addRepayment(@PathVariable Long repaymentId, @RequestBody RepaymentRequest repaymentRequest, @RequestAttribute(RequestFilter.USER_ATTRIBUTE) User user) {
 
-        if(repaymentRequest.getAmount().compareTo(BigDecimal.valueOf(0.0)) <= 0){
+        if(repaymentRequest.getAmount().signum() <= 0){
             return ResponseEntity.badRequest().body(new BaseResponse("Amount should be greater than 0", false, null));
         }
 
+        if(shardRouter.shardOfId(repaymentId) != shardRouter.shardOfUser(user.getId())){
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(new BaseResponse("Repayment does not belong to user", false, null));
+        }
         Repayment repayment = loanService.getRepaymentById(repaymentId);
         if(repayment == null){
             return ResponseEntity.badRequest().body(new BaseResponse("Repayment not found", false, null));
         }
-        User user = userService.getUserByToken(headers.get("x-user-token"));
         if(!user.getId().equals(repayment.getLoan().getUser().getId())){
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body(new BaseResponse("Repayment does not belong to user", false, null));
         }
@@ -100,13 +217,24 @@ public class LoanController {
         if(repayment.getLoan().getPendingAmount().compareTo(repaymentRequest.getAmount()) < 0){
             return ResponseEntity.badRequest().body(new BaseResponse("Amount is greater than total pending amount", false, null));
         }
+        Repayment repaymentPaid;
         try{
-            Repayment repaymentPaid = loanService.addRepayment(repayment, repaymentRequest.getAmount());
+            if(repaymentBatcher.isEnabled()){
+                repaymentPaid = repaymentBatcher.addRepayment(repaymentId, repaymentRequest.getAmount());
+            }
+            else{
+                // Each attempt reloads the repayment so a retry after an optimistic lock conflict sees fresh state
+                repaymentPaid = optimisticRetryExecutor.execute(() ->
+                        loanService.addRepayment(loanService.getRepaymentById(repaymentId), repaymentRequest.getAmount()));
+            }
         }
         catch (IllegalArgumentException ex){
             return ResponseEntity.badRequest().body(new BaseResponse(ex.getMessage(), false, null));
         }
-        return ResponseEntity.ok(new BaseResponse("Repayment added successfully", true, repayment));
+        catch (OptimisticLockingFailureException ex){
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new BaseResponse("Repayment conflicted with a concurrent update, please retry", false, null));
+        }
+        return ResponseEntity.ok(new BaseResponse("Repayment added successfully", true, repaymentPaid));
     }
 
 
@@ -1,38 +1,80 @@
 package com.aspire.entities;
 
 import com.aspire.enums.LoanStatus;
+import com.aspire.money.Money;
 import javax.persistence.*;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 
 @Entity
 @Data
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Loan {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "loan_seq")
+    @GenericGenerator(name = "loan_seq", strategy = "com.aspire.shard.ShardedSequenceGenerator", parameters = {
+            @Parameter(name = "sequence_name", value = "loan_seq"),
+            @Parameter(name = "increment_size", value = "50")})
     private Long id;
 
-    private BigDecimal amount;
-    private BigDecimal pendingAmount;
+    private Money amount;
+    private Money pendingAmount;
     private int term;
     private LocalDate startDate;
 
     @Enumerated(EnumType.STRING)
     private LoanStatus status;
 
+    /** Set while the loan has an installment past its due date. */
+    private boolean overdue;
+
+    /** Set when the loan was approved without materializing its schedule; see {@code VirtualSchedule}. */
+    @JsonIgnore
+    private boolean virtualSchedule;
+
+    @JsonIgnore
+    @Version
+    private Long version;
+
+    @JsonIgnore
+    private Integer unpaidInstallments;
+
+    @JsonIgnore
+    private Integer firstUnpaidInstallment;
+
     @JsonIgnore
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
 
     @JsonInclude(JsonInclude.Include.NON_NULL)
     @OneToMany(mappedBy = "loan", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+    @OrderBy("dueDate ASC, id ASC")
     private List<Repayment> repayments;
+
+    /** The computed installments of a loan with a virtual schedule, once they have been attached. */
+    @Transient
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private List<Repayment> virtualRepayments;
+
+    public List<Repayment> getRepayments() {
+        return virtualRepayments != null ? virtualRepayments : repayments;
+    }
 }
@@ -0,0 +1,33 @@
+package com.aspire.entities;
+
+import com.aspire.money.Money;
+import lombok.Data;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+/**
+ * A payment against an installment of a loan with a virtual schedule. The installments themselves are not
+ * stored; their state is rebuilt by replaying the payments of the loan in order.
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_loan_payment_loan_id", columnList = "loan_id"))
+@Data
+public class LoanPayment {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "loan_payment_seq")
+    @GenericGenerator(name = "loan_payment_seq", strategy = "com.aspire.shard.ShardedSequenceGenerator", parameters = {
+            @Parameter(name = "sequence_name", value = "loan_payment_seq"),
+            @Parameter(name = "increment_size", value = "50")})
+    private Long id;
+
+    @Column(name = "loan_id")
+    private Long loanId;
+
+    private int installment;
+    private Money amount;
+    private Instant paidAt;
+}
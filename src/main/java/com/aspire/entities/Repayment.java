@@ -1,30 +1,43 @@
 package com.aspire.entities;
 
 import com.aspire.enums.RepaymentStatus;
+import com.aspire.money.Money;
 import javax.persistence.*;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import lombok.Data;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
 
 @Entity
+@Table(indexes = @Index(name = "idx_repayment_status_due_date", columnList = "status, dueDate"))
 @Data
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Repayment {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "repayment_seq")
+    @GenericGenerator(name = "repayment_seq", strategy = "com.aspire.shard.ShardedSequenceGenerator", parameters = {
+            @Parameter(name = "sequence_name", value = "repayment_seq"),
+            @Parameter(name = "increment_size", value = "50")})
     private Long id;
 
     private LocalDate dueDate;
-    private BigDecimal amount;
-    private BigDecimal pendingAmount;
+    private Money amount;
+    private Money pendingAmount;
 
     @Enumerated(EnumType.STRING)
     private RepaymentStatus status;
 
+    @JsonIgnore
+    @Version
+    private Long version;
+
     @JsonIgnore
     @ManyToOne(fetch = FetchType.EAGER)
     @JoinColumn(name = "loan_id")
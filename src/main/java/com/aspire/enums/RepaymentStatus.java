@@ -1,5 +1,5 @@
 package com.aspire.enums;
 
 public enum RepaymentStatus {
-    PENDING, PAID
+    PENDING, OVERDUE, PAID
 }
@@ -0,0 +1,5 @@
+package com.aspire.export;
+
+public enum Ledger {
+    LOANS, REPAYMENTS, PAYMENTS
+}
@@ -0,0 +1,185 @@
+package com.aspire.export;
+
+import com.aspire.entities.Loan;
+import com.aspire.entities.LoanPayment;
+import com.aspire.entities.Repayment;
+import com.aspire.repo.LoanPaymentRepository;
+import com.aspire.repo.LoanRepository;
+import com.aspire.repo.RepaymentRepository;
+import com.aspire.shard.ShardRouter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Writes every loan, repayment or virtual-schedule payment as CSV or NDJSON. Rows come from a forward-only, read-only
+ * cursor and the persistence context is cleared every {@code aspire.export.clear-interval} rows, so memory use does
+ * not depend on the size of the ledger. Shards are written one after the other, each from its own cursor in its
+ * own transaction, so rows are ordered by id within a shard only.
+ */
+@Component
+public class LedgerExporter {
+
+    private static final Logger log = LoggerFactory.getLogger(LedgerExporter.class);
+
+    private static final String[] LOAN_COLUMNS = {"id", "userId", "amount", "pendingAmount", "term", "startDate", "status", "overdue"};
+
+    private static final String[] REPAYMENT_COLUMNS = {"id", "loanId", "userId", "dueDate", "amount", "pendingAmount", "status"};
+
+    private static final String[] PAYMENT_COLUMNS = {"id", "loanId", "installment", "amount", "paidAt"};
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private RepaymentRepository repaymentRepository;
+
+    @Autowired
+    private LoanPaymentRepository loanPaymentRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${aspire.export.clear-interval:1000}")
+    private int clearInterval;
+
+    /**
+     * @return the number of rows written
+     */
+    public long export(Ledger ledger, ExportFormat format, OutputStream output) throws IOException {
+        long start = System.nanoTime();
+        String[] columns = ledger == Ledger.LOANS ? LOAN_COLUMNS : ledger == Ledger.REPAYMENTS ? REPAYMENT_COLUMNS : PAYMENT_COLUMNS;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 64 * 1024);
+        JsonGenerator generator = null;
+        if (format == ExportFormat.CSV) {
+            writer.write(String.join(",", columns));
+            writer.write('\n');
+        } else {
+            generator = objectMapper.getFactory().createGenerator(writer);
+        }
+
+        long rows = 0;
+        JsonGenerator json = generator;
+        try {
+            for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+                rows += shardRouter.onShard(shard, () -> transactionTemplate.execute(status -> writeShard(ledger, writer, json)));
+            }
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+
+        if (generator != null) {
+            generator.flush();
+        }
+        writer.flush();
+        log.info("Exported {} {} rows as {} in {} ms", rows, ledger, format, (System.nanoTime() - start) / 1_000_000);
+        return rows;
+    }
+
+    private long writeShard(Ledger ledger, Writer writer, JsonGenerator generator) {
+        try {
+            if (ledger == Ledger.LOANS) {
+                try (Stream<Loan> loans = loanRepository.streamLedger()) {
+                    return write(loans.iterator(), LOAN_COLUMNS, this::loanValues, writer, generator);
+                }
+            } else if (ledger == Ledger.REPAYMENTS) {
+                try (Stream<Repayment> repayments = repaymentRepository.streamLedger()) {
+                    return write(repayments.iterator(), REPAYMENT_COLUMNS, this::repaymentValues, writer, generator);
+                }
+            } else {
+                try (Stream<LoanPayment> payments = loanPaymentRepository.streamLedger()) {
+                    return write(payments.iterator(), PAYMENT_COLUMNS, this::paymentValues, writer, generator);
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private <T> long write(Iterator<T> rows, String[] columns, Function<T, Object[]> values, Writer writer,
+                           JsonGenerator generator) throws IOException {
+        long count = 0;
+        while (rows.hasNext()) {
+            Object[] row = values.apply(rows.next());
+            if (generator == null) {
+                writeCsv(writer, row);
+            } else {
+                writeJson(generator, columns, row);
+            }
+            if (++count % clearInterval == 0) {
+                entityManager.clear();
+            }
+        }
+        return count;
+    }
+
+    private void writeCsv(Writer writer, Object[] row) throws IOException {
+        for (int i = 0; i < row.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            if (row[i] != null) {
+                writer.write(row[i] instanceof Enum ? ((Enum<?>) row[i]).name() : row[i].toString());
+            }
+        }
+        writer.write('\n');
+    }
+
+    private void writeJson(JsonGenerator generator, String[] columns, Object[] row) throws IOException {
+        generator.writeStartObject();
+        for (int i = 0; i < columns.length; i++) {
+            generator.writeObjectField(columns[i], row[i]);
+        }
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    private Object[] loanValues(Loan loan) {
+        return new Object[]{loan.getId(), userId(loan), loan.getAmount(), loan.getPendingAmount(), loan.getTerm(),
+                loan.getStartDate(), loan.getStatus(), loan.isOverdue()};
+    }
+
+    private Object[] repaymentValues(Repayment repayment) {
+        Loan loan = repayment.getLoan();
+        return new Object[]{repayment.getId(), loan == null ? null : loan.getId(), loan == null ? null : userId(loan),
+                repayment.getDueDate(), repayment.getAmount(), repayment.getPendingAmount(), repayment.getStatus()};
+    }
+
+    private Object[] paymentValues(LoanPayment payment) {
+        return new Object[]{payment.getId(), payment.getLoanId(), payment.getInstallment(), payment.getAmount(), payment.getPaidAt()};
+    }
+
+    /**
+     * Reads the id from the lazy user proxy, which does not load the user.
+     */
+    private Long userId(Loan loan) {
+        return loan.getUser() == null ? null : loan.getUser().getId();
+    }
+}
@@ -0,0 +1,15 @@
+package com.aspire.logging;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class AccessLogStats {
+
+    private int capacity;
+    private long pending;
+    private long written;
+    private long dropped;
+    private long blocked;
+}
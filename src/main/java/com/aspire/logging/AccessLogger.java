@@ -0,0 +1,191 @@
+package com.aspire.logging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Writes one access log line per request without doing any I/O on the request thread. Request threads claim a
+ * slot in a fixed ring of preallocated events with a single CAS and fill it in place; a background thread formats
+ * and writes the lines. When the ring is full, events are dropped or the caller waits, depending on the
+ * configured {@link OverflowPolicy}.
+ */
+@Component
+public class AccessLogger {
+
+    private static final Logger log = LoggerFactory.getLogger("com.aspire.access");
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Slot[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final OverflowPolicy overflowPolicy;
+    private final Consumer<String> writer;
+
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder blocked = new LongAdder();
+
+    private volatile boolean running;
+    private Thread drainThread;
+
+    @Autowired
+    public AccessLogger(@Value("${aspire.access-log.capacity:8192}") int capacity,
+                        @Value("${aspire.access-log.overflow-policy:DROP}") OverflowPolicy overflowPolicy) {
+        this(capacity, overflowPolicy, log::info);
+    }
+
+    AccessLogger(int capacity, OverflowPolicy overflowPolicy, Consumer<String> writer) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity should be greater than 0");
+        }
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new Slot[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+            sequences.set(i, i);
+        }
+        this.mask = size - 1;
+        this.overflowPolicy = overflowPolicy;
+        this.writer = writer;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        drainThread = new Thread(this::drainLoop, "access-log-writer");
+        drainThread.setDaemon(true);
+        drainThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (drainThread != null) {
+            LockSupport.unpark(drainThread);
+            drainThread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        drain();
+    }
+
+    /**
+     * Records a handled request. {@code userId} may be null for unauthenticated requests.
+     *
+     * @return false if the event was dropped because the buffer was full
+     */
+    public boolean log(String method, String uri, Long userId, int status, long latencyNanos) {
+        long position = claim();
+        if (position < 0) {
+            dropped.increment();
+            return false;
+        }
+        int index = (int) (position & mask);
+        Slot slot = slots[index];
+        slot.method = method;
+        slot.uri = uri;
+        slot.userId = userId == null ? -1 : userId;
+        slot.status = status;
+        slot.latencyNanos = latencyNanos;
+        sequences.lazySet(index, position + 1);
+        return true;
+    }
+
+    public AccessLogStats stats() {
+        return new AccessLogStats(slots.length, Math.max(0, tail.get() - head), written.sum(), dropped.sum(), blocked.sum());
+    }
+
+    private long claim() {
+        boolean waited = false;
+        while (true) {
+            long position = tail.get();
+            long diff = sequences.get((int) (position & mask)) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    return position;
+                }
+            } else if (diff < 0) {
+                if (overflowPolicy == OverflowPolicy.DROP || !running) {
+                    return -1;
+                }
+                if (!waited) {
+                    blocked.increment();
+                    waited = true;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Writes every published event. Only the writer thread, or {@link #stop()} after it has exited, may call this.
+     *
+     * @return the number of events written
+     */
+    int drain() {
+        StringBuilder line = new StringBuilder(128);
+        int count = 0;
+        long position = head;
+        while (true) {
+            int index = (int) (position & mask);
+            if (sequences.get(index) != position + 1) {
+                break;
+            }
+            Slot slot = slots[index];
+            line.setLength(0);
+            line.append("method=").append(slot.method)
+                    .append(" uri=").append(slot.uri)
+                    .append(" user=");
+            if (slot.userId < 0) {
+                line.append('-');
+            } else {
+                line.append(slot.userId);
+            }
+            line.append(" status=").append(slot.status)
+                    .append(" latency_us=").append(TimeUnit.NANOSECONDS.toMicros(slot.latencyNanos));
+            slot.method = null;
+            slot.uri = null;
+            position++;
+            sequences.lazySet(index, position + mask);
+            head = position;
+            count++;
+            try {
+                writer.accept(line.toString());
+            } catch (RuntimeException ex) {
+                // a broken appender must not stop the writer thread
+            }
+        }
+        written.add(count);
+        return count;
+    }
+
+    private void drainLoop() {
+        while (running) {
+            if (drain() == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    private static final class Slot {
+        String method;
+        String uri;
+        long userId;
+        int status;
+        long latencyNanos;
+    }
+}
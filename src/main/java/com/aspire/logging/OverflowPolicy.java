@@ -0,0 +1,11 @@
+package com.aspire.logging;
+
+/**
+ * What a request thread does when the access log buffer is full.
+ */
+public enum OverflowPolicy {
+    /** Discard the event and count it as dropped. */
+    DROP,
+    /** Wait for the writer thread to free a slot. */
+    BLOCK
+}
@@ -0,0 +1,151 @@
+package com.aspire.money;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * An immutable amount of money held as a {@code long} of minor units (cents). Addition, subtraction and
+ * multiplication are exact and throw {@link ArithmeticException} on overflow; division and conversion from
+ * decimals with more than two places take an explicit {@link RoundingMode}.
+ * <p>
+ * Stored as BIGINT by {@link MoneyConverter} and written to JSON as a decimal number, so the API shape is the
+ * same as with {@link BigDecimal} amounts. Serializable so the second-level cache can hold copies of entity state.
+ */
+public final class Money implements Comparable<Money>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int SCALE = 2;
+
+    public static final Money ZERO = new Money(0);
+
+    private static final long MINOR_PER_MAJOR = 100;
+
+    private final long minorUnits;
+
+    private Money(long minorUnits) {
+        this.minorUnits = minorUnits;
+    }
+
+    public static Money ofMinor(long minorUnits) {
+        return minorUnits == 0 ? ZERO : new Money(minorUnits);
+    }
+
+    public static Money ofMajor(long majorUnits) {
+        return ofMinor(Math.multiplyExact(majorUnits, MINOR_PER_MAJOR));
+    }
+
+    /**
+     * @throws ArithmeticException if {@code amount} has more than two decimal places or does not fit
+     */
+    @JsonCreator
+    public static Money of(BigDecimal amount) {
+        return of(amount, RoundingMode.UNNECESSARY);
+    }
+
+    public static Money of(BigDecimal amount, RoundingMode rounding) {
+        return ofMinor(amount.setScale(SCALE, rounding).unscaledValue().longValueExact());
+    }
+
+    public static Money parse(String amount) {
+        return of(new BigDecimal(amount));
+    }
+
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    public Money plus(Money other) {
+        return ofMinor(Math.addExact(minorUnits, other.minorUnits));
+    }
+
+    public Money minus(Money other) {
+        return ofMinor(Math.subtractExact(minorUnits, other.minorUnits));
+    }
+
+    public Money times(long multiplier) {
+        return ofMinor(Math.multiplyExact(minorUnits, multiplier));
+    }
+
+    /**
+     * Divides to whole minor units, rounding like {@link BigDecimal#divide(BigDecimal, RoundingMode)} does at
+     * scale 2.
+     */
+    public Money divide(long divisor, RoundingMode rounding) {
+        long quotient = minorUnits / divisor;
+        long remainder = minorUnits % divisor;
+        if (remainder == 0) {
+            return ofMinor(quotient);
+        }
+        int sign = (minorUnits ^ divisor) < 0 ? -1 : 1;
+        boolean away;
+        switch (rounding) {
+            case UNNECESSARY:
+                throw new ArithmeticException("Rounding necessary");
+            case DOWN:
+                away = false;
+                break;
+            case UP:
+                away = true;
+                break;
+            case FLOOR:
+                away = sign < 0;
+                break;
+            case CEILING:
+                away = sign > 0;
+                break;
+            default:
+                long absRemainder = Math.abs(remainder);
+                int half = Long.compare(absRemainder, Math.abs(divisor) - absRemainder);
+                if (rounding == RoundingMode.HALF_UP) {
+                    away = half >= 0;
+                } else if (rounding == RoundingMode.HALF_DOWN) {
+                    away = half > 0;
+                } else {
+                    away = half > 0 || (half == 0 && (quotient & 1) != 0);
+                }
+        }
+        return ofMinor(away ? quotient + sign : quotient);
+    }
+
+    public Money min(Money other) {
+        return minorUnits <= other.minorUnits ? this : other;
+    }
+
+    public Money negate() {
+        return ofMinor(Math.negateExact(minorUnits));
+    }
+
+    public int signum() {
+        return Long.signum(minorUnits);
+    }
+
+    @JsonValue
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Money && ((Money) other).minorUnits == minorUnits;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minorUnits);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
@@ -0,0 +1,113 @@
+package com.aspire.overdue;
+
+import com.aspire.cache.LoanListingCache;
+import com.aspire.repo.LoanRepository;
+import com.aspire.repo.RepaymentRepository;
+import com.aspire.shard.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Marks pending installments past their due date as OVERDUE and flags their loans, without loading entities.
+ * <p>
+ * Each chunk reads the next ids from the {@code (status, due_date)} index and updates them with two bulk
+ * statements in its own transaction, which also invalidates the cached listings of the installments' owners.
+ * Updated rows leave the PENDING range, so the next chunk's index scan starts where the previous one stopped, and
+ * a run interrupted part-way resumes from the same place when it is started again. Shards are processed in parallel, each with its own chunks.
+ */
+@Component
+public class OverdueProcessingJob {
+
+    private static final Logger log = LoggerFactory.getLogger(OverdueProcessingJob.class);
+
+    @Autowired
+    private RepaymentRepository repaymentRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private LoanListingCache loanListingCache;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Value("${aspire.overdue.chunk-size:1000}")
+    private int chunkSize;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Scheduled(cron = "${aspire.overdue.cron:0 0 1 * * *}")
+    public void scheduledRun() {
+        run(LocalDate.now());
+    }
+
+    /**
+     * Marks every pending installment due before {@code asOf}.
+     *
+     * @throws IllegalStateException if a run is already in progress
+     */
+    public OverdueRunReport run(LocalDate asOf) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Overdue processing is already running");
+        }
+        try {
+            long start = System.nanoTime();
+            int chunks = 0;
+            long installments = 0;
+            long loans = 0;
+            for (long[] processed : shardRouter.fanOut(shard -> runShard(shard, asOf))) {
+                chunks += processed[0];
+                installments += processed[1];
+                loans += processed[2];
+            }
+            OverdueRunReport report = new OverdueRunReport(asOf, chunks, installments, loans, (System.nanoTime() - start) / 1_000_000);
+            log.info("Overdue processing as of {} finished: {}", asOf, report);
+            return report;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * @return the chunks, installments and loans processed on the shard
+     */
+    private long[] runShard(int shard, LocalDate asOf) {
+        long[] processed = new long[3];
+        while (true) {
+            List<Long> ids = repaymentRepository.findPendingIdsDueBefore(asOf, PageRequest.of(0, chunkSize));
+            if (ids.isEmpty()) {
+                return processed;
+            }
+            long chunkStart = System.nanoTime();
+            int[] updated = transactionTemplate.execute(status -> {
+                // Only the owners of the chunk's installments lose their cached listings, once the chunk commits
+                for (Long userId : repaymentRepository.findOwnerIds(ids)) {
+                    loanListingCache.invalidateUserAfterCommit(userId);
+                }
+                int marked = repaymentRepository.markOverdue(ids);
+                loanRepository.touchOverdueByRepaymentIds(ids);
+                return new int[]{marked, loanRepository.markOverdueByRepaymentIds(ids)};
+            });
+            long chunkMillis = (System.nanoTime() - chunkStart) / 1_000_000;
+            processed[0]++;
+            processed[1] += updated[0];
+            processed[2] += updated[1];
+            log.info("Overdue chunk {} on shard {}: {} installments, {} loans in {} ms ({} installments/s)",
+                    processed[0], shard, updated[0], updated[1], chunkMillis, updated[0] * 1000L / Math.max(1, chunkMillis));
+        }
+    }
+}
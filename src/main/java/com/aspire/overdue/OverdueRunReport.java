@@ -0,0 +1,20 @@
+package com.aspire.overdue;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+public class OverdueRunReport {
+    private LocalDate asOf;
+    private int chunks;
+    private long installments;
+    private long loans;
+    private long elapsedMillis;
+
+    public double getInstallmentsPerSecond() {
+        return installments * 1000.0 / Math.max(1, elapsedMillis);
+    }
+}
@@ -0,0 +1,145 @@
+package com.aspire.portfolio;
+
+import com.aspire.entities.Loan;
+import com.aspire.enums.LoanStatus;
+import com.aspire.money.Money;
+import com.aspire.response.PortfolioSummary;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Portfolio figures kept up to date as loans change, so they can be read without scanning the loan table.
+ * Changes made inside a transaction are applied only after it commits, so a rolled back write never shows up.
+ * {@link PortfolioReconciliationJob} periodically rebuilds the figures from the database to correct any drift.
+ * <p>
+ * Applying a change and swapping in rebuilt totals exclude each other through a read/write lock; changes still
+ * apply concurrently with one another. A change counts as in flight from the moment it is registered until it has
+ * been applied or rolled back, and rebuilt totals are only swapped in while none are, because such a change may
+ * already be visible to the rebuild queries without having been applied yet.
+ */
+@Component
+public class PortfolioAggregates {
+
+    /** Statuses whose pending amount is owed by the borrower. */
+    static final Set<LoanStatus> EXPOSED = EnumSet.of(LoanStatus.APPROVED);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong updates = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile PortfolioTotals totals = new PortfolioTotals();
+
+    private volatile Instant lastReconciledAt;
+    private volatile List<String> lastDrift = Collections.emptyList();
+
+    /**
+     * Records that {@code loan} moved from {@code from} and {@code pendingBefore} to its current status and pending
+     * amount. {@code from} is null for a new loan.
+     */
+    public void recordTransition(Loan loan, LoanStatus from, Money pendingBefore) {
+        recordTransition(loan.getUser() == null ? null : loan.getUser().getId(), from, pendingBefore,
+                loan.getStatus(), loan.getPendingAmount());
+    }
+
+    /**
+     * Same as {@link #recordTransition(Loan, LoanStatus, Money)} for changes made without updating the entity,
+     * such as bulk updates.
+     */
+    public void recordTransition(Long userId, LoanStatus from, Money pendingBefore, LoanStatus to, Money pendingAfter) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            inFlight.incrementAndGet();
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    try {
+                        if (status == STATUS_COMMITTED) {
+                            apply(userId, from, pendingBefore, to, pendingAfter);
+                        }
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                }
+            });
+        } else {
+            apply(userId, from, pendingBefore, to, pendingAfter);
+        }
+    }
+
+    public PortfolioSummary summary() {
+        PortfolioTotals current = totals;
+        Map<LoanStatus, Money> pendingAmounts = current.pendingAmounts();
+        Money outstanding = Money.ZERO;
+        for (LoanStatus status : EXPOSED) {
+            outstanding = outstanding.plus(pendingAmounts.get(status));
+        }
+        return new PortfolioSummary(current.counts(), pendingAmounts, outstanding, current.exposedUsers(),
+                lastReconciledAt, lastDrift);
+    }
+
+    public Money exposure(Long userId) {
+        return totals.exposure(userId);
+    }
+
+    long updateCount() {
+        return updates.get();
+    }
+
+    /**
+     * Swaps in totals rebuilt from the database and remembers how far the maintained figures had drifted. Nothing
+     * is replaced if a change was applied after {@code updatesBefore} was read or is still in flight, since the
+     * rebuilt totals could then miss it or count it twice.
+     *
+     * @return the figures that had drifted, or null if the totals were left alone
+     */
+    List<String> replace(PortfolioTotals rebuilt, long updatesBefore) {
+        lock.writeLock().lock();
+        try {
+            if (inFlight.get() != 0 || updates.get() != updatesBefore) {
+                return null;
+            }
+            List<String> drift = totals.driftFrom(rebuilt);
+            totals = rebuilt;
+            lastDrift = drift;
+            lastReconciledAt = Instant.now();
+            return drift;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(Long userId, LoanStatus from, Money pendingBefore, LoanStatus to, Money pendingAfter) {
+        lock.readLock().lock();
+        try {
+            applyTo(totals, userId, from, pendingBefore, to, pendingAfter);
+            updates.incrementAndGet();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void applyTo(PortfolioTotals current, Long userId, LoanStatus from, Money pendingBefore,
+                                LoanStatus to, Money pendingAfter) {
+        if (from != null) {
+            current.addLoans(from, -1, pendingBefore.negate());
+            if (EXPOSED.contains(from) && userId != null) {
+                current.addExposure(userId, pendingBefore.negate());
+            }
+        }
+        current.addLoans(to, 1, pendingAfter);
+        if (EXPOSED.contains(to) && userId != null) {
+            current.addExposure(userId, pendingAfter);
+        }
+    }
+}
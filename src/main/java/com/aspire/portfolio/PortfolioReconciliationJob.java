@@ -0,0 +1,89 @@
+package com.aspire.portfolio;
+
+import com.aspire.enums.LoanStatus;
+import com.aspire.money.Money;
+import com.aspire.repo.LoanRepository;
+import com.aspire.shard.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Rebuilds the portfolio figures from two group-by queries and replaces the incrementally maintained ones.
+ * If loans change while the queries run, or a change is still between its commit and being applied, the rebuilt
+ * figures cannot be trusted, so the rebuild is retried a few times before giving up until the next run. Each shard
+ * is summed in parallel in a transaction of its own.
+ */
+@Component
+public class PortfolioReconciliationJob {
+
+    private static final Logger log = LoggerFactory.getLogger(PortfolioReconciliationJob.class);
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private PortfolioAggregates portfolioAggregates;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Scheduled(initialDelayString = "${aspire.portfolio.reconcile-initial-delay:PT0S}",
+            fixedDelayString = "${aspire.portfolio.reconcile-interval:PT5M}")
+    public void scheduledReconcile() {
+        reconcile();
+    }
+
+    /**
+     * @return the figures that had drifted, empty if everything matched
+     */
+    public List<String> reconcile() {
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            long updatesBefore = portfolioAggregates.updateCount();
+            PortfolioTotals rebuilt = rebuild();
+            List<String> drift = portfolioAggregates.replace(rebuilt, updatesBefore);
+            if (drift != null) {
+                if (!drift.isEmpty()) {
+                    log.warn("Portfolio aggregates drifted from the database: {}", drift);
+                }
+                return drift;
+            }
+        }
+        log.info("Portfolio reconciliation skipped, loans kept changing during {} attempts", MAX_ATTEMPTS);
+        return portfolioAggregates.summary().getLastDrift();
+    }
+
+    /**
+     * Shards add into the same totals; a user's loans are all on one shard, so no exposure is summed twice.
+     */
+    private PortfolioTotals rebuild() {
+        PortfolioTotals totals = new PortfolioTotals();
+        shardRouter.fanOut(shard -> transactionTemplate.execute(status -> {
+            for (Object[] row : loanRepository.sumByStatus()) {
+                totals.addLoans((LoanStatus) row[0], ((Number) row[1]).longValue(), minorUnits(row[2]));
+            }
+            for (Object[] row : loanRepository.sumPendingByUser(PortfolioAggregates.EXPOSED)) {
+                totals.addExposure(((Number) row[0]).longValue(), minorUnits(row[1]));
+            }
+            return null;
+        }));
+        return totals;
+    }
+
+    /**
+     * Sums over the BIGINT minor-unit columns come back as plain numbers, or null when there are no rows.
+     */
+    private static Money minorUnits(Object sum) {
+        return sum == null ? Money.ZERO : Money.ofMinor(((Number) sum).longValue());
+    }
+}
@@ -0,0 +1,95 @@
+package com.aspire.portfolio;
+
+import com.aspire.enums.LoanStatus;
+import com.aspire.money.Money;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Loan counts and pending amounts by status, and pending amounts of exposed loans by user. Updates are applied
+ * with per-key atomic operations so concurrent commits for different users do not contend. Amounts are kept in
+ * minor units.
+ */
+class PortfolioTotals {
+
+    private final AtomicLongArray counts = new AtomicLongArray(LoanStatus.values().length);
+    private final AtomicLongArray pendingAmounts = new AtomicLongArray(LoanStatus.values().length);
+    private final ConcurrentHashMap<Long, Long> exposures = new ConcurrentHashMap<>();
+
+    void addLoans(LoanStatus status, long count, Money pendingAmount) {
+        counts.addAndGet(status.ordinal(), count);
+        pendingAmounts.addAndGet(status.ordinal(), pendingAmount.getMinorUnits());
+    }
+
+    void addExposure(Long userId, Money pendingAmount) {
+        exposures.merge(userId, pendingAmount.getMinorUnits(), PortfolioTotals::sum);
+    }
+
+    Map<LoanStatus, Long> counts() {
+        Map<LoanStatus, Long> result = new EnumMap<>(LoanStatus.class);
+        for (LoanStatus status : LoanStatus.values()) {
+            result.put(status, counts.get(status.ordinal()));
+        }
+        return result;
+    }
+
+    Map<LoanStatus, Money> pendingAmounts() {
+        Map<LoanStatus, Money> result = new EnumMap<>(LoanStatus.class);
+        for (LoanStatus status : LoanStatus.values()) {
+            result.put(status, Money.ofMinor(pendingAmounts.get(status.ordinal())));
+        }
+        return result;
+    }
+
+    Money exposure(Long userId) {
+        return Money.ofMinor(exposures.getOrDefault(userId, 0L));
+    }
+
+    int exposedUsers() {
+        return exposures.size();
+    }
+
+    /**
+     * Describes every figure that differs from {@code expected}.
+     */
+    List<String> driftFrom(PortfolioTotals expected) {
+        List<String> drift = new ArrayList<>();
+        for (LoanStatus status : LoanStatus.values()) {
+            long actualCount = counts.get(status.ordinal());
+            long expectedCount = expected.counts.get(status.ordinal());
+            if (actualCount != expectedCount) {
+                drift.add("count[" + status + "] " + actualCount + " != " + expectedCount);
+            }
+            long actualAmount = pendingAmounts.get(status.ordinal());
+            long expectedAmount = expected.pendingAmounts.get(status.ordinal());
+            if (actualAmount != expectedAmount) {
+                drift.add("pendingAmount[" + status + "] " + Money.ofMinor(actualAmount) + " != " + Money.ofMinor(expectedAmount));
+            }
+        }
+        for (Map.Entry<Long, Long> entry : expected.exposures.entrySet()) {
+            Money actual = exposure(entry.getKey());
+            if (actual.getMinorUnits() != entry.getValue()) {
+                drift.add("exposure[" + entry.getKey() + "] " + actual + " != " + Money.ofMinor(entry.getValue()));
+            }
+        }
+        for (Map.Entry<Long, Long> entry : exposures.entrySet()) {
+            if (!expected.exposures.containsKey(entry.getKey())) {
+                drift.add("exposure[" + entry.getKey() + "] " + Money.ofMinor(entry.getValue()) + " != 0");
+            }
+        }
+        return drift;
+    }
+
+    /**
+     * Zero balances are removed so users without exposure do not accumulate in the map.
+     */
+    private static Long sum(Long a, Long b) {
+        long result = Math.addExact(a, b);
+        return result == 0 ? null : result;
+    }
+}
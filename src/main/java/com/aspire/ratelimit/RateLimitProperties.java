@@ -0,0 +1,47 @@
+package com.aspire.ratelimit;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-route admission limits, bound from {@code aspire.rate-limit.*}. A request uses the route with the longest
+ * matching prefix; requests that match no route are not limited.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "aspire.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    /** Upper bound on tracked tokens per route; idle buckets are swept when it is exceeded. */
+    private int maxTrackedTokens = 100_000;
+
+    private List<Route> routes = new ArrayList<>();
+
+    @Data
+    public static class Route {
+
+        private String prefix;
+
+        /** Sustained requests per second allowed for one token. */
+        private double requestsPerSecond = 20;
+
+        /** Requests one token may send back to back before being throttled. */
+        private int burst = 40;
+
+        private int initialConcurrentWrites = 20;
+
+        private int minConcurrentWrites = 2;
+
+        private int maxConcurrentWrites = 200;
+
+        /** Write latency above which the concurrency limit is cut. */
+        private Duration writeLatencyThreshold = Duration.ofMillis(500);
+    }
+}
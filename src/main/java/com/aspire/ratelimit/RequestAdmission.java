@@ -0,0 +1,77 @@
+package com.aspire.ratelimit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Resolves the limits that apply to a request from {@link RateLimitProperties}: a token bucket per user token
+ * for every request, and an adaptive concurrency limit shared by all writes to the route.
+ */
+@Component
+public class RequestAdmission {
+
+    @Autowired
+    private RateLimitProperties properties;
+
+    private List<RouteLimits> routes = new ArrayList<>();
+
+    @PostConstruct
+    public void init() {
+        List<RouteLimits> limits = new ArrayList<>();
+        if (properties.isEnabled()) {
+            for (RateLimitProperties.Route route : properties.getRoutes()) {
+                limits.add(new RouteLimits(route.getPrefix(),
+                        new TokenBucketLimiter(route.getRequestsPerSecond(), route.getBurst(), properties.getMaxTrackedTokens()),
+                        new AimdConcurrencyLimiter(route.getInitialConcurrentWrites(), route.getMinConcurrentWrites(),
+                                route.getMaxConcurrentWrites(), route.getWriteLatencyThreshold().toNanos())));
+            }
+            limits.sort(Comparator.comparingInt((RouteLimits r) -> r.prefix.length()).reversed());
+        }
+        routes = limits;
+    }
+
+    /**
+     * @return 0 if the request is within its token's rate, otherwise the nanoseconds to wait before retrying
+     */
+    public long checkRate(String uri, String token) {
+        RouteLimits route = route(uri);
+        return route == null ? 0 : route.rateLimiter.tryAcquire(token, System.nanoTime());
+    }
+
+    /**
+     * @return the concurrency limiter for a write to {@code uri}, or null if the request is a read or not limited
+     */
+    public AimdConcurrencyLimiter writeLimiter(String uri, String method) {
+        if ("GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method)) {
+            return null;
+        }
+        RouteLimits route = route(uri);
+        return route == null ? null : route.writeLimiter;
+    }
+
+    private RouteLimits route(String uri) {
+        for (RouteLimits route : routes) {
+            if (uri.startsWith(route.prefix)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    private static final class RouteLimits {
+        private final String prefix;
+        private final TokenBucketLimiter rateLimiter;
+        private final AimdConcurrencyLimiter writeLimiter;
+
+        private RouteLimits(String prefix, TokenBucketLimiter rateLimiter, AimdConcurrencyLimiter writeLimiter) {
+            this.prefix = prefix;
+            this.rateLimiter = rateLimiter;
+            this.writeLimiter = writeLimiter;
+        }
+    }
+}
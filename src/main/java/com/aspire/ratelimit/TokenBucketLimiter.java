@@ -0,0 +1,69 @@
+package com.aspire.ratelimit;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket per key, implemented as GCRA: each key only stores the time at which its bucket would be full
+ * again, and a request is admitted with a single CAS on that value. Keys live in a {@link ConcurrentHashMap}, so
+ * callers with different tokens never contend on the same lock or counter.
+ */
+public class TokenBucketLimiter {
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final int maxKeys;
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    public TokenBucketLimiter(double requestsPerSecond, int burst, int maxKeys) {
+        if (requestsPerSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("Rate and burst should be greater than 0");
+        }
+        this.emissionIntervalNanos = (long) (1_000_000_000L / requestsPerSecond);
+        this.burstToleranceNanos = emissionIntervalNanos * (burst - 1);
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * @return 0 if the request is admitted, otherwise how many nanoseconds the caller should wait before retrying
+     */
+    public long tryAcquire(String key, long nowNanos) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxKeys) {
+                sweep(nowNanos);
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(nowNanos));
+        }
+        while (true) {
+            long stored = bucket.get();
+            long arrival = stored - nowNanos < 0 ? nowNanos : stored;
+            long wait = arrival - burstToleranceNanos - nowNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket.compareAndSet(stored, arrival + emissionIntervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    /**
+     * A bucket whose refill time has passed is full, which is the same state a new key starts in, so dropping it
+     * loses nothing.
+     */
+    private void sweep(long nowNanos) {
+        Iterator<Map.Entry<String, AtomicLong>> iterator = buckets.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getValue().get() - nowNanos <= 0) {
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.aspire.repayment;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class RepaymentBatchStats {
+    private boolean enabled;
+    private int queued;
+    private long batches;
+    private long commands;
+    private long rejected;
+    private long replayedBatches;
+    private long callerRuns;
+
+    public double getAverageBatchSize() {
+        return batches == 0 ? 0.0 : (double) commands / batches;
+    }
+}
@@ -0,0 +1,286 @@
+package com.aspire.repayment;
+
+import com.aspire.entities.Repayment;
+import com.aspire.money.Money;
+import com.aspire.retry.OptimisticRetryExecutor;
+import com.aspire.service.LoanService;
+import com.aspire.shard.ShardContext;
+import com.aspire.shard.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Group commit for repayments. Request threads queue their payment and wait for its own result while a writer
+ * thread applies up to {@code max-batch-size} queued payments in one transaction, waiting at most
+ * {@code max-wait} after the first one for the batch to fill. A payment that fails validation is refused on its
+ * own and the rest of the batch still commits. If the batch transaction fails anyway, its payments are applied
+ * again one by one so a single bad payment only fails itself. When sharded, a batch is split by the shard its
+ * repayment ids name and each shard commits its part separately.
+ */
+@Component
+public class RepaymentBatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(RepaymentBatcher.class);
+
+    private static final long IDLE_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final BlockingQueue<Command> queue;
+    private final LoanService loanService;
+    private final TransactionTemplate transactionTemplate;
+    private final OptimisticRetryExecutor optimisticRetryExecutor;
+    private final ShardRouter shardRouter;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder commands = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder replayedBatches = new LongAdder();
+    private final LongAdder callerRuns = new LongAdder();
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    @Autowired
+    public RepaymentBatcher(@Value("${aspire.repayment.batch.enabled:false}") boolean enabled,
+                            @Value("${aspire.repayment.batch.max-batch-size:32}") int maxBatchSize,
+                            @Value("${aspire.repayment.batch.max-wait:2ms}") Duration maxWait,
+                            @Value("${aspire.repayment.batch.queue-capacity:1024}") int queueCapacity,
+                            LoanService loanService,
+                            TransactionTemplate transactionTemplate,
+                            OptimisticRetryExecutor optimisticRetryExecutor,
+                            ShardRouter shardRouter) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Max batch size should be greater than 0");
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("Queue capacity should be greater than 0");
+        }
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.loanService = loanService;
+        this.transactionTemplate = transactionTemplate;
+        this.optimisticRetryExecutor = optimisticRetryExecutor;
+        this.shardRouter = shardRouter;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        writerThread = new Thread(this::writeLoop, "repayment-batch-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writerThread != null) {
+            writerThread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        Command command;
+        while ((command = queue.poll()) != null) {
+            applyAlone(command);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues a payment for the next batch. When batching is off, the queue is full or the writer is stopping, the
+     * payment is applied on the calling thread in its own transaction instead.
+     */
+    public CompletableFuture<Repayment> submit(Long repaymentId, Money amount) {
+        Command command = new Command(repaymentId, amount);
+        if (!running || !queue.offer(command)) {
+            callerRuns.increment();
+            applyAlone(command);
+        } else if (!running && queue.remove(command)) {
+            // stop() may have drained the queue just before the offer, nobody else would pick this one up
+            callerRuns.increment();
+            applyAlone(command);
+        }
+        return command.result;
+    }
+
+    /**
+     * Adds a payment and waits until its batch is committed.
+     *
+     * @throws IllegalArgumentException if the payment was refused
+     * @throws org.springframework.dao.OptimisticLockingFailureException if it kept conflicting with other writers
+     */
+    public Repayment addRepayment(Long repaymentId, Money amount) {
+        try {
+            return submit(repaymentId, amount).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    public RepaymentBatchStats stats() {
+        return new RepaymentBatchStats(enabled, queue.size(), batches.sum(), commands.sum(), rejected.sum(),
+                replayedBatches.sum(), callerRuns.sum());
+    }
+
+    private void writeLoop() {
+        List<Command> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            boolean interrupted = false;
+            try {
+                collect(batch);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                interrupted = true;
+            }
+            if (!batch.isEmpty()) {
+                apply(batch);
+                batch.clear();
+            }
+            if (interrupted) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Waits for a first payment, then keeps taking payments until the batch is full or {@code max-wait} has passed
+     * since the first one arrived.
+     */
+    private void collect(List<Command> batch) throws InterruptedException {
+        Command first = queue.poll(IDLE_POLL_NANOS, TimeUnit.NANOSECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + maxWaitNanos;
+        while (batch.size() < maxBatchSize) {
+            queue.drainTo(batch, maxBatchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= maxBatchSize || remaining <= 0) {
+                return;
+            }
+            Command next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void apply(List<Command> batch) {
+        for (List<Command> shardBatch : shardRouter.partition(batch, command -> shardRouter.shardOfId(command.repaymentId)).values()) {
+            applyOnShard(shardBatch);
+        }
+    }
+
+    /**
+     * The writer thread holds no entity manager between batches, so it can bind the batch's shard itself.
+     */
+    private void applyOnShard(List<Command> batch) {
+        batches.increment();
+        commands.add(batch.size());
+        try (ShardContext.Scope ignored = ShardContext.bind(shardRouter.shardOfId(batch.get(0).repaymentId))) {
+            transactionTemplate.execute(status -> {
+                applyInTransaction(batch);
+                return null;
+            });
+        } catch (RuntimeException ex) {
+            log.warn("Repayment batch of {} payments failed, applying them one by one", batch.size(), ex);
+            replayedBatches.increment();
+            for (Command command : batch) {
+                applyAlone(command);
+            }
+            return;
+        }
+        // Refusals are only reported once the batch committed, since an earlier payment in a failed batch may be
+        // what made a later one look already paid
+        for (Command command : batch) {
+            if (command.refusal != null) {
+                rejected.increment();
+                command.result.completeExceptionally(command.refusal);
+            } else {
+                command.result.complete(command.paid);
+            }
+        }
+    }
+
+    private void applyInTransaction(List<Command> batch) {
+        for (Command command : batch) {
+            command.paid = null;
+            command.refusal = null;
+            try {
+                command.paid = applyOne(command);
+            } catch (IllegalArgumentException ex) {
+                command.refusal = ex;
+            }
+        }
+    }
+
+    private void applyAlone(Command command) {
+        try {
+            command.result.complete(ShardContext.call(shardRouter.shardOfId(command.repaymentId), () ->
+                    optimisticRetryExecutor.execute(() -> transactionTemplate.execute(status -> applyOne(command)))));
+        } catch (RuntimeException ex) {
+            if (ex instanceof IllegalArgumentException) {
+                rejected.increment();
+            }
+            command.result.completeExceptionally(ex);
+        }
+    }
+
+    /**
+     * Validates before adding so a refused payment throws from here, not from inside the transactional service,
+     * and leaves the shared transaction usable for the rest of the batch.
+     */
+    private Repayment applyOne(Command command) {
+        Repayment repayment = loanService.getRepaymentById(command.repaymentId);
+        if (repayment == null) {
+            throw new IllegalArgumentException("Repayment not found");
+        }
+        String error = loanService.validateRepayment(repayment, command.amount);
+        if (error != null) {
+            throw new IllegalArgumentException(error);
+        }
+        return loanService.addRepayment(repayment, command.amount);
+    }
+
+    static final class Command {
+        private final Long repaymentId;
+        private final Money amount;
+        private final CompletableFuture<Repayment> result = new CompletableFuture<>();
+        private Repayment paid;
+        private IllegalArgumentException refusal;
+
+        Command(Long repaymentId, Money amount) {
+            this.repaymentId = repaymentId;
+            this.amount = amount;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.aspire.repo;
+
+import com.aspire.entities.LoanPayment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+@Repository
+public interface LoanPaymentRepository extends JpaRepository<LoanPayment, Long> {
+    List<LoanPayment> findByLoanIdOrderById(Long loanId);
+
+    List<LoanPayment> findByLoanIdInOrderById(Collection<Long> loanIds);
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("select p from LoanPayment p order by p.loanId, p.id")
+    Stream<LoanPayment> streamLedger();
+}
@@ -2,14 +2,117 @@ package com.aspire.repo;
 
 import com.aspire.entities.Loan;
 import com.aspire.enums.LoanStatus;
+import com.aspire.response.LoanListingVersion;
+import com.aspire.response.LoanSummary;
+import com.aspire.response.LoanVersion;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_MODE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface LoanRepository extends JpaRepository<Loan, Long> {
     List<Loan> findByUserId(Long userId);
     Loan findByIdAndUserId(Long loanId, Long userId);
     List<Loan> findByUserIdAndStatus(Long userId, LoanStatus status);
-}
\ No newline at end of file
+
+    @QueryHints({@QueryHint(name = "hibernate.query.passDistinctThrough", value = "false"), @QueryHint(name = HINT_CACHEABLE, value = "true")})
+    @Query("select distinct l from Loan l left join fetch l.repayments where l.user.id = :userId order by l.id")
+    List<Loan> findWithRepaymentsByUserId(@Param("userId") Long userId);
+
+    @QueryHints({@QueryHint(name = "hibernate.query.passDistinctThrough", value = "false"), @QueryHint(name = HINT_CACHEABLE, value = "true")})
+    @Query("select distinct l from Loan l left join fetch l.repayments where l.user.id = :userId and l.status = :status order by l.id")
+    List<Loan> findWithRepaymentsByUserIdAndStatus(@Param("userId") Long userId, @Param("status") LoanStatus status);
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query("select new com.aspire.response.LoanSummary(l.id, l.amount, l.pendingAmount, l.term, l.startDate, l.status) " +
+            "from Loan l where l.user.id = :userId order by l.id")
+    List<LoanSummary> findSummariesByUserId(@Param("userId") Long userId);
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query("select new com.aspire.response.LoanSummary(l.id, l.amount, l.pendingAmount, l.term, l.startDate, l.status) " +
+            "from Loan l where l.user.id = :userId and l.status = :status order by l.id")
+    List<LoanSummary> findSummariesByUserIdAndStatus(@Param("userId") Long userId, @Param("status") LoanStatus status);
+
+    @Query("select new com.aspire.response.LoanSummary(l.id, l.amount, l.pendingAmount, l.term, l.startDate, l.status) " +
+            "from Loan l where l.user.id = :userId and (:status is null or l.status = :status) and l.id > :afterId order by l.id")
+    List<LoanSummary> findSummaryPage(@Param("userId") Long userId, @Param("status") LoanStatus status, @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("select new com.aspire.response.LoanSummary(l.id, l.amount, l.pendingAmount, l.term, l.startDate, l.status) " +
+            "from Loan l where l.status = :status and l.id > :afterId order by l.id")
+    List<LoanSummary> findSummaryPageByStatus(@Param("status") LoanStatus status, @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("select new com.aspire.response.LoanVersion(l.user.id, l.version, l.virtualSchedule) from Loan l where l.id = :loanId")
+    LoanVersion findVersionById(@Param("loanId") Long loanId);
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query("select new com.aspire.response.LoanListingVersion(count(l), coalesce(sum(l.version), 0), " +
+            "coalesce(sum(case when l.virtualSchedule = true then 1 else 0 end), 0)) from Loan l where l.user.id = :userId")
+    LoanListingVersion findListingVersion(@Param("userId") Long userId);
+
+    @Query("select l.id from Loan l where l.user.id = :userId and (:status is null or l.status = :status) and l.id > :afterId order by l.id")
+    List<Long> findIdPage(@Param("userId") Long userId, @Param("status") LoanStatus status, @Param("afterId") Long afterId, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = "hibernate.query.passDistinctThrough", value = "false"))
+    @Query("select distinct l from Loan l left join fetch l.repayments where l.id in :ids order by l.id")
+    List<Loan> findWithRepaymentsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("select new com.aspire.response.LoanSummary(l.id, l.amount, l.pendingAmount, l.term, l.startDate, l.status) " +
+            "from Loan l where l.user.id = :userId and (:status is null or l.status = :status) order by l.id")
+    Stream<LoanSummary> streamSummaries(@Param("userId") Long userId, @Param("status") LoanStatus status);
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READONLY, value = "true"),
+            @QueryHint(name = HINT_CACHE_MODE, value = "IGNORE")})
+    @Query("select l from Loan l order by l.id")
+    Stream<Loan> streamLedger();
+
+    @Query("select l from Loan l join fetch l.user where l.id in :ids and l.status = :status")
+    List<Loan> findWithUserByIdInAndStatus(@Param("ids") Collection<Long> ids, @Param("status") LoanStatus status);
+
+    @Query("select l.id from Loan l where l.status = :status and l.id > :afterId order by l.id")
+    List<Long> findIdsByStatusAfter(@Param("status") LoanStatus status, @Param("afterId") Long afterId, Pageable pageable);
+
+    @Modifying
+    @Query("update versioned Loan l set l.status = com.aspire.enums.LoanStatus.APPROVED, l.unpaidInstallments = l.term, l.firstUnpaidInstallment = 0 " +
+            "where l.id in :ids and l.status = com.aspire.enums.LoanStatus.PENDING")
+    int approvePending(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("update versioned Loan l set l.status = com.aspire.enums.LoanStatus.APPROVED, l.unpaidInstallments = l.term, l.firstUnpaidInstallment = 0, " +
+            "l.virtualSchedule = true where l.id in :ids and l.status = com.aspire.enums.LoanStatus.PENDING")
+    int approvePendingVirtual(@Param("ids") Collection<Long> ids);
+
+    @Query("select l.status, count(l), sum(l.pendingAmount) from Loan l group by l.status")
+    List<Object[]> sumByStatus();
+
+    @Query("select l.user.id, sum(l.pendingAmount) from Loan l where l.status in :statuses group by l.user.id")
+    List<Object[]> sumPendingByUser(@Param("statuses") Collection<LoanStatus> statuses);
+
+    @Modifying
+    @Query("update versioned Loan l set l.overdue = true where l.overdue = false and l.id in " +
+            "(select r.loan.id from Repayment r where r.id in :repaymentIds)")
+    int markOverdueByRepaymentIds(@Param("repaymentIds") Collection<Long> repaymentIds);
+
+    /**
+     * Bumps the version of loans that were already overdue, so their ETags change with their installments.
+     */
+    @Modifying
+    @Query("update versioned Loan l set l.overdue = true where l.overdue = true and l.id in " +
+            "(select r.loan.id from Repayment r where r.id in :repaymentIds)")
+    int touchOverdueByRepaymentIds(@Param("repaymentIds") Collection<Long> repaymentIds);
+}
@@ -1,12 +1,42 @@
 package com.aspire.repo;
 
 import com.aspire.entities.Repayment;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_MODE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
 public interface RepaymentRepository extends JpaRepository<Repayment, Long>{
     List<Repayment> findByLoanId(Long loanId);
+
+    @Query("select r.id from Repayment r where r.status = com.aspire.enums.RepaymentStatus.PENDING and r.dueDate < :asOf " +
+            "order by r.dueDate, r.id")
+    List<Long> findPendingIdsDueBefore(@Param("asOf") LocalDate asOf, Pageable pageable);
+
+    @Query("select distinct r.loan.user.id from Repayment r where r.id in :ids")
+    List<Long> findOwnerIds(@Param("ids") Collection<Long> ids);
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READONLY, value = "true"),
+            @QueryHint(name = HINT_CACHE_MODE, value = "IGNORE")})
+    @Query("select r from Repayment r join fetch r.loan l order by l.id, r.dueDate, r.id")
+    Stream<Repayment> streamLedger();
+
+    @Modifying
+    @Query("update versioned Repayment r set r.status = com.aspire.enums.RepaymentStatus.OVERDUE " +
+            "where r.id in :ids and r.status = com.aspire.enums.RepaymentStatus.PENDING")
+    int markOverdue(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,13 @@
+package com.aspire.request;
+
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BulkApprovalRequest {
+    private List<Long> loanIds;
+    private String status;
+    private Integer chunkSize;
+}
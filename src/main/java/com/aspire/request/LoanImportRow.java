@@ -0,0 +1,20 @@
+package com.aspire.request;
+
+import com.aspire.money.Money;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * One loan of a bulk import. {@code status} defaults to PENDING; for APPROVED and PAID loans the schedule is
+ * generated and {@code paidAmount} is applied to the installments in due-date order.
+ */
+@Data
+public class LoanImportRow {
+    private String username;
+    private Money amount;
+    private int term;
+    private LocalDate startDate;
+    private String status;
+    private Money paidAmount;
+}
@@ -1,14 +1,14 @@
 package com.aspire.request;
 
 
+import com.aspire.money.Money;
 import lombok.Data;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
 
 @Data
 public class LoanRequest {
-    private BigDecimal amount;
+    private Money amount;
     private int term;
     private LocalDate startDate;
 }
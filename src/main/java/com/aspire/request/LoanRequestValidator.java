@@ -0,0 +1,35 @@
+package com.aspire.request;
+
+import com.aspire.money.Money;
+
+import java.time.LocalDate;
+
+/**
+ * Loan validation rules shared by loan creation and bulk import.
+ */
+public final class LoanRequestValidator {
+
+    private LoanRequestValidator() {
+    }
+
+    /**
+     * @param newLoan whether the loan is a new application, which may not start in the past; imported loans that
+     *                are already running may
+     * @return the first rule the loan breaks, or null if it is valid
+     */
+    public static String validate(Money amount, int term, LocalDate startDate, boolean newLoan) {
+        if(amount == null || amount.signum() <= 0){
+            return "Amount should be greater than 0";
+        }
+        if(term <= 0){
+            return "Term should be greater than 0";
+        }
+        if(startDate == null){
+            return "Start date is required";
+        }
+        if(newLoan && startDate.isBefore(LocalDate.now())){
+            return "Start date should not be in past";
+        }
+        return null;
+    }
+}
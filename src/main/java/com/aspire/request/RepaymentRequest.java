@@ -1,11 +1,10 @@
 package com.aspire.request;
 
 
+import com.aspire.money.Money;
 import lombok.Data;
 
-import java.math.BigDecimal;
-
 @Data
 public class RepaymentRequest {
-    private BigDecimal amount;
+    private Money amount;
 }
@@ -0,0 +1,13 @@
+package com.aspire.response;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class LoanApprovalResult {
+    private Long loanId;
+    private boolean approved;
+    private String message;
+}
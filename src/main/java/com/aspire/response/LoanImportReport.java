@@ -0,0 +1,17 @@
+package com.aspire.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+@JsonInclude(value = JsonInclude.Include.NON_NULL)
+public class LoanImportReport {
+    private long rows;
+    private long importedLoans;
+    private long importedInstallments;
+    private long rejected;
+    private String rejectFile;
+    private long elapsedMillis;
+}
@@ -0,0 +1,16 @@
+package com.aspire.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Version of a user's loan listing: the number of loans and the sum of their versions. Loans are never deleted and
+ * versions only grow, so the pair changes whenever a loan is added or written.
+ */
+@Data
+@AllArgsConstructor
+public class LoanListingVersion {
+    private Long loans;
+    private Long versions;
+    private Long virtualSchedules;
+}
@@ -0,0 +1,20 @@
+package com.aspire.response;
+
+
+import com.aspire.enums.LoanStatus;
+import com.aspire.money.Money;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+public class LoanSummary {
+    private Long id;
+    private Money amount;
+    private Money pendingAmount;
+    private int term;
+    private LocalDate startDate;
+    private LoanStatus status;
+}
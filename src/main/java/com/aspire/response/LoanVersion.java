@@ -0,0 +1,16 @@
+package com.aspire.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * What a loan's representation depends on, read without loading the loan: its owner, its optimistic lock version
+ * (bumped by every write to the loan, including bulk updates) and whether its schedule is computed on read.
+ */
+@Data
+@AllArgsConstructor
+public class LoanVersion {
+    private Long userId;
+    private Long version;
+    private Boolean virtualSchedule;
+}
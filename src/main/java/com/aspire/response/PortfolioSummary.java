@@ -0,0 +1,22 @@
+package com.aspire.response;
+
+import com.aspire.enums.LoanStatus;
+import com.aspire.money.Money;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+public class PortfolioSummary {
+
+    private Map<LoanStatus, Long> loanCounts;
+    private Map<LoanStatus, Money> pendingAmounts;
+    private Money outstandingPrincipal;
+    private int exposedUsers;
+    private Instant lastReconciledAt;
+    private List<String> lastDrift;
+}
@@ -0,0 +1,76 @@
+package com.aspire.retry;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs a transactional action and retries it when it loses an optimistic lock race. Backoff grows exponentially
+ * with full jitter so competing writers on the same loan spread out instead of colliding again.
+ * The action must reload the entities it changes, since the failed attempt left them stale.
+ */
+@Component
+public class OptimisticRetryExecutor {
+
+    private final int maxAttempts;
+    private final long baseBackoffNanos;
+    private final long maxBackoffNanos;
+
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+
+    @Autowired
+    public OptimisticRetryExecutor(@Value("${aspire.repayment.retry.max-attempts:3}") int maxAttempts,
+                                   @Value("${aspire.repayment.retry.base-backoff:5ms}") Duration baseBackoff,
+                                   @Value("${aspire.repayment.retry.max-backoff:100ms}") Duration maxBackoff) {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("Max attempts should be greater than 0");
+        }
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffNanos = baseBackoff.toNanos();
+        this.maxBackoffNanos = maxBackoff.toNanos();
+    }
+
+    public <T> T execute(Supplier<T> action) {
+        executions.increment();
+        for (int attempt = 1; ; attempt++) {
+            attempts.increment();
+            try {
+                return action.get();
+            } catch (OptimisticLockingFailureException ex) {
+                conflicts.increment();
+                if (attempt >= maxAttempts) {
+                    exhausted.increment();
+                    throw ex;
+                }
+                backoff(attempt);
+            }
+        }
+    }
+
+    public RetryStats stats() {
+        return new RetryStats(executions.sum(), attempts.sum(), conflicts.sum(), exhausted.sum());
+    }
+
+    private void backoff(int attempt) {
+        long ceiling = Math.min(maxBackoffNanos, baseBackoffNanos << Math.min(attempt - 1, 20));
+        if (ceiling <= 0) {
+            return;
+        }
+        long delay = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        try {
+            Thread.sleep(delay / 1_000_000, (int) (delay % 1_000_000));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while backing off", ex);
+        }
+    }
+}
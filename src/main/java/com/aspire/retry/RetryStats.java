@@ -0,0 +1,17 @@
+package com.aspire.retry;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class RetryStats {
+    private long executions;
+    private long attempts;
+    private long conflicts;
+    private long exhausted;
+
+    public double getConflictRate() {
+        return attempts == 0 ? 0.0 : (double) conflicts / attempts;
+    }
+}
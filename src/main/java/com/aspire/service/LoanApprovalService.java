@@ -0,0 +1,10 @@
+package com.aspire.service;
+
+import com.aspire.request.BulkApprovalRequest;
+import com.aspire.response.LoanApprovalResult;
+
+import java.util.function.Consumer;
+
+public interface LoanApprovalService {
+    public void approveLoans(BulkApprovalRequest request, Consumer<LoanApprovalResult> results);
+}
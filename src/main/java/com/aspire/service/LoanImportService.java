@@ -0,0 +1,15 @@
+package com.aspire.service;
+
+import com.aspire.response.LoanImportReport;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface LoanImportService {
+
+    /**
+     * Imports loans from CSV (with a header row) or NDJSON, one loan per line. Rows that fail validation or cannot
+     * be written are listed with their line number and error in a reject file.
+     */
+    LoanImportReport importLoans(InputStream input, boolean csv) throws IOException;
+}
@@ -4,16 +4,37 @@ package com.aspire.service;
 import com.aspire.entities.Loan;
 import com.aspire.entities.Repayment;
 import com.aspire.entities.User;
+import com.aspire.money.Money;
+import com.aspire.response.LoanListingVersion;
+import com.aspire.response.LoanPage;
+import com.aspire.response.LoanSummary;
+import com.aspire.response.LoanVersion;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface LoanService {
-    public Loan createLoan(User user, BigDecimal amount, int term , LocalDate startDate);
+    public Loan createLoan(User user, Money amount, int term , LocalDate startDate);
     public Loan approveLoan(Loan loan);
     public List<Loan> getLoansByUser(Long userId, String status);
-    public Repayment addRepayment(Repayment repayment, BigDecimal amount);
+    public List<LoanSummary> getLoanSummariesByUser(Long userId, String status);
+    public LoanPage getLoanPage(Long userId, String status, boolean summary, String cursor, int limit);
+    public void streamLoanSummaries(Long userId, String status, Consumer<LoanSummary> rows);
+    /**
+     * Pages through every user's loans in one status, across all shards.
+     */
+    public LoanPage getLoanPageByStatus(String status, String cursor, int limit);
+    public Repayment addRepayment(Repayment repayment, Money amount);
+    /**
+     * Checks a repayment without changing anything, so callers sharing a transaction can reject a payment without
+     * rolling the transaction back.
+     *
+     * @return the reason the payment is refused, or null if it can be added
+     */
+    public String validateRepayment(Repayment repayment, Money amount);
     public Repayment getRepaymentById(Long repaymentId);
     public Loan getLoanById(Long loanId);
+    public LoanVersion getLoanVersion(Long loanId);
+    public LoanListingVersion getLoanListingVersion(Long userId);
 }
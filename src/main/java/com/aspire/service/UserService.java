@@ -1,7 +1,11 @@
 package com.aspire.service;
 
+import com.aspire.cache.CacheStats;
 import com.aspire.entities.User;
 
 public interface UserService {
     public User getUserByToken(String token);
+    public void evictToken(String token);
+    public void evictUser(Long userId);
+    public CacheStats getTokenCacheStats();
 }
@@ -0,0 +1,202 @@
+package com.aspire.service.impl;
+
+import com.aspire.cache.LoanListingCache;
+import com.aspire.cache.SecondLevelCache;
+import com.aspire.entities.Loan;
+import com.aspire.entities.Repayment;
+import com.aspire.enums.LoanStatus;
+import com.aspire.portfolio.PortfolioAggregates;
+import com.aspire.repo.LoanRepository;
+import com.aspire.repo.RepaymentRepository;
+import com.aspire.request.BulkApprovalRequest;
+import com.aspire.response.LoanApprovalResult;
+import com.aspire.service.LoanApprovalService;
+import com.aspire.service.LoanService;
+import com.aspire.shard.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Approves loans in chunks. Each chunk is approved in its own transaction with one set-based status update and
+ * batched schedule inserts. If a chunk fails, its loans are retried one by one so a single bad loan only fails
+ * itself. When sharded, listed ids are approved per shard in the order the shards come, and approving by status
+ * walks the shards one after the other.
+ */
+@Service
+public class LoanApprovalServiceImpl implements LoanApprovalService {
+
+    private static final Logger log = LoggerFactory.getLogger(LoanApprovalServiceImpl.class);
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private RepaymentRepository repaymentRepository;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PortfolioAggregates portfolioAggregates;
+
+    @Autowired
+    private SecondLevelCache secondLevelCache;
+
+    @Autowired
+    private LoanListingCache loanListingCache;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Value("${aspire.bulk-approval.chunk-size:500}")
+    private int defaultChunkSize;
+
+    @Value("${aspire.bulk-approval.max-chunk-size:5000}")
+    private int maxChunkSize;
+
+    @Value("${aspire.schedule.virtual:false}")
+    private boolean virtualSchedules;
+
+    @Override
+    public void approveLoans(BulkApprovalRequest request, Consumer<LoanApprovalResult> results) {
+        int chunkSize = resolveChunkSize(request.getChunkSize());
+        if (request.getLoanIds() != null && !request.getLoanIds().isEmpty()) {
+            List<Long> loanIds = request.getLoanIds();
+            for (Map.Entry<Integer, List<Long>> shard : shardRouter.partition(loanIds, shardRouter::shardOfId).entrySet()) {
+                List<Long> shardIds = shard.getValue();
+                for (int from = 0; from < shardIds.size(); from += chunkSize) {
+                    List<Long> chunk = shardIds.subList(from, Math.min(from + chunkSize, shardIds.size()));
+                    shardRouter.onShard(shard.getKey(), () -> approveChunk(chunk)).forEach(results);
+                }
+            }
+            return;
+        }
+
+        LoanStatus status = LoanStatus.valueOf(request.getStatus());
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            approveByStatus(shard, status, chunkSize, results);
+        }
+    }
+
+    private void approveByStatus(int shard, LoanStatus status, int chunkSize, Consumer<LoanApprovalResult> results) {
+        Long afterId = 0L;
+        while (true) {
+            Long after = afterId;
+            List<Long> chunk = shardRouter.onShard(shard, () -> loanRepository.findIdsByStatusAfter(status, after, PageRequest.of(0, chunkSize)));
+            if (chunk.isEmpty()) {
+                return;
+            }
+            shardRouter.onShard(shard, () -> approveChunk(chunk)).forEach(results);
+            afterId = chunk.get(chunk.size() - 1);
+        }
+    }
+
+    private int resolveChunkSize(Integer requested) {
+        if (requested == null || requested <= 0) {
+            return defaultChunkSize;
+        }
+        return Math.min(requested, maxChunkSize);
+    }
+
+    private List<LoanApprovalResult> approveChunk(List<Long> loanIds) {
+        List<LoanApprovalResult> results;
+        try {
+            results = transactionTemplate.execute(status -> approveChunkInTransaction(loanIds));
+        } catch (RuntimeException ex) {
+            log.warn("Bulk approval of {} loans failed, approving them one by one", loanIds.size(), ex);
+            results = new ArrayList<>(loanIds.size());
+            for (Long loanId : loanIds) {
+                results.add(approveSingle(loanId));
+            }
+            return results;
+        }
+        // The schedules were inserted without touching Loan.repayments, so cached lists are dropped once committed
+        List<Long> approved = new ArrayList<>(results.size());
+        for (LoanApprovalResult result : results) {
+            if (result.isApproved()) {
+                approved.add(result.getLoanId());
+            }
+        }
+        secondLevelCache.evictRepayments(approved);
+        return results;
+    }
+
+    private List<LoanApprovalResult> approveChunkInTransaction(List<Long> loanIds) {
+        List<Loan> loans = loanRepository.findWithUserByIdInAndStatus(loanIds, LoanStatus.PENDING);
+        Map<Long, Loan> pending = new HashMap<>();
+        List<Repayment> repayments = new ArrayList<>();
+        Set<Long> materializedIds = new HashSet<>();
+        List<Long> virtualIds = new ArrayList<>();
+        for (Loan loan : loans) {
+            pending.put(loan.getId(), loan);
+            if (virtualSchedules && VirtualSchedule.supports(loan)) {
+                virtualIds.add(loan.getId());
+            } else {
+                materializedIds.add(loan.getId());
+                repayments.addAll(RepaymentScheduleGenerator.generate(loan));
+            }
+        }
+
+        if (!pending.isEmpty()) {
+            int updated = 0;
+            if (!materializedIds.isEmpty()) {
+                repaymentRepository.saveAll(repayments);
+                updated += loanRepository.approvePending(materializedIds);
+            }
+            if (!virtualIds.isEmpty()) {
+                updated += loanRepository.approvePendingVirtual(virtualIds);
+            }
+            if (updated != pending.size()) {
+                throw new IllegalStateException("Loan status changed concurrently during bulk approval");
+            }
+            // The bulk update bypasses the entities, so each approval is reported to the aggregates directly
+            for (Loan loan : loans) {
+                portfolioAggregates.recordTransition(loan.getUser().getId(), LoanStatus.PENDING, loan.getPendingAmount(),
+                        LoanStatus.APPROVED, loan.getPendingAmount());
+                loanListingCache.invalidateUserAfterCommit(loan.getUser().getId());
+            }
+        }
+
+        List<LoanApprovalResult> results = new ArrayList<>(loanIds.size());
+        for (Long loanId : loanIds) {
+            results.add(pending.containsKey(loanId)
+                    ? new LoanApprovalResult(loanId, true, "Loan approved successfully")
+                    : new LoanApprovalResult(loanId, false, "Loan not found or not pending"));
+        }
+        return results;
+    }
+
+    private LoanApprovalResult approveSingle(Long loanId) {
+        try {
+            return transactionTemplate.execute(status -> {
+                Loan loan = loanService.getLoanById(loanId);
+                if (loan == null) {
+                    return new LoanApprovalResult(loanId, false, "Loan not found");
+                }
+                if (loan.getStatus() != LoanStatus.PENDING) {
+                    return new LoanApprovalResult(loanId, false, "Loan is not pending");
+                }
+                loanService.approveLoan(loan);
+                return new LoanApprovalResult(loanId, true, "Loan approved successfully");
+            });
+        } catch (RuntimeException ex) {
+            return new LoanApprovalResult(loanId, false, ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,397 @@
+package com.aspire.service.impl;
+
+import com.aspire.cache.LoanListingCache;
+import com.aspire.entities.Loan;
+import com.aspire.entities.Repayment;
+import com.aspire.entities.User;
+import com.aspire.enums.LoanStatus;
+import com.aspire.enums.RepaymentStatus;
+import com.aspire.money.Money;
+import com.aspire.portfolio.PortfolioAggregates;
+import com.aspire.repo.UserRepository;
+import com.aspire.request.LoanImportRow;
+import com.aspire.request.LoanRequestValidator;
+import com.aspire.response.LoanImportReport;
+import com.aspire.service.LoanImportService;
+import com.aspire.shard.ShardRouter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Streams loans from the input line by line and writes them in fixed-size chunks, each in its own transaction.
+ * The persistence context is flushed and cleared after every chunk so inserts go out as JDBC batches and memory
+ * use does not grow with the input. If a chunk fails, its rows are retried one by one so a bad row only rejects
+ * itself. When sharded, a chunk is split by the shard of each loan's user and every part is written on its shard.
+ * Usernames are resolved per chunk with one query, so neither round trips nor memory grow with the number of
+ * distinct users in the input.
+ * <p>
+ * CSV fields may be enclosed in double quotes, with {@code ""} for a quote inside a field. As the input is read
+ * line by line, a quoted field cannot contain a line break.
+ */
+@Service
+public class LoanImportServiceImpl implements LoanImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(LoanImportServiceImpl.class);
+
+    private static final List<String> CSV_COLUMNS = Arrays.asList("username", "amount", "term", "startDate", "status", "paidAmount");
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PortfolioAggregates portfolioAggregates;
+
+    @Autowired
+    private LoanListingCache loanListingCache;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${aspire.import.chunk-size:200}")
+    private int chunkSize;
+
+    @Value("${aspire.import.reject-dir:${java.io.tmpdir}}")
+    private String rejectDir;
+
+    @Override
+    public LoanImportReport importLoans(InputStream input, boolean csv) throws IOException {
+        long start = System.nanoTime();
+        Path rejectFile = Files.createTempFile(Paths.get(rejectDir), "loan-import-", "-rejects.ndjson");
+        Progress progress = new Progress();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+             BufferedWriter rejects = Files.newBufferedWriter(rejectFile, StandardCharsets.UTF_8)) {
+            long lineNumber = 0;
+            Map<String, Integer> columns = null;
+            if (csv) {
+                lineNumber++;
+                columns = parseHeader(reader.readLine());
+            }
+            List<ImportedLoan> chunk = new ArrayList<>(chunkSize);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                progress.rows++;
+                LoanImportRow row;
+                try {
+                    row = csv ? parseCsv(columns, line) : objectMapper.readValue(line, LoanImportRow.class);
+                } catch (IOException | RuntimeException ex) {
+                    reject(rejects, progress, lineNumber, "Malformed row: " + ex.getMessage(), line);
+                    continue;
+                }
+                String error = row.getUsername() == null ? "User not found" : validate(row);
+                if (error != null) {
+                    reject(rejects, progress, lineNumber, error, line);
+                    continue;
+                }
+                chunk.add(new ImportedLoan(lineNumber, line, row));
+                if (chunk.size() >= chunkSize) {
+                    writeChunk(chunk, rejects, progress);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                writeChunk(chunk, rejects, progress);
+            }
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(rejectFile);
+            throw ex;
+        }
+
+        String rejectPath = null;
+        if (progress.rejected == 0) {
+            Files.deleteIfExists(rejectFile);
+        } else {
+            rejectPath = rejectFile.toAbsolutePath().toString();
+        }
+        LoanImportReport report = new LoanImportReport(progress.rows, progress.loans, progress.installments,
+                progress.rejected, rejectPath, (System.nanoTime() - start) / 1_000_000);
+        log.info("Loan import finished: {}", report);
+        return report;
+    }
+
+    private Map<String, Integer> parseHeader(String header) {
+        if (header == null) {
+            throw new IllegalArgumentException("CSV header is missing");
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = splitCsv(header);
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim(), i);
+        }
+        for (String required : CSV_COLUMNS.subList(0, 4)) {
+            if (!columns.containsKey(required)) {
+                throw new IllegalArgumentException("CSV header is missing column " + required);
+            }
+        }
+        return columns;
+    }
+
+    private LoanImportRow parseCsv(Map<String, Integer> columns, String line) {
+        List<String> values = splitCsv(line);
+        LoanImportRow row = new LoanImportRow();
+        row.setUsername(column(values, columns, "username"));
+        String amount = column(values, columns, "amount");
+        row.setAmount(amount == null ? null : Money.parse(amount));
+        String term = column(values, columns, "term");
+        row.setTerm(term == null ? 0 : Integer.parseInt(term));
+        String startDate = column(values, columns, "startDate");
+        row.setStartDate(startDate == null ? null : LocalDate.parse(startDate));
+        row.setStatus(column(values, columns, "status"));
+        String paidAmount = column(values, columns, "paidAmount");
+        row.setPaidAmount(paidAmount == null ? null : Money.parse(paidAmount));
+        return row;
+    }
+
+    private String column(List<String> values, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= values.size()) {
+            return null;
+        }
+        String value = values.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Splits a line on the commas outside double quotes and unquotes the fields.
+     */
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private Map<String, Long> resolveUsers(List<ImportedLoan> chunk) {
+        Set<String> usernames = new HashSet<>();
+        for (ImportedLoan loan : chunk) {
+            usernames.add(loan.row.getUsername());
+        }
+        Map<String, Long> userIds = new HashMap<>();
+        for (Object[] user : userRepository.findIdsByUsernames(usernames)) {
+            userIds.put((String) user[0], ((Number) user[1]).longValue());
+        }
+        return userIds;
+    }
+
+    /**
+     * Applies the loan creation rules; only PENDING loans are new applications that may not start in the past.
+     */
+    private String validate(LoanImportRow row) {
+        LoanStatus status;
+        try {
+            status = row.getStatus() == null ? LoanStatus.PENDING : LoanStatus.valueOf(row.getStatus());
+        } catch (IllegalArgumentException ex) {
+            return "Unknown status " + row.getStatus();
+        }
+        String error = LoanRequestValidator.validate(row.getAmount(), row.getTerm(), row.getStartDate(), status == LoanStatus.PENDING);
+        if (error != null) {
+            return error;
+        }
+        Money paid = row.getPaidAmount();
+        if (paid != null && (paid.signum() < 0 || paid.compareTo(row.getAmount()) > 0)) {
+            return "Paid amount should be between 0 and the loan amount";
+        }
+        if (status == LoanStatus.PENDING && paid != null && paid.signum() > 0) {
+            return "Pending loans cannot have repayments";
+        }
+        if (status == LoanStatus.PAID && paid != null && paid.compareTo(row.getAmount()) != 0) {
+            return "Paid loans should be fully repaid";
+        }
+        return null;
+    }
+
+    private void writeChunk(List<ImportedLoan> chunk, BufferedWriter rejects, Progress progress) throws IOException {
+        Map<String, Long> userIds = resolveUsers(chunk);
+        List<ImportedLoan> known = new ArrayList<>(chunk.size());
+        for (ImportedLoan loan : chunk) {
+            loan.userId = userIds.get(loan.row.getUsername());
+            if (loan.userId == null) {
+                reject(rejects, progress, loan.lineNumber, "User not found", loan.line);
+            } else {
+                known.add(loan);
+            }
+        }
+        for (Map.Entry<Integer, List<ImportedLoan>> shard : shardRouter.partition(known, loan -> shardRouter.shardOfUser(loan.userId)).entrySet()) {
+            writeShardChunk(shard.getKey(), shard.getValue(), rejects, progress);
+        }
+    }
+
+    private void writeShardChunk(int shard, List<ImportedLoan> chunk, BufferedWriter rejects, Progress progress) throws IOException {
+        try {
+            progress.add(shardRouter.onShard(shard, () -> transactionTemplate.execute(status -> persist(chunk))));
+            return;
+        } catch (RuntimeException ex) {
+            log.warn("Importing a chunk of {} loans failed, importing them one by one", chunk.size(), ex);
+        }
+        for (ImportedLoan loan : chunk) {
+            try {
+                progress.add(shardRouter.onShard(shard, () -> transactionTemplate.execute(status -> persist(List.of(loan)))));
+            } catch (RuntimeException ex) {
+                reject(rejects, progress, loan.lineNumber, ex.getMessage(), loan.line);
+            }
+        }
+    }
+
+    /**
+     * @return the number of loans and installments written
+     */
+    private long[] persist(List<ImportedLoan> loans) {
+        long installments = 0;
+        try {
+            for (ImportedLoan imported : loans) {
+                Loan loan = toLoan(imported);
+                entityManager.persist(loan);
+                if (loan.getRepayments() != null) {
+                    installments += loan.getRepayments().size();
+                }
+                portfolioAggregates.recordTransition(imported.userId, null, null, loan.getStatus(), loan.getPendingAmount());
+                loanListingCache.invalidateUserAfterCommit(imported.userId);
+            }
+            entityManager.flush();
+        } finally {
+            entityManager.clear();
+        }
+        return new long[]{loans.size(), installments};
+    }
+
+    private Loan toLoan(ImportedLoan imported) {
+        LoanImportRow row = imported.row;
+        Loan loan = new Loan();
+        loan.setUser(entityManager.getReference(User.class, imported.userId));
+        loan.setAmount(row.getAmount());
+        loan.setPendingAmount(row.getAmount());
+        loan.setTerm(row.getTerm());
+        loan.setStartDate(row.getStartDate());
+        loan.setStatus(row.getStatus() == null ? LoanStatus.PENDING : LoanStatus.valueOf(row.getStatus()));
+        if (loan.getStatus() == LoanStatus.PENDING) {
+            return loan;
+        }
+
+        List<Repayment> schedule = RepaymentScheduleGenerator.generate(loan);
+        Money paid = row.getPaidAmount() != null ? row.getPaidAmount()
+                : loan.getStatus() == LoanStatus.PAID ? row.getAmount() : Money.ZERO;
+        Money remaining = paid;
+        int unpaid = schedule.size();
+        int first = 0;
+        for (Repayment repayment : schedule) {
+            if (remaining.signum() == 0) {
+                break;
+            }
+            if (remaining.compareTo(repayment.getPendingAmount()) >= 0) {
+                remaining = remaining.minus(repayment.getPendingAmount());
+                repayment.setPendingAmount(Money.ZERO);
+                repayment.setStatus(RepaymentStatus.PAID);
+                unpaid--;
+                first++;
+            } else {
+                repayment.setPendingAmount(repayment.getPendingAmount().minus(remaining));
+                remaining = Money.ZERO;
+            }
+        }
+        loan.setRepayments(schedule);
+        loan.setPendingAmount(row.getAmount().minus(paid));
+        loan.setUnpaidInstallments(unpaid);
+        loan.setFirstUnpaidInstallment(first);
+        loan.setStatus(unpaid == 0 ? LoanStatus.PAID : LoanStatus.APPROVED);
+        return loan;
+    }
+
+    private void reject(BufferedWriter rejects, Progress progress, long lineNumber, String error, String line) throws IOException {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("line", lineNumber);
+        entry.put("error", error);
+        entry.put("row", line);
+        rejects.write(objectMapper.writeValueAsString(entry));
+        rejects.newLine();
+        progress.rejected++;
+    }
+
+    private static final class ImportedLoan {
+        private final long lineNumber;
+        private final String line;
+        private final LoanImportRow row;
+        /** Set once the chunk's usernames are resolved. */
+        private Long userId;
+
+        private ImportedLoan(long lineNumber, String line, LoanImportRow row) {
+            this.lineNumber = lineNumber;
+            this.line = line;
+            this.row = row;
+        }
+    }
+
+    private static final class Progress {
+        private long rows;
+        private long loans;
+        private long installments;
+        private long rejected;
+
+        private void add(long[] written) {
+            loans += written[0];
+            installments += written[1];
+        }
+    }
+}
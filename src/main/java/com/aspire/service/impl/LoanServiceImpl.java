@@ -1,26 +1,45 @@
 package com.aspire.service.impl;
 
+import com.aspire.cache.LoanListingCache;
 import com.aspire.entities.Loan;
+import com.aspire.entities.LoanPayment;
 import com.aspire.entities.Repayment;
 import com.aspire.entities.User;
 import com.aspire.enums.LoanStatus;
 import com.aspire.enums.RepaymentStatus;
+import com.aspire.money.Money;
+import com.aspire.portfolio.PortfolioAggregates;
+import com.aspire.repo.LoanPaymentRepository;
 import com.aspire.repo.LoanRepository;
 import com.aspire.repo.RepaymentRepository;
+import com.aspire.response.LoanListingVersion;
+import com.aspire.response.LoanPage;
+import com.aspire.response.LoanSummary;
+import com.aspire.response.LoanVersion;
 import com.aspire.service.LoanService;
+import com.aspire.shard.ShardRouter;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityNotFoundException;
-import javax.transaction.Transactional;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class LoanServiceImpl implements LoanService {
@@ -31,8 +50,24 @@ public class LoanServiceImpl implements LoanService {
     @Autowired
     private RepaymentRepository repaymentRepository;
 
+    @Autowired
+    private LoanPaymentRepository loanPaymentRepository;
+
+    @Autowired
+    private PortfolioAggregates portfolioAggregates;
+
+    @Autowired
+    private LoanListingCache loanListingCache;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Value("${aspire.schedule.virtual:false}")
+    private boolean virtualSchedules;
+
+    @Timed(value = "aspire.loan.service", histogram = true)
     @Override
-    public Loan createLoan(User user, BigDecimal amount, int term, LocalDate startDate) {
+    public Loan createLoan(User user, Money amount, int term, LocalDate startDate) {
         Loan loan = new Loan();
         loan.setUser(user);
         loan.setAmount(amount);
@@ -40,102 +75,242 @@ public class LoanServiceImpl implements LoanService {
         loan.setTerm(term);
         loan.setStartDate(startDate);
         loan.setStatus(LoanStatus.PENDING);
-        return loanRepository.save(loan);
+        Loan saved = loanRepository.save(loan);
+        portfolioAggregates.recordTransition(saved, null, null);
+        loanListingCache.invalidateUserAfterCommit(user.getId());
+        return saved;
     }
 
+    @Transactional
+    @Timed(value = "aspire.loan.service", histogram = true)
     @Override
     public Loan approveLoan(Loan loan) {
 
+        LoanStatus previousStatus = loan.getStatus();
         loan.setStatus(LoanStatus.APPROVED);
-
-        BigDecimal weeklyAmount = loan.getAmount().divide(BigDecimal.valueOf(loan.getTerm()), RoundingMode.HALF_UP);
-        List<Repayment> repayments = new ArrayList<>();
-        for (int i = 0; i < loan.getTerm(); i++) {
-            Repayment repayment = new Repayment();
-            repayment.setLoan(loan);
-            repayment.setDueDate(loan.getStartDate().plusWeeks(i));
-            repayment.setAmount(i == loan.getTerm() - 1 ? loan.getAmount().subtract(weeklyAmount.multiply(BigDecimal.valueOf(i))) : weeklyAmount);
-            repayment.setPendingAmount(repayment.getAmount());
-            repayment.setStatus(RepaymentStatus.PENDING);
-            repayments.add(repayment);
+        loan.setUnpaidInstallments(loan.getTerm());
+        loan.setFirstUnpaidInstallment(0);
+        if(virtualSchedules && VirtualSchedule.supports(loan)){
+            loan.setVirtualSchedule(true);
+            loan.setVirtualRepayments(VirtualSchedule.compute(loan, Collections.emptyList(), LocalDate.now()));
+        } else {
+            loan.setRepayments(RepaymentScheduleGenerator.generate(loan));
         }
-        loan.setRepayments(repayments);
-        return loanRepository.save(loan);
+        Loan saved = loanRepository.save(loan);
+        portfolioAggregates.recordTransition(loan, previousStatus, loan.getPendingAmount());
+        loanListingCache.invalidateUserAfterCommit(loan.getUser().getId());
+        return saved;
     }
 
+    @Transactional(readOnly = true)
+    @Timed(value = "aspire.loan.service", histogram = true)
     @Override
     public List<Loan> getLoansByUser(Long userId, String status) {
-        if(status != null && Arrays.asList(LoanStatus.values()).stream().anyMatch(s -> s.name().equals(status))){
-            return loanRepository.findByUserIdAndStatus(userId, LoanStatus.valueOf(status));
+        LoanStatus loanStatus = parseStatus(status);
+        if(loanStatus != null){
+            return attachSchedules(loanRepository.findWithRepaymentsByUserIdAndStatus(userId, loanStatus));
         }
-        return loanRepository.findByUserId(userId);
+        return attachSchedules(loanRepository.findWithRepaymentsByUserId(userId));
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
+    @Timed(value = "aspire.loan.service", histogram = true)
     @Override
-    public Repayment addRepayment(Repayment repayment, BigDecimal amount) {
-
-        if (amount.compareTo(repayment.getPendingAmount()) < 0) {
-            throw new IllegalArgumentException("Repayment amount is less than the pending amount");
+    public List<LoanSummary> getLoanSummariesByUser(Long userId, String status) {
+        LoanStatus loanStatus = parseStatus(status);
+        if(loanStatus != null){
+            return loanRepository.findSummariesByUserIdAndStatus(userId, loanStatus);
         }
-        Loan loan = repayment.getLoan();
-
-        BigDecimal extraAmount = amount.subtract(repayment.getPendingAmount());
+        return loanRepository.findSummariesByUserId(userId);
+    }
 
-        loan.setPendingAmount(loan.getPendingAmount().subtract(repayment.getPendingAmount()));
+    @Transactional(readOnly = true)
+    @Timed(value = "aspire.loan.service", histogram = true)
+    @Override
+    public LoanPage getLoanPage(Long userId, String status, boolean summary, String cursor, int limit) {
+        LoanStatus loanStatus = parseStatus(status);
+        Long afterId = decodeCursor(cursor);
+        // One extra row tells whether another page follows without a count query
+        Pageable pageable = PageRequest.of(0, limit + 1);
+        if(summary){
+            List<LoanSummary> rows = loanRepository.findSummaryPage(userId, loanStatus, afterId, pageable);
+            boolean hasNext = rows.size() > limit;
+            List<LoanSummary> items = hasNext ? rows.subList(0, limit) : rows;
+            return new LoanPage(items, hasNext ? encodeCursor(items.get(items.size() - 1).getId()) : null);
+        }
+        // Paging a collection fetch join would be done in memory, so the page of ids is resolved first
+        List<Long> ids = loanRepository.findIdPage(userId, loanStatus, afterId, pageable);
+        boolean hasNext = ids.size() > limit;
+        List<Long> pageIds = hasNext ? ids.subList(0, limit) : ids;
+        List<Loan> items = pageIds.isEmpty() ? Collections.emptyList() : attachSchedules(loanRepository.findWithRepaymentsByIdIn(pageIds));
+        return new LoanPage(items, hasNext ? encodeCursor(pageIds.get(pageIds.size() - 1)) : null);
+    }
 
-        repayment.setPendingAmount(BigDecimal.ZERO);
-        repayment.setStatus(RepaymentStatus.PAID);
-        repaymentRepository.save(repayment);
+    @Transactional(readOnly = true)
+    @Timed(value = "aspire.loan.service", histogram = true)
+    @Override
+    public void streamLoanSummaries(Long userId, String status, Consumer<LoanSummary> rows) {
+        try (Stream<LoanSummary> summaries = loanRepository.streamSummaries(userId, parseStatus(status))) {
+            summaries.forEach(rows);
+        }
+    }
 
+    /**
+     * Every shard returns its first rows after the cursor in parallel; ids sort the same way on every shard, so the
+     * smallest of the merged rows are exactly the page.
+     */
+    @Timed(value = "aspire.loan.service", histogram = true)
+    @Override
+    public LoanPage getLoanPageByStatus(String status, String cursor, int limit) {
+        LoanStatus loanStatus = parseStatus(status);
+        if(loanStatus == null){
+            throw new IllegalArgumentException("Unknown status");
+        }
+        Long afterId = decodeCursor(cursor);
+        Pageable pageable = PageRequest.of(0, limit + 1);
+        List<LoanSummary> rows = new ArrayList<>();
+        for (List<LoanSummary> shardRows : shardRouter.fanOut(shard -> loanRepository.findSummaryPageByStatus(loanStatus, afterId, pageable))) {
+            rows.addAll(shardRows);
+        }
+        rows.sort(Comparator.comparing(LoanSummary::getId));
+        boolean hasNext = rows.size() > limit;
+        List<LoanSummary> items = hasNext ? rows.subList(0, limit) : rows;
+        return new LoanPage(items, hasNext ? encodeCursor(items.get(items.size() - 1).getId()) : null);
+    }
 
+    private String encodeCursor(Long id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id.toString().getBytes(StandardCharsets.US_ASCII));
+    }
 
+    private Long decodeCursor(String cursor) {
+        if(cursor == null || cursor.isEmpty()){
+            return 0L;
+        }
+        try {
+            return Long.valueOf(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
 
-        // Apply the extra amount to future pending repayments
+    private LoanStatus parseStatus(String status) {
+        if(status != null && Arrays.asList(LoanStatus.values()).stream().anyMatch(s -> s.name().equals(status))){
+            return LoanStatus.valueOf(status);
+        }
+        return null;
+    }
 
-        List<Repayment> futureRepayments;
-        if(loan.getRepayments() != null) {
-            futureRepayments = loan.getRepayments().stream()
-                    .filter(r -> r.getStatus().equals(RepaymentStatus.PENDING) && r.getDueDate().isAfter(repayment.getDueDate()))
-                    .sorted(Comparator.comparing(Repayment::getDueDate))
-                    .collect(Collectors.toList());
+    @Transactional
+    @Timed(value = "aspire.loan.service", histogram = true)
+    @Override
+    public Repayment addRepayment(Repayment repayment, Money amount) {
 
-            for (Repayment futureRepayment : futureRepayments) {
-                if (extraAmount.compareTo(BigDecimal.ZERO) <= 0) {
-                    break;
-                }
+        String error = validateRepayment(repayment, amount);
+        if (error != null) {
+            throw new IllegalArgumentException(error);
+        }
+        Loan loan = repayment.getLoan();
 
-                if (extraAmount.compareTo(futureRepayment.getPendingAmount()) >= 0) {
-                    loan.setPendingAmount(loan.getPendingAmount().subtract(futureRepayment.getPendingAmount()));
-                    extraAmount = extraAmount.subtract(futureRepayment.getPendingAmount());
-                    futureRepayment.setPendingAmount(BigDecimal.ZERO);
-                    futureRepayment.setStatus(RepaymentStatus.PAID);
-                } else {
-                    loan.setPendingAmount(loan.getPendingAmount().subtract(extraAmount));
-                    futureRepayment.setPendingAmount(futureRepayment.getPendingAmount().subtract(extraAmount));
-                    extraAmount = BigDecimal.ZERO;
-                }
-                repaymentRepository.save(futureRepayment);
-            }
-            // Check if all repayments are paid
-            boolean allPaid = loan.getRepayments().stream()
-                    .allMatch(r -> r.getStatus() == RepaymentStatus.PAID);
-            if (allPaid) {
-                loan.setStatus(LoanStatus.PAID);
+        LoanStatus previousStatus = loan.getStatus();
+        Money previousPending = loan.getPendingAmount();
+        // Settle this installment and apply the extra amount to the following pending installments
+        List<Repayment> changedRepayments = RepaymentAllocator.allocate(loan, repayment, amount);
+        if (loan.isVirtualSchedule()) {
+            LoanPayment payment = new LoanPayment();
+            payment.setLoanId(loan.getId());
+            payment.setInstallment(VirtualSchedule.index(repayment.getId()));
+            payment.setAmount(amount);
+            payment.setPaidAt(Instant.now());
+            loanPaymentRepository.save(payment);
+        } else {
+            for (Repayment changed : changedRepayments) {
+                repaymentRepository.save(changed);
             }
         }
         loanRepository.save(loan);
+        portfolioAggregates.recordTransition(loan, previousStatus, previousPending);
+        loanListingCache.invalidateUserAfterCommit(loan.getUser().getId());
         return repayment;
     }
 
+    @Override
+    public String validateRepayment(Repayment repayment, Money amount) {
+        if (repayment.getStatus() == RepaymentStatus.PAID) {
+            return "Repayment already paid";
+        }
+        if (amount.compareTo(repayment.getPendingAmount()) < 0) {
+            return "Repayment amount is less than the pending amount";
+        }
+        if (repayment.getLoan().getPendingAmount().compareTo(amount) < 0) {
+            return "Amount is greater than total pending amount";
+        }
+        return null;
+    }
+
+    @Transactional(readOnly = true)
+    @Timed(value = "aspire.loan.service", histogram = true)
     @Override
     public Repayment getRepaymentById(Long repaymentId) {
+        if(VirtualSchedule.isInstallmentId(repaymentId)){
+            Loan loan = getLoanById(VirtualSchedule.loanId(repaymentId));
+            int index = VirtualSchedule.index(repaymentId);
+            if(loan == null || !loan.isVirtualSchedule() || index >= loan.getRepayments().size()){
+                return null;
+            }
+            return loan.getRepayments().get(index);
+        }
         return repaymentRepository.findById(repaymentId).orElse(null);
     }
 
+    @Transactional(readOnly = true)
+    @Timed(value = "aspire.loan.service", histogram = true)
     @Override
     public Loan getLoanById(Long loanId) {
-        return loanRepository.findById(loanId).orElse(null);
+        Loan loan = loanRepository.findById(loanId).orElse(null);
+        if(loan != null && loan.isVirtualSchedule() && loan.getVirtualRepayments() == null){
+            loan.setVirtualRepayments(VirtualSchedule.compute(loan, loanPaymentRepository.findByLoanIdOrderById(loanId), LocalDate.now()));
+        }
+        return loan;
+    }
+
+    @Transactional(readOnly = true)
+    @Timed(value = "aspire.loan.service", histogram = true)
+    @Override
+    public LoanVersion getLoanVersion(Long loanId) {
+        return loanRepository.findVersionById(loanId);
+    }
+
+    @Transactional(readOnly = true)
+    @Timed(value = "aspire.loan.service", histogram = true)
+    @Override
+    public LoanListingVersion getLoanListingVersion(Long userId) {
+        return loanRepository.findListingVersion(userId);
+    }
+
+    /**
+     * Computes the schedules of loans approved without repayment rows, reading their payments in one query.
+     */
+    private List<Loan> attachSchedules(List<Loan> loans) {
+        List<Long> virtualLoanIds = new ArrayList<>();
+        for (Loan loan : loans) {
+            if (loan.isVirtualSchedule() && loan.getVirtualRepayments() == null) {
+                virtualLoanIds.add(loan.getId());
+            }
+        }
+        if (virtualLoanIds.isEmpty()) {
+            return loans;
+        }
+        Map<Long, List<LoanPayment>> payments = new HashMap<>();
+        for (LoanPayment payment : loanPaymentRepository.findByLoanIdInOrderById(virtualLoanIds)) {
+            payments.computeIfAbsent(payment.getLoanId(), id -> new ArrayList<>()).add(payment);
+        }
+        LocalDate today = LocalDate.now();
+        for (Loan loan : loans) {
+            if (loan.isVirtualSchedule() && loan.getVirtualRepayments() == null) {
+                loan.setVirtualRepayments(VirtualSchedule.compute(loan, payments.getOrDefault(loan.getId(), Collections.emptyList()), today));
+            }
+        }
+        return loans;
     }
 
 
@@ -0,0 +1,145 @@
+package com.aspire.service.impl;
+
+import com.aspire.entities.Loan;
+import com.aspire.entities.Repayment;
+import com.aspire.enums.LoanStatus;
+import com.aspire.enums.RepaymentStatus;
+import com.aspire.money.Money;
+
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies a payment to a loan's repayment schedule. The schedule is kept in due-date order and the loan tracks
+ * the number of unpaid installments and the index of the first one, so a payment only touches the installments
+ * it settles instead of filtering and sorting the whole schedule.
+ */
+public final class RepaymentAllocator {
+
+    private RepaymentAllocator() {
+    }
+
+    /**
+     * Settles {@code repayment} and carries any extra amount over to the following unpaid installments.
+     *
+     * @return the installments whose amounts changed, starting with {@code repayment}
+     */
+    public static List<Repayment> allocate(Loan loan, Repayment repayment, Money amount) {
+        List<Repayment> changed = new ArrayList<>(2);
+        Money extraAmount = amount.minus(repayment.getPendingAmount());
+        loan.setPendingAmount(loan.getPendingAmount().minus(repayment.getPendingAmount()));
+        settle(repayment);
+        changed.add(repayment);
+
+        List<Repayment> schedule = loan.getRepayments();
+        if (schedule == null) {
+            return changed;
+        }
+        if (loan.getUnpaidInstallments() == null || loan.getFirstUnpaidInstallment() == null) {
+            initializeCounters(loan, schedule, repayment);
+        }
+
+        int index = indexOf(loan, schedule, repayment);
+        int next;
+        if (index >= 0) {
+            settle(schedule.get(index));
+            markPaid(loan, schedule, index);
+            next = index + 1;
+        } else {
+            next = firstDueAfter(schedule, repayment);
+        }
+
+        for (int i = next; i < schedule.size() && extraAmount.signum() > 0; i++) {
+            Repayment futureRepayment = schedule.get(i);
+            if (futureRepayment.getStatus() == RepaymentStatus.PAID) {
+                continue;
+            }
+            if (extraAmount.compareTo(futureRepayment.getPendingAmount()) >= 0) {
+                loan.setPendingAmount(loan.getPendingAmount().minus(futureRepayment.getPendingAmount()));
+                extraAmount = extraAmount.minus(futureRepayment.getPendingAmount());
+                settle(futureRepayment);
+                markPaid(loan, schedule, i);
+            } else {
+                loan.setPendingAmount(loan.getPendingAmount().minus(extraAmount));
+                futureRepayment.setPendingAmount(futureRepayment.getPendingAmount().minus(extraAmount));
+                extraAmount = Money.ZERO;
+            }
+            changed.add(futureRepayment);
+        }
+
+        if (loan.getUnpaidInstallments() == 0) {
+            loan.setStatus(LoanStatus.PAID);
+        }
+        if (loan.isOverdue()) {
+            // Overdue installments are the earliest unpaid ones, so the first unpaid installment tells if any remain
+            int first = loan.getFirstUnpaidInstallment();
+            loan.setOverdue(first < schedule.size() && schedule.get(first).getStatus() == RepaymentStatus.OVERDUE);
+        }
+        return changed;
+    }
+
+    private static void settle(Repayment repayment) {
+        repayment.setPendingAmount(Money.ZERO);
+        repayment.setStatus(RepaymentStatus.PAID);
+    }
+
+    private static void markPaid(Loan loan, List<Repayment> schedule, int index) {
+        loan.setUnpaidInstallments(loan.getUnpaidInstallments() - 1);
+        if (index == loan.getFirstUnpaidInstallment()) {
+            int first = index + 1;
+            while (first < schedule.size() && schedule.get(first).getStatus() == RepaymentStatus.PAID) {
+                first++;
+            }
+            loan.setFirstUnpaidInstallment(first);
+        }
+    }
+
+    /**
+     * Installments are due weekly from the start date, so the position is normally known without a search.
+     */
+    private static int indexOf(Loan loan, List<Repayment> schedule, Repayment repayment) {
+        if (loan.getStartDate() != null && repayment.getDueDate() != null) {
+            long expected = ChronoUnit.WEEKS.between(loan.getStartDate(), repayment.getDueDate());
+            if (expected >= 0 && expected < schedule.size() && isSame(schedule.get((int) expected), repayment)) {
+                return (int) expected;
+            }
+        }
+        for (int i = 0; i < schedule.size(); i++) {
+            if (isSame(schedule.get(i), repayment)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int firstDueAfter(List<Repayment> schedule, Repayment repayment) {
+        int i = 0;
+        while (i < schedule.size() && !schedule.get(i).getDueDate().isAfter(repayment.getDueDate())) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isSame(Repayment candidate, Repayment repayment) {
+        return candidate == repayment || (candidate.getId() != null && candidate.getId().equals(repayment.getId()));
+    }
+
+    /**
+     * Loans approved before the counters existed are scanned once; {@code repayment} is still counted as unpaid
+     * because it is marked paid right after.
+     */
+    private static void initializeCounters(Loan loan, List<Repayment> schedule, Repayment repayment) {
+        int unpaid = 0;
+        int first = schedule.size();
+        for (int i = 0; i < schedule.size(); i++) {
+            Repayment installment = schedule.get(i);
+            if (installment.getStatus() != RepaymentStatus.PAID || isSame(installment, repayment)) {
+                unpaid++;
+                first = Math.min(first, i);
+            }
+        }
+        loan.setUnpaidInstallments(unpaid);
+        loan.setFirstUnpaidInstallment(first);
+    }
+}
@@ -0,0 +1,35 @@
+package com.aspire.service.impl;
+
+import com.aspire.entities.Loan;
+import com.aspire.entities.Repayment;
+import com.aspire.enums.RepaymentStatus;
+import com.aspire.money.Money;
+
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the weekly repayment schedule of a loan. Installments are rounded half-up to the cent and the last one
+ * absorbs the rounding difference so the installments always add up to the loan amount.
+ */
+public final class RepaymentScheduleGenerator {
+
+    private RepaymentScheduleGenerator() {
+    }
+
+    public static List<Repayment> generate(Loan loan) {
+        Money weeklyAmount = loan.getAmount().divide(loan.getTerm(), RoundingMode.HALF_UP);
+        List<Repayment> repayments = new ArrayList<>(loan.getTerm());
+        for (int i = 0; i < loan.getTerm(); i++) {
+            Repayment repayment = new Repayment();
+            repayment.setLoan(loan);
+            repayment.setDueDate(loan.getStartDate().plusWeeks(i));
+            repayment.setAmount(i == loan.getTerm() - 1 ? loan.getAmount().minus(weeklyAmount.times(i)) : weeklyAmount);
+            repayment.setPendingAmount(repayment.getAmount());
+            repayment.setStatus(RepaymentStatus.PENDING);
+            repayments.add(repayment);
+        }
+        return repayments;
+    }
+}
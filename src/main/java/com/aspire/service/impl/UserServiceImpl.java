@@ -1,5 +1,7 @@
 package com.aspire.service.impl;
 
+import com.aspire.cache.CacheStats;
+import com.aspire.cache.UserTokenCache;
 import com.aspire.entities.User;
 import com.aspire.repo.UserRepository;
 import com.aspire.service.UserService;
@@ -12,8 +14,37 @@ public class UserServiceImpl implements UserService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserTokenCache userTokenCache;
+
     @Override
     public User getUserByToken(String token) {
-        return userRepository.findByToken(token).orElse(null);
+        if(token == null){
+            return null;
+        }
+        User user = userTokenCache.get(token);
+        if(user != null){
+            return user;
+        }
+        user = userRepository.findByToken(token).orElse(null);
+        if(user != null){
+            userTokenCache.put(token, user);
+        }
+        return user;
+    }
+
+    @Override
+    public void evictToken(String token) {
+        userTokenCache.invalidateToken(token);
+    }
+
+    @Override
+    public void evictUser(Long userId) {
+        userTokenCache.invalidateUser(userId);
+    }
+
+    @Override
+    public CacheStats getTokenCacheStats() {
+        return userTokenCache.stats();
     }
 }
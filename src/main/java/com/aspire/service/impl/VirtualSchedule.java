@@ -0,0 +1,90 @@
+package com.aspire.service.impl;
+
+import com.aspire.entities.Loan;
+import com.aspire.entities.LoanPayment;
+import com.aspire.entities.Repayment;
+import com.aspire.enums.LoanStatus;
+import com.aspire.enums.RepaymentStatus;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Computes the schedule of a loan approved without repayment rows. Every installment is derived from the loan's
+ * amount, term and start date; paid and partly paid installments are rebuilt by replaying the loan's
+ * {@link LoanPayment}s through {@link RepaymentAllocator}, the same way they were applied when they were made.
+ * <p>
+ * Installments get synthetic ids of {@code 2^52 + loanId * 2^16 + index}. They stay clear of the sequence ids of
+ * materialized repayments and below 2^53, so they survive JSON clients that read numbers as doubles.
+ */
+public final class VirtualSchedule {
+
+    private static final long ID_BASE = 1L << 52;
+    private static final int INDEX_BITS = 16;
+    private static final long MAX_LOAN_ID = (1L << (52 - INDEX_BITS)) - 1;
+
+    private VirtualSchedule() {
+    }
+
+    /**
+     * Whether the loan's installments fit into synthetic ids.
+     */
+    public static boolean supports(Loan loan) {
+        return loan.getId() != null && loan.getId() <= MAX_LOAN_ID && loan.getTerm() <= (1 << INDEX_BITS);
+    }
+
+    public static boolean isInstallmentId(Long id) {
+        return id != null && id >= ID_BASE;
+    }
+
+    public static long installmentId(long loanId, int index) {
+        return ID_BASE + (loanId << INDEX_BITS) + index;
+    }
+
+    public static long loanId(long installmentId) {
+        return (installmentId - ID_BASE) >>> INDEX_BITS;
+    }
+
+    public static int index(long installmentId) {
+        return (int) ((installmentId - ID_BASE) & ((1 << INDEX_BITS) - 1));
+    }
+
+    /**
+     * Also sets the loan's overdue flag from the computed schedule, since no overdue run ever marks installments that
+     * have no rows.
+     *
+     * @param payments the loan's payments in the order they were made
+     * @param today    pending installments due before this date are reported as OVERDUE
+     */
+    public static List<Repayment> compute(Loan loan, List<LoanPayment> payments, LocalDate today) {
+        List<Repayment> schedule = RepaymentScheduleGenerator.generate(loan);
+        for (int i = 0; i < schedule.size(); i++) {
+            schedule.get(i).setId(installmentId(loan.getId(), i));
+        }
+        if (!payments.isEmpty()) {
+            // Replay on a copy so the loan's own pending amount and counters, which already include the payments,
+            // are left alone
+            Loan replay = new Loan();
+            replay.setAmount(loan.getAmount());
+            replay.setPendingAmount(loan.getAmount());
+            replay.setTerm(loan.getTerm());
+            replay.setStartDate(loan.getStartDate());
+            replay.setStatus(LoanStatus.APPROVED);
+            replay.setRepayments(schedule);
+            replay.setUnpaidInstallments(schedule.size());
+            replay.setFirstUnpaidInstallment(0);
+            for (LoanPayment payment : payments) {
+                RepaymentAllocator.allocate(replay, schedule.get(payment.getInstallment()), payment.getAmount());
+            }
+        }
+        boolean overdue = false;
+        for (Repayment repayment : schedule) {
+            if (repayment.getStatus() == RepaymentStatus.PENDING && repayment.getDueDate().isBefore(today)) {
+                repayment.setStatus(RepaymentStatus.OVERDUE);
+                overdue = true;
+            }
+        }
+        loan.setOverdue(overdue);
+        return schedule;
+    }
+}
@@ -0,0 +1,49 @@
+package com.aspire.shard;
+
+import java.util.function.Supplier;
+
+/**
+ * The shard the current thread works against. {@link ShardRoutingDataSource} hands out connections to it and
+ * {@link ShardedSequenceGenerator} stamps it into new ids. Threads that never bind a shard use shard 0, which also
+ * holds the reference tables such as users.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static int current() {
+        Integer shard = CURRENT.get();
+        return shard != null ? shard : 0;
+    }
+
+    /**
+     * Binds {@code shard} until the returned scope is closed, which restores whatever was bound before. Bind before
+     * the thread opens a transaction or an entity manager: connections already held keep pointing at their shard.
+     */
+    public static Scope bind(int shard) {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        return () -> {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    public static <T> T call(int shard, Supplier<T> work) {
+        try (Scope ignored = bind(shard)) {
+            return work.get();
+        }
+    }
+
+    public interface Scope extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
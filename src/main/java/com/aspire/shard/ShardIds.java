@@ -0,0 +1,29 @@
+package com.aspire.shard;
+
+/**
+ * Layout of ids generated while sharding is on: the sequence value in the high bits and the shard that issued it
+ * in the low {@value #SHARD_BITS} bits. Ids stay unique across shards, sort in roughly creation order across
+ * shards, and name the shard of their row without a lookup.
+ */
+public final class ShardIds {
+
+    public static final int SHARD_BITS = 8;
+
+    public static final int MAX_SHARDS = 1 << SHARD_BITS;
+
+    private static final long SHARD_MASK = MAX_SHARDS - 1;
+
+    private ShardIds() {
+    }
+
+    public static long encode(long sequenceValue, int shard) {
+        if (shard < 0 || shard >= MAX_SHARDS) {
+            throw new IllegalArgumentException("Shard should be between 0 and " + (MAX_SHARDS - 1));
+        }
+        return sequenceValue << SHARD_BITS | shard;
+    }
+
+    public static int shardOf(long id) {
+        return (int) (id & SHARD_MASK);
+    }
+}
@@ -0,0 +1,167 @@
+package com.aspire.shard;
+
+import com.aspire.service.impl.VirtualSchedule;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Decides which shard owns a user or an id, and runs work against a shard.
+ * <p>
+ * A user's loans, installments and payments all live on {@code userId mod shardCount}, and their ids carry that
+ * shard (see {@link ShardIds}), so a single loan or repayment is always read from exactly one shard. Work for a
+ * shard other than the one the caller is bound to runs on a worker thread of its own: a request thread already
+ * holds an entity manager, and with it a connection, for its own shard. With a single shard everything runs inline
+ * on the calling thread and no workers are started.
+ */
+@Component
+public class ShardRouter {
+
+    private final int shardCount;
+    private final ExecutorService executor;
+
+    @Autowired
+    public ShardRouter(ShardingProperties properties) {
+        this(properties.shardCount(), properties.getFanOutThreads());
+    }
+
+    public ShardRouter(int shardCount, int threads) {
+        if (shardCount <= 0 || shardCount > ShardIds.MAX_SHARDS) {
+            throw new IllegalArgumentException("Shard count should be between 1 and " + ShardIds.MAX_SHARDS);
+        }
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Fan-out threads should be greater than 0");
+        }
+        this.shardCount = shardCount;
+        if (shardCount == 1) {
+            this.executor = null;
+            return;
+        }
+        AtomicInteger workers = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, task -> {
+            Thread worker = new Worker(task, "shard-worker-" + workers.incrementAndGet());
+            worker.setDaemon(true);
+            return worker;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    public int shardCount() {
+        return shardCount;
+    }
+
+    public int shardOfUser(Long userId) {
+        if (shardCount == 1) {
+            return 0;
+        }
+        return (int) Math.floorMod(userId, (long) shardCount);
+    }
+
+    /**
+     * The shard of a loan, repayment or payment id. Installments of a virtual schedule have no row of their own and
+     * live with their loan. An id naming a shard that does not exist cannot be found anywhere, so it is sent to
+     * some shard to come back as not found.
+     */
+    public int shardOfId(Long id) {
+        if (shardCount == 1) {
+            return 0;
+        }
+        long owner = VirtualSchedule.isInstallmentId(id) ? VirtualSchedule.loanId(id) : id;
+        return ShardIds.shardOf(owner) % shardCount;
+    }
+
+    /**
+     * Groups items by shard, keeping their order within each shard. Shards come out in ascending order.
+     */
+    public <T> Map<Integer, List<T>> partition(Collection<T> items, ToIntFunction<T> shardOf) {
+        Map<Integer, List<T>> groups = new TreeMap<>();
+        for (T item : items) {
+            groups.computeIfAbsent(shardOf.applyAsInt(item), shard -> new ArrayList<>()).add(item);
+        }
+        return groups;
+    }
+
+    /**
+     * Runs {@code work} against {@code shard} and waits for its result. The work should open its own transactions;
+     * on a worker thread it never joins the caller's.
+     */
+    public <T> T onShard(int shard, Supplier<T> work) {
+        if (shard < 0 || shard >= shardCount) {
+            throw new IllegalArgumentException("Unknown shard " + shard);
+        }
+        if (executor == null) {
+            return work.get();
+        }
+        if (Thread.currentThread() instanceof Worker) {
+            // Already off the request thread; queueing again could wait on a pool this thread is holding
+            return ShardContext.call(shard, work);
+        }
+        return join(CompletableFuture.supplyAsync(() -> ShardContext.call(shard, work), executor));
+    }
+
+    /**
+     * Runs {@code work} against every shard in parallel and returns the results in shard order. If any shard fails,
+     * the others are still waited for before the first failure is rethrown.
+     */
+    public <T> List<T> fanOut(IntFunction<T> work) {
+        List<T> results = new ArrayList<>(shardCount);
+        if (executor == null || Thread.currentThread() instanceof Worker) {
+            for (int shard = 0; shard < shardCount; shard++) {
+                int current = shard;
+                results.add(ShardContext.call(current, () -> work.apply(current)));
+            }
+            return results;
+        }
+        List<CompletableFuture<T>> futures = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            int current = shard;
+            futures.add(CompletableFuture.supplyAsync(() -> ShardContext.call(current, () -> work.apply(current)), executor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).handle((ignored, ex) -> null).join();
+        for (CompletableFuture<T> future : futures) {
+            results.add(join(future));
+        }
+        return results;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            if (ex.getCause() instanceof Error) {
+                throw (Error) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    private static final class Worker extends Thread {
+
+        private Worker(Runnable task, String name) {
+            super(task, name);
+        }
+    }
+}
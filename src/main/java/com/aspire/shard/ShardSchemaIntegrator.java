@@ -0,0 +1,58 @@
+package com.aspire.shard;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.tool.hbm2ddl.SchemaUpdate;
+import org.hibernate.tool.schema.TargetType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * Prepares shards 1 and up while Hibernate starts, since Spring Boot only initializes shard 0: runs the SQL init
+ * scripts on them first, so the users table every shard references exists, then applies {@code ddl-auto=update}
+ * with each shard bound in turn. Other {@code ddl-auto} modes leave the extra shards alone.
+ */
+class ShardSchemaIntegrator implements Integrator {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardSchemaIntegrator.class);
+
+    private final ShardRoutingDataSource dataSource;
+    private final List<Resource> scripts;
+    private final IntPredicate runScripts;
+
+    ShardSchemaIntegrator(ShardRoutingDataSource dataSource, List<Resource> scripts, IntPredicate runScripts) {
+        this.dataSource = dataSource;
+        this.scripts = scripts;
+        this.runScripts = runScripts;
+    }
+
+    @Override
+    public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+        Object ddlAuto = serviceRegistry.getService(ConfigurationService.class).getSettings().get(AvailableSettings.HBM2DDL_AUTO);
+        for (int shard = 1; shard < dataSource.shardCount(); shard++) {
+            if (runScripts.test(shard) && !scripts.isEmpty()) {
+                new ResourceDatabasePopulator(scripts.toArray(new Resource[0])).execute(dataSource.shard(shard));
+            }
+            if ("update".equals(String.valueOf(ddlAuto))) {
+                try (ShardContext.Scope ignored = ShardContext.bind(shard)) {
+                    new SchemaUpdate().execute(EnumSet.of(TargetType.DATABASE), metadata, serviceRegistry);
+                }
+                log.info("Updated the schema of shard {}", shard);
+            }
+        }
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+}
@@ -0,0 +1,63 @@
+package com.aspire.shard;
+
+import org.hibernate.HibernateException;
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.Optimizer;
+import org.hibernate.id.enhanced.OptimizerFactory;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.util.Properties;
+
+/**
+ * A pooled sequence per shard, with the issuing shard stamped into every id (see {@link ShardIds}). Each shard has
+ * its own copy of the sequence, read over the session's connection, and its own block of cached values. With a
+ * single shard, ids are plain sequence values, exactly as the standard sequence generator issues them.
+ */
+public class ShardedSequenceGenerator extends SequenceStyleGenerator {
+
+    /** Hibernate setting carrying the number of shards; absent means a single shard. */
+    public static final String SHARD_COUNT_SETTING = "aspire.sharding.shard-count";
+
+    private int shardCount = 1;
+    private Optimizer[] optimizers;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        super.configure(type, params, serviceRegistry);
+        shardCount = ConfigurationHelper.getInt(SHARD_COUNT_SETTING,
+                serviceRegistry.getService(ConfigurationService.class).getSettings(), 1);
+        optimizers = new Optimizer[shardCount];
+        optimizers[0] = getOptimizer();
+        for (int shard = 1; shard < shardCount; shard++) {
+            optimizers[shard] = OptimizerFactory.buildOptimizer(getOptimizer().getClass().getName(), type.getReturnedClass(),
+                    getOptimizer().getIncrementSize(), ConfigurationHelper.getInt(INITIAL_PARAM, params, -1));
+        }
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) throws HibernateException {
+        if (shardCount == 1) {
+            return super.generate(session, object);
+        }
+        int shard = ShardContext.current();
+        if (shard >= shardCount) {
+            throw new HibernateException("Unknown shard " + shard);
+        }
+        Number value = (Number) optimizers[shard].generate(getDatabaseStructure().buildCallback(session));
+        return ShardIds.encode(value.longValue(), shard);
+    }
+
+    /**
+     * Insert-select statements would take plain values straight from the sequence, without the shard.
+     */
+    @Override
+    public boolean supportsBulkInsertionIdentifierGeneration() {
+        return shardCount == 1 && super.supportsBulkInsertionIdentifierGeneration();
+    }
+}
@@ -0,0 +1,94 @@
+package com.aspire.shard;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.jpa.boot.internal.EntityManagerFactoryBuilderImpl;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the single {@code spring.datasource} pool with one pool per shard once {@code aspire.sharding.enabled}
+ * is set. Shard 0 is configured from {@code spring.datasource.*}; the others take their {@code url},
+ * {@code username} and {@code password} from {@code aspire.sharding.shards[n]} and share the driver and the
+ * {@code spring.datasource.hikari.*} pool settings. Sharding and a read replica cannot be combined.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "aspire.sharding", name = "enabled", havingValue = "true")
+public class ShardingConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource shardZeroDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("shard-0");
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public ShardRoutingDataSource dataSource(HikariDataSource shardZeroDataSource, ShardingProperties sharding,
+                                             DataSourceProperties properties, Environment environment) {
+        if (StringUtils.hasText(environment.getProperty("aspire.datasource.replica.url"))) {
+            throw new IllegalStateException("A read replica cannot be used together with sharding");
+        }
+        List<DataSource> shards = new ArrayList<>();
+        shards.add(shardZeroDataSource);
+        for (ShardingProperties.Shard shard : sharding.getShards()) {
+            if (!StringUtils.hasText(shard.getUrl())) {
+                throw new IllegalStateException("Shard " + shards.size() + " has no url");
+            }
+            HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(shard.getUrl())
+                    .username(shard.getUsername() != null ? shard.getUsername() : properties.determineUsername())
+                    .password(shard.getPassword() != null ? shard.getPassword() : properties.determinePassword())
+                    .driverClassName(properties.determineDriverClassName())
+                    .build();
+            Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
+            dataSource.setPoolName("shard-" + shards.size());
+            shards.add(dataSource);
+        }
+        return new ShardRoutingDataSource(shards);
+    }
+
+    /**
+     * Tells the id generators how many shards there are and prepares the schema of the extra shards. The SQL init
+     * scripts run on an extra shard under the same {@code spring.sql.init.mode} rule Spring Boot applies to shard 0.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer shardingHibernateCustomizer(ShardRoutingDataSource dataSource,
+                                                                     Environment environment, ResourceLoader resourceLoader) {
+        String mode = environment.getProperty("spring.sql.init.mode", "embedded");
+        List<Resource> scripts = new ArrayList<>();
+        for (String location : new String[]{"classpath:schema.sql", "classpath:data.sql"}) {
+            Resource script = resourceLoader.getResource(location);
+            if (script.exists()) {
+                scripts.add(script);
+            }
+        }
+        ShardSchemaIntegrator integrator = new ShardSchemaIntegrator(dataSource, scripts, shard ->
+                "always".equalsIgnoreCase(mode)
+                        || "embedded".equalsIgnoreCase(mode) && EmbeddedDatabaseConnection.isEmbedded(dataSource.shard(shard)));
+        return properties -> {
+            properties.put(ShardedSequenceGenerator.SHARD_COUNT_SETTING, dataSource.shardCount());
+            properties.put(EntityManagerFactoryBuilderImpl.INTEGRATOR_PROVIDER, (IntegratorProvider) () -> List.of(integrator));
+        };
+    }
+}
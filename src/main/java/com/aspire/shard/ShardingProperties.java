@@ -0,0 +1,42 @@
+package com.aspire.shard;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shards of the loan tables, bound from {@code aspire.sharding.*}. Shard 0 is the {@code spring.datasource}
+ * database; {@code shards} lists the additional ones in order, so the first entry is shard 1. The number of shards
+ * decides where every user's loans live and cannot change once loans have been written.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "aspire.sharding")
+public class ShardingProperties {
+
+    private boolean enabled = false;
+
+    private List<Shard> shards = new ArrayList<>();
+
+    /** Threads running per-shard work for fan-out queries, jobs and admin requests. */
+    private int fanOutThreads = 8;
+
+    @Data
+    public static class Shard {
+
+        private String url;
+
+        /** Defaults to {@code spring.datasource.username}. */
+        private String username;
+
+        /** Defaults to {@code spring.datasource.password}. */
+        private String password;
+    }
+
+    public int shardCount() {
+        return enabled ? 1 + shards.size() : 1;
+    }
+}
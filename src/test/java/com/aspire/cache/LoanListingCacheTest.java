@@ -0,0 +1,166 @@
+package com.aspire.cache;
+
+import com.aspire.config.datasource.ReadYourWrites;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class LoanListingCacheTest {
+
+    private static final String ETAG = "\"loans-1-1-0\"";
+
+    private MutableClock clock;
+
+    private ReadYourWrites readYourWrites;
+
+    private LoanListingCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        clock = new MutableClock(Instant.parse("2024-01-01T10:00:00Z"));
+        readYourWrites = mock(ReadYourWrites.class);
+        cache = new LoanListingCache(1000, clock, readYourWrites);
+    }
+
+    @Test
+    public void testGet_HitAndMiss() {
+        byte[] body = body(10);
+        assertTrue(cache.put(1L, "APPROVED", false, cache.generation(1L), ETAG, body));
+
+        assertSame(body, cache.get(1L, "APPROVED", false).getBody());
+        assertEquals(ETAG, cache.get(1L, "APPROVED", false).getETag());
+        assertNull(cache.get(1L, "APPROVED", true));
+        assertNull(cache.get(1L, null, false));
+
+        ListingCacheStats stats = cache.stats();
+        assertEquals(2, stats.getHits());
+        assertEquals(2, stats.getMisses());
+    }
+
+    @Test
+    public void testGet_UnknownStatusSharesUnfilteredListing() {
+        cache.put(1L, null, false, cache.generation(1L), ETAG, body(10));
+
+        assertNotNull(cache.get(1L, "bogus", false));
+    }
+
+    @Test
+    public void testPut_EvictsLeastRecentlyUsedOverBudget() {
+        cache.put(1L, null, false, cache.generation(1L), ETAG, body(300));
+        cache.put(2L, null, false, cache.generation(2L), ETAG, body(300));
+        cache.get(1L, null, false);
+        cache.put(3L, null, false, cache.generation(3L), ETAG, body(300));
+
+        assertNull(cache.get(2L, null, false));
+        assertNotNull(cache.get(1L, null, false));
+        assertNotNull(cache.get(3L, null, false));
+        assertEquals(1, cache.stats().getEvictions());
+        assertTrue(cache.bytes() <= 1000);
+    }
+
+    @Test
+    public void testPut_SkipsListingOverBudget() {
+        assertFalse(cache.put(1L, null, false, cache.generation(1L), ETAG, body(2000)));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testInvalidateUser_DropsOnlyThatUser() {
+        cache.put(2L, null, false, cache.generation(2L), ETAG, body(10));
+        long otherUserBytes = cache.bytes();
+        cache.put(1L, null, false, cache.generation(1L), ETAG, body(10));
+        cache.put(1L, null, true, cache.generation(1L), ETAG, body(10));
+        cache.put(1L, "PAID", true, cache.generation(1L), ETAG, body(10));
+
+        cache.invalidateUser(1L);
+
+        assertNull(cache.get(1L, null, false));
+        assertNull(cache.get(1L, null, true));
+        assertNull(cache.get(1L, "PAID", true));
+        assertNotNull(cache.get(2L, null, false));
+        assertEquals(1, cache.size());
+        assertEquals(otherUserBytes, cache.bytes());
+    }
+
+    @Test
+    public void testPut_RejectsListingLoadedBeforeInvalidation() {
+        long generation = cache.generation(1L);
+
+        cache.invalidateUser(1L);
+
+        assertFalse(cache.put(1L, null, false, generation, ETAG, body(10)));
+        assertNull(cache.get(1L, null, false));
+    }
+
+    @Test
+    public void testInvalidateUserAfterCommit_WaitsForCommit() {
+        cache.put(1L, null, false, cache.generation(1L), ETAG, body(10));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.invalidateUserAfterCommit(1L);
+            assertNotNull(cache.get(1L, null, false));
+            verify(readYourWrites, never()).recordWrite(1L);
+
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCommit();
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertNull(cache.get(1L, null, false));
+        verify(readYourWrites).recordWrite(1L);
+    }
+
+    @Test
+    public void testGet_DropsListingsFromAnEarlierDay() {
+        cache.put(1L, null, false, cache.generation(1L), ETAG, body(10));
+
+        clock.advance(Duration.ofDays(1));
+
+        assertNull(cache.get(1L, null, false));
+        assertEquals(0, cache.bytes());
+    }
+
+    private byte[] body(int size) {
+        return new byte[size];
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.aspire.cache;
+
+import com.aspire.config.metrics.StatementCountingInspector;
+import com.aspire.entities.Loan;
+import com.aspire.entities.Repayment;
+import com.aspire.entities.User;
+import com.aspire.money.Money;
+import com.aspire.repo.LoanRepository;
+import com.aspire.repo.RepaymentRepository;
+import com.aspire.service.LoanService;
+import com.aspire.service.UserService;
+import com.aspire.support.SqlStatementRecorder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Reads of loans, their repayments and users are answered by the second-level cache once warm, and writes through
+ * the services are visible to the next read.
+ */
+@SpringBootTest
+public class SecondLevelCacheTest {
+
+    private static final String TOKEN = "token1";
+
+    @Autowired
+    private StatementCountingInspector statementCountingInspector;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserTokenCache userTokenCache;
+
+    @Autowired
+    private SecondLevelCache secondLevelCache;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private RepaymentRepository repaymentRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private SqlStatementRecorder sql;
+
+    private Loan loan;
+
+    @BeforeEach
+    public void setUp() {
+        sql = new SqlStatementRecorder(statementCountingInspector);
+        User user = userService.getUserByToken(TOKEN);
+        loan = loanService.approveLoan(loanService.createLoan(user, Money.ofMajor(400), 4, LocalDate.now().plusDays(1)));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        repaymentRepository.deleteAllInBatch();
+        loanRepository.deleteAllInBatch();
+    }
+
+    @Test
+    public void testRepeatedReads_IssueNoSql() throws Throwable {
+        Long repaymentId = readLoan().getRepayments().get(1).getId();
+        readRepayment(repaymentId);
+        userTokenCache.invalidateAll();
+        userService.getUserByToken(TOKEN);
+
+        sql.assertAtMost(0, "repeated reads", () -> {
+            Loan cached = readLoan();
+            assertEquals(4, cached.getRepayments().size());
+            assertEquals(Money.ofMajor(100), readRepayment(repaymentId).getPendingAmount());
+            userTokenCache.invalidateAll();
+            assertNotNull(userService.getUserByToken(TOKEN));
+            return cached;
+        });
+
+        EntityCacheStats loans = stats(Loan.class.getName());
+        assertTrue(loans.getHits() > 0);
+        assertTrue(loans.getHitRatio() > 0.0);
+    }
+
+    @Test
+    public void testRepeatedListing_IssuesNoSql() throws Throwable {
+        Long userId = loan.getUser().getId();
+        readListing(userId);
+
+        List<Loan> cached = sql.assertAtMost(0, "repeated listing", () -> readListing(userId));
+        assertEquals(4, cached.get(0).getRepayments().size());
+
+        loanService.createLoan(loan.getUser(), Money.ofMajor(200), 2, LocalDate.now().plusDays(1));
+
+        assertEquals(cached.size() + 1, readListing(userId).size());
+    }
+
+    @Test
+    public void testRepayment_VisibleToNextRead() {
+        Long repaymentId = readLoan().getRepayments().get(0).getId();
+
+        transactionTemplate.execute(status ->
+                loanService.addRepayment(loanService.getRepaymentById(repaymentId), Money.ofMajor(150)));
+
+        Loan updated = readLoan();
+        assertEquals(Money.ofMajor(250), updated.getPendingAmount());
+        assertEquals(Money.ZERO, updated.getRepayments().get(0).getPendingAmount());
+        assertEquals(Money.ofMajor(50), updated.getRepayments().get(1).getPendingAmount());
+    }
+
+    /**
+     * Reads the loan and walks its schedule in a transaction of its own, so nothing comes from the session.
+     */
+    private Loan readLoan() {
+        return transactionTemplate.execute(status -> {
+            Loan found = loanService.getLoanById(loan.getId());
+            found.getRepayments().forEach(Repayment::getPendingAmount);
+            return found;
+        });
+    }
+
+    /**
+     * Runs every query the loan listing endpoint can issue for the user: the listing version behind the ETag and
+     * the full and summary listings, with and without a status.
+     */
+    private List<Loan> readListing(Long userId) {
+        return transactionTemplate.execute(status -> {
+            loanService.getLoanListingVersion(userId);
+            loanService.getLoanSummariesByUser(userId, null);
+            loanService.getLoanSummariesByUser(userId, "APPROVED");
+            loanService.getLoansByUser(userId, "APPROVED");
+            List<Loan> loans = loanService.getLoansByUser(userId, null);
+            loans.forEach(found -> found.getRepayments().forEach(Repayment::getPendingAmount));
+            return loans;
+        });
+    }
+
+    private Repayment readRepayment(Long repaymentId) {
+        return transactionTemplate.execute(status -> loanService.getRepaymentById(repaymentId));
+    }
+
+    private EntityCacheStats stats(String region) {
+        return secondLevelCache.stats().stream()
+                .filter(stats -> stats.getRegion().equals(region))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No cache region " + region));
+    }
+}
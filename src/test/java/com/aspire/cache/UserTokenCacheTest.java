@@ -0,0 +1,86 @@
+package com.aspire.cache;
+
+import com.aspire.entities.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class UserTokenCacheTest {
+
+    private AtomicLong clock;
+
+    private UserTokenCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        clock = new AtomicLong();
+        cache = new UserTokenCache(2, Duration.ofSeconds(10), clock::get);
+    }
+
+    @Test
+    public void testGet_HitAndMiss() {
+        User user = user(1L);
+        cache.put("token1", user);
+
+        assertEquals(user, cache.get("token1"));
+        assertNull(cache.get("token2"));
+
+        CacheStats stats = cache.stats();
+        assertEquals(1, stats.getHits());
+        assertEquals(1, stats.getMisses());
+    }
+
+    @Test
+    public void testGet_ExpiredEntry() {
+        cache.put("token1", user(1L));
+
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+
+        assertNull(cache.get("token1"));
+        assertEquals(1, cache.stats().getExpirations());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testPut_EvictsLeastRecentlyUsed() {
+        cache.put("token1", user(1L));
+        cache.put("token2", user(2L));
+        cache.get("token1");
+        cache.put("token3", user(3L));
+
+        assertNull(cache.get("token2"));
+        assertEquals(1L, cache.get("token1").getId());
+        assertEquals(1, cache.stats().getEvictions());
+    }
+
+    @Test
+    public void testInvalidateUser() {
+        cache.put("token1", user(1L));
+        cache.put("token2", user(2L));
+
+        cache.invalidateUser(1L);
+
+        assertNull(cache.get("token1"));
+        assertEquals(2L, cache.get("token2").getId());
+    }
+
+    @Test
+    public void testInvalidateToken() {
+        cache.put("token1", user(1L));
+
+        cache.invalidateToken("token1");
+
+        assertNull(cache.get("token1"));
+    }
+
+    private User user(Long id) {
+        User user = new User();
+        user.setId(id);
+        return user;
+    }
+}
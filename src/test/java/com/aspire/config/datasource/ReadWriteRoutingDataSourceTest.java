@@ -0,0 +1,138 @@
+package com.aspire.config.datasource;
+
+import com.aspire.cache.LoanListingCache;
+import com.aspire.config.filter.RequestFilter;
+import com.aspire.entities.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Two in-memory H2 databases stand in for the primary and the replica; each holds a single row naming itself.
+ */
+public class ReadWriteRoutingDataSourceTest {
+
+    private AtomicLong clock;
+
+    private ReadYourWrites readYourWrites;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate readWrite;
+
+    private TransactionTemplate readOnly;
+
+    @BeforeEach
+    public void setUp() {
+        clock = new AtomicLong();
+        readYourWrites = new ReadYourWrites(true, Duration.ofSeconds(2), clock::get);
+        DataSource dataSource = new LazyConnectionDataSourceProxy(
+                new ReadWriteRoutingDataSource(database("primary"), database("replica"), readYourWrites));
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void testReadOnlyTransaction_UsesReplica() {
+        assertEquals("replica", readOnly.execute(status -> node()));
+    }
+
+    @Test
+    public void testReadWriteTransaction_UsesPrimary() {
+        assertEquals("primary", readWrite.execute(status -> node()));
+    }
+
+    @Test
+    public void testNoTransaction_UsesPrimary() {
+        assertEquals("primary", node());
+    }
+
+    @Test
+    public void testWriteRequest_ReadsFromPrimary() {
+        bindRequest("POST", 1L);
+
+        assertEquals("primary", readOnly.execute(status -> node()));
+    }
+
+    @Test
+    public void testReadYourWrites_PinsUserForWindow() {
+        bindRequest("GET", 1L);
+        readYourWrites.recordWrite(1L);
+
+        assertEquals("primary", readOnly.execute(status -> node()));
+
+        bindRequest("GET", 2L);
+        assertEquals("replica", readOnly.execute(status -> node()));
+
+        bindRequest("GET", 1L);
+        clock.addAndGet(Duration.ofSeconds(2).toNanos());
+        assertEquals("replica", readOnly.execute(status -> node()));
+    }
+
+    @Test
+    public void testReadYourWrites_PinsLoanOwnerWhenAnotherUserWrites() {
+        LoanListingCache loanListingCache = new LoanListingCache(1024, readYourWrites);
+        bindRequest("POST", 99L);
+        readWrite.execute(status -> {
+            loanListingCache.invalidateUserAfterCommit(1L);
+            return null;
+        });
+
+        bindRequest("GET", 1L);
+        assertEquals("primary", readOnly.execute(status -> node()));
+    }
+
+    @Test
+    public void testReadYourWrites_DisabledWithoutReplica() {
+        ReadYourWrites disabled = new ReadYourWrites(false, Duration.ofSeconds(2), clock::get);
+
+        disabled.recordWrite(1L);
+
+        assertFalse(disabled.isPinned(1L));
+    }
+
+    private String node() {
+        return jdbcTemplate.queryForObject("select name from node", String.class);
+    }
+
+    private void bindRequest(String method, Long userId) {
+        User user = new User();
+        user.setId(userId);
+        MockHttpServletRequest request = new MockHttpServletRequest(method, "/api/loans");
+        request.setAttribute(RequestFilter.USER_ATTRIBUTE, user);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    private DataSource database(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("create table node (name varchar(16))");
+        jdbc.update("insert into node (name) values (?)", name);
+        return dataSource;
+    }
+}
@@ -1,13 +1,19 @@
 package com.aspire.config.filter;
 
+import com.aspire.config.datasource.ReadYourWrites;
 import com.aspire.entities.User;
 import com.aspire.enums.UserRoles;
+import com.aspire.logging.AccessLogger;
+import com.aspire.ratelimit.AimdConcurrencyLimiter;
+import com.aspire.ratelimit.RequestAdmission;
 import com.aspire.service.UserService;
+import com.aspire.shard.ShardRouter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.mock.web.MockFilterChain;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
@@ -17,6 +23,17 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class RequestFilterTest {
@@ -27,6 +44,18 @@ public class RequestFilterTest {
     @Mock
     private UserService userService;
 
+    @Mock
+    private AccessLogger accessLogger;
+
+    @Mock
+    private RequestAdmission requestAdmission;
+
+    @Mock
+    private ReadYourWrites readYourWrites;
+
+    @Spy
+    private ShardRouter shardRouter = new ShardRouter(1, 1);
+
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.openMocks(this);
@@ -115,6 +144,25 @@ public class RequestFilterTest {
         requestFilter.doFilterInternal(request, response, filterChain);
 
         assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+        assertEquals(user, request.getAttribute(RequestFilter.USER_ATTRIBUTE));
+    }
+
+    @Test
+    public void testFilter_Forbidden_DoesNotPublishUser() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRequestURI("/api/admin");
+        request.addHeader("x-user-token", "valid-token");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain filterChain = new MockFilterChain();
+
+        User user = new User();
+        user.setRole(UserRoles.USER);
+
+        when(userService.getUserByToken("valid-token")).thenReturn(user);
+
+        requestFilter.doFilterInternal(request, response, filterChain);
+
+        assertNull(request.getAttribute(RequestFilter.USER_ATTRIBUTE));
     }
 
     @Test
@@ -134,4 +182,174 @@ public class RequestFilterTest {
 
         assertEquals(HttpServletResponse.SC_OK, response.getStatus());
     }
+
+    @Test
+    public void testFilter_LogsAccess() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/loans");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain filterChain = new MockFilterChain();
+
+        requestFilter.doFilterInternal(request, response, filterChain);
+
+        verify(accessLogger).log(eq("GET"), eq("/api/loans"), isNull(), eq(HttpServletResponse.SC_UNAUTHORIZED), anyLong());
+    }
+
+    @Test
+    public void testFilter_LogsUserId() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/loans");
+        request.addHeader("x-user-token", "valid-token");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain filterChain = new MockFilterChain();
+
+        User user = new User();
+        user.setId(3L);
+        user.setRole(UserRoles.USER);
+
+        when(userService.getUserByToken("valid-token")).thenReturn(user);
+
+        requestFilter.doFilterInternal(request, response, filterChain);
+
+        verify(accessLogger).log(eq("GET"), eq("/api/loans"), eq(3L), eq(HttpServletResponse.SC_OK), anyLong());
+    }
+
+    @Test
+    public void testFilter_AsyncRequest_LogsOnCompletion() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/loans");
+        request.setAsyncSupported(true);
+        request.addHeader("x-user-token", "valid-token");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        User user = new User();
+        user.setId(3L);
+        user.setRole(UserRoles.USER);
+
+        when(userService.getUserByToken("valid-token")).thenReturn(user);
+
+        requestFilter.doFilterInternal(request, response, (req, res) -> req.startAsync());
+        verify(accessLogger, never()).log(anyString(), anyString(), any(), anyInt(), anyLong());
+
+        response.setStatus(HttpServletResponse.SC_CREATED);
+        request.getAsyncContext().complete();
+
+        verify(accessLogger).log(eq("GET"), eq("/api/loans"), eq(3L), eq(HttpServletResponse.SC_CREATED), anyLong());
+    }
+
+    @Test
+    public void testFilter_TooManyRequests() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/loans");
+        request.addHeader("x-user-token", "valid-token");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain filterChain = new MockFilterChain();
+
+        User user = new User();
+        user.setRole(UserRoles.USER);
+
+        when(userService.getUserByToken("valid-token")).thenReturn(user);
+        when(requestAdmission.checkRate("/api/loans", "valid-token")).thenReturn(1_500_000_000L);
+
+        requestFilter.doFilterInternal(request, response, filterChain);
+
+        assertEquals(429, response.getStatus());
+        assertEquals("2", response.getHeader("Retry-After"));
+        assertNull(filterChain.getRequest());
+    }
+
+    @Test
+    public void testFilter_WriteShedWhenOverConcurrencyLimit() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/loans");
+        request.addHeader("x-user-token", "valid-token");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain filterChain = new MockFilterChain();
+
+        User user = new User();
+        user.setRole(UserRoles.USER);
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(1, 1, 1, Long.MAX_VALUE);
+        limiter.tryAcquire();
+
+        when(userService.getUserByToken("valid-token")).thenReturn(user);
+        when(requestAdmission.writeLimiter("/api/loans", "POST")).thenReturn(limiter);
+
+        requestFilter.doFilterInternal(request, response, filterChain);
+
+        assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, response.getStatus());
+        assertEquals("1", response.getHeader("Retry-After"));
+        assertNull(filterChain.getRequest());
+    }
+
+    @Test
+    public void testFilter_WriteReleasesConcurrencySlot() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/loans");
+        request.addHeader("x-user-token", "valid-token");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain filterChain = new MockFilterChain();
+
+        User user = new User();
+        user.setRole(UserRoles.USER);
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(1, 1, 1, Long.MAX_VALUE);
+
+        when(userService.getUserByToken("valid-token")).thenReturn(user);
+        when(requestAdmission.writeLimiter("/api/loans", "POST")).thenReturn(limiter);
+
+        requestFilter.doFilterInternal(request, response, filterChain);
+
+        assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+        assertEquals(0, limiter.getInFlight());
+        assertNotNull(filterChain.getRequest());
+    }
+
+    @Test
+    public void testFilter_AsyncWriteHoldsSlotUntilComplete() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/admin/loans/approve");
+        request.setAsyncSupported(true);
+        request.addHeader("x-user-token", "valid-token");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        User user = new User();
+        user.setRole(UserRoles.ADMIN);
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(1, 1, 1, Long.MAX_VALUE);
+
+        when(userService.getUserByToken("valid-token")).thenReturn(user);
+        when(requestAdmission.writeLimiter("/api/admin/loans/approve", "POST")).thenReturn(limiter);
+
+        requestFilter.doFilterInternal(request, response, (req, res) -> req.startAsync());
+        assertEquals(1, limiter.getInFlight());
+
+        request.getAsyncContext().complete();
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testFilter_WriteReleasesSlotWhenChainThrows() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/loans");
+        request.addHeader("x-user-token", "valid-token");
+
+        User user = new User();
+        user.setRole(UserRoles.USER);
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(1, 1, 1, Long.MAX_VALUE);
+
+        when(userService.getUserByToken("valid-token")).thenReturn(user);
+        when(requestAdmission.writeLimiter("/api/loans", "POST")).thenReturn(limiter);
+
+        assertThrows(ServletException.class, () -> requestFilter.doFilterInternal(request, new MockHttpServletResponse(),
+                (req, res) -> { throw new ServletException("boom"); }));
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testFilter_WriteKeepsUserOnPrimary() throws ServletException, IOException {
+        User user = new User();
+        user.setId(7L);
+        user.setRole(UserRoles.USER);
+        when(userService.getUserByToken("valid-token")).thenReturn(user);
+
+        MockHttpServletRequest read = new MockHttpServletRequest("GET", "/api/loans");
+        read.addHeader("x-user-token", "valid-token");
+        requestFilter.doFilterInternal(read, new MockHttpServletResponse(), new MockFilterChain());
+        verify(readYourWrites, never()).recordWrite(anyLong());
+
+        MockHttpServletRequest write = new MockHttpServletRequest("POST", "/api/loans");
+        write.addHeader("x-user-token", "valid-token");
+        requestFilter.doFilterInternal(write, new MockHttpServletResponse(), new MockFilterChain());
+        verify(readYourWrites).recordWrite(7L);
+    }
 }
@@ -0,0 +1,201 @@
+package com.aspire.controller;
+
+import com.aspire.cache.UserTokenCache;
+import com.aspire.config.metrics.StatementCountingInspector;
+import com.aspire.entities.Loan;
+import com.aspire.entities.User;
+import com.aspire.money.Money;
+import com.aspire.repo.LoanRepository;
+import com.aspire.repo.RepaymentRepository;
+import com.aspire.service.LoanService;
+import com.aspire.service.UserService;
+import com.aspire.support.SqlBudgetTestConfig;
+import com.aspire.support.SqlStatementRecorder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * SQL statement budgets for the admin endpoints, worked out the same way as in {@link LoanControllerSqlBudgetTest}.
+ * The admin token is looked up once before each test so the query cache answers the token lookup of the request
+ * itself. The fixture creates a pending and an approved loan, which also takes the first blocks of
+ * {@code loan_seq} and {@code repayment_seq}; the pooled optimizer reads a sequence twice the first time only.
+ * Streaming endpoints are dispatched to completion so the statements of the response body are counted too.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:sql-budget")
+@AutoConfigureMockMvc
+@Import(SqlBudgetTestConfig.class)
+public class AdminControllerSqlBudgetTest {
+
+    private static final String TOKEN = "admin-token6";
+
+    private static final List<String> STATS_ENDPOINTS = List.of("/api/admin/cache/user-tokens", "/api/admin/cache/entities",
+            "/api/admin/cache/loan-listings", "/api/admin/metrics/repayment-retries", "/api/admin/metrics/repayment-batches",
+            "/api/admin/metrics/access-log");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private StatementCountingInspector statementCountingInspector;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserTokenCache userTokenCache;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private RepaymentRepository repaymentRepository;
+
+    private SqlStatementRecorder sql;
+
+    private User borrower;
+
+    private Loan pendingLoan;
+
+    @BeforeEach
+    public void setUp() {
+        sql = new SqlStatementRecorder(statementCountingInspector);
+        userService.getUserByToken(TOKEN);
+        borrower = userService.getUserByToken("token1");
+        pendingLoan = loanService.createLoan(borrower, Money.ofMajor(1200), 12, LocalDate.now().plusDays(1));
+        loanService.approveLoan(loanService.createLoan(borrower, Money.ofMajor(400), 4, LocalDate.now().plusDays(1)));
+        userTokenCache.invalidateAll();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        repaymentRepository.deleteAllInBatch();
+        loanRepository.deleteAllInBatch();
+    }
+
+    @Test
+    public void testGetPendingLoans_Budget() throws Throwable {
+        // One keyset page of loan summaries
+        sql.assertAtMost(1, "GET /api/admin/loans", () ->
+                mockMvc.perform(get("/api/admin/loans").header("x-user-token", TOKEN)).andExpect(status().isOk()));
+    }
+
+    @Test
+    public void testApproveLoan_Budget() throws Throwable {
+        // The loan comes from the entity cache. Its 12 installments fit one batch and at most one new sequence block,
+        // so: sequence, installment insert batch, loan update
+        sql.assertAtMost(3, "POST /api/admin/loans/{loanId}/approve", () ->
+                mockMvc.perform(post("/api/admin/loans/{loanId}/approve", pendingLoan.getId()).header("x-user-token", TOKEN))
+                        .andExpect(status().isOk()));
+    }
+
+    @Test
+    public void testBulkApprove_Budget() throws Throwable {
+        List<Long> loanIds = new ArrayList<>();
+        loanIds.add(pendingLoan.getId());
+        for (int i = 0; i < 4; i++) {
+            loanIds.add(loanService.createLoan(borrower, Money.ofMajor(400), 4, LocalDate.now().plusDays(1)).getId());
+        }
+        String body = "{\"loanIds\": " + loanIds + "}";
+        // One chunk: select the pending loans, bulk update them, then 28 installments in one sequence block at most
+        // and one insert batch. Per-loan selects or updates would go over
+        sql.assertAtMost(4, "POST /api/admin/loans/approve for 5 loans", () ->
+                dispatchAsync(post("/api/admin/loans/approve").header("x-user-token", TOKEN)
+                        .contentType(MediaType.APPLICATION_JSON).content(body)));
+    }
+
+    @Test
+    public void testImportLoans_Budget() throws Throwable {
+        String csv = "username,amount,term,startDate,status,paidAmount\n"
+                + "user1,1000,4," + LocalDate.now().plusDays(1) + ",PENDING,\n"
+                + "user1,1000,4," + LocalDate.now().minusMonths(2) + ",APPROVED,250\n"
+                + "user2,1000,4," + LocalDate.now().minusMonths(2) + ",APPROVED,0\n"
+                + "user2,800,4," + LocalDate.now().minusMonths(6) + ",PAID,800\n"
+                + "user3,600,4," + LocalDate.now().plusDays(1) + ",PENDING,\n";
+        // One chunk: a single lookup of its usernames, then a sequence block and an insert batch each for the 5 loans
+        // and their 12 installments
+        sql.assertAtMost(5, "POST /api/admin/loans/import of 5 rows", () ->
+                mockMvc.perform(post("/api/admin/loans/import").header("x-user-token", TOKEN)
+                                .contentType("text/csv").content(csv))
+                        .andExpect(status().isOk()));
+    }
+
+    @Test
+    public void testExportLoans_Budget() throws Throwable {
+        // A single streamed query, however many loans there are
+        sql.assertAtMost(1, "GET /api/admin/exports/loans", () ->
+                dispatchAsync(get("/api/admin/exports/{ledger}", "loans").header("x-user-token", TOKEN)));
+    }
+
+    @Test
+    public void testExportRepayments_Budget() throws Throwable {
+        // A single streamed query that joins each installment's loan
+        sql.assertAtMost(1, "GET /api/admin/exports/repayments", () ->
+                dispatchAsync(get("/api/admin/exports/{ledger}", "repayments").header("x-user-token", TOKEN)));
+    }
+
+    @Test
+    public void testReconcilePortfolio_Budget() throws Throwable {
+        // Two group-by queries per shard, and there is one shard
+        sql.assertAtMost(2, "POST /api/admin/portfolio/reconcile", () ->
+                mockMvc.perform(post("/api/admin/portfolio/reconcile").header("x-user-token", TOKEN)).andExpect(status().isOk()));
+    }
+
+    @Test
+    public void testRunOverdueProcessing_Budget() throws Throwable {
+        // Three installments of the approved loan are due, one chunk: its ids, their owners, the installment update,
+        // the two loan updates, then the empty id query that ends the run
+        sql.assertAtMost(6, "POST /api/admin/repayments/overdue/run", () ->
+                mockMvc.perform(post("/api/admin/repayments/overdue/run").param("asOf", LocalDate.now().plusMonths(3).toString())
+                        .header("x-user-token", TOKEN)).andExpect(status().isOk()));
+    }
+
+    @Test
+    public void testGetPortfolio_Budget() throws Throwable {
+        sql.assertAtMost(0, "GET /api/admin/portfolio", () ->
+                mockMvc.perform(get("/api/admin/portfolio").header("x-user-token", TOKEN)).andExpect(status().isOk()));
+    }
+
+    @Test
+    public void testGetUserExposure_Budget() throws Throwable {
+        sql.assertAtMost(0, "GET /api/admin/portfolio/users/{userId}", () ->
+                mockMvc.perform(get("/api/admin/portfolio/users/{userId}", borrower.getId()).header("x-user-token", TOKEN))
+                        .andExpect(status().isOk()));
+    }
+
+    @Test
+    public void testStatsEndpoints_Budget() throws Throwable {
+        // Cache and metrics figures are all held in memory
+        for (String endpoint : STATS_ENDPOINTS) {
+            sql.assertAtMost(0, "GET " + endpoint, () ->
+                    mockMvc.perform(get(endpoint).header("x-user-token", TOKEN)).andExpect(status().isOk()));
+        }
+    }
+
+    private ResultActions dispatchAsync(MockHttpServletRequestBuilder requestBuilder) throws Exception {
+        MvcResult result = mockMvc.perform(requestBuilder).andExpect(request().asyncStarted()).andReturn();
+        return mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+    }
+}
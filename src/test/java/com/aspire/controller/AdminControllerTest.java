@@ -1,17 +1,61 @@
 package com.aspire.controller;
 
+import com.aspire.cache.CacheStats;
+import com.aspire.cache.EntityCacheStats;
+import com.aspire.cache.ListingCacheStats;
+import com.aspire.cache.LoanListingCache;
+import com.aspire.cache.SecondLevelCache;
 import com.aspire.entities.Loan;
+import com.aspire.export.ExportFormat;
+import com.aspire.export.Ledger;
+import com.aspire.export.LedgerExporter;
+import com.aspire.logging.AccessLogStats;
+import com.aspire.logging.AccessLogger;
+import com.aspire.money.Money;
+import com.aspire.overdue.OverdueProcessingJob;
+import com.aspire.overdue.OverdueRunReport;
+import com.aspire.portfolio.PortfolioAggregates;
+import com.aspire.portfolio.PortfolioReconciliationJob;
+import com.aspire.request.BulkApprovalRequest;
 import com.aspire.response.BaseResponse;
+import com.aspire.response.LoanApprovalResult;
+import com.aspire.response.LoanImportReport;
+import com.aspire.response.LoanPage;
+import com.aspire.repayment.RepaymentBatchStats;
+import com.aspire.repayment.RepaymentBatcher;
+import com.aspire.retry.OptimisticRetryExecutor;
+import com.aspire.retry.RetryStats;
+import com.aspire.service.LoanApprovalService;
+import com.aspire.service.LoanImportService;
 import com.aspire.service.LoanService;
+import com.aspire.service.UserService;
+import com.aspire.shard.ShardRouter;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 public class AdminControllerTest {
@@ -22,11 +66,83 @@ public class AdminControllerTest {
     @Mock
     private LoanService loanService;
 
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private LoanApprovalService loanApprovalService;
+
+    @Mock
+    private LoanImportService loanImportService;
+
+    @Mock
+    private LedgerExporter ledgerExporter;
+
+    @Mock
+    private OptimisticRetryExecutor optimisticRetryExecutor;
+
+    @Mock
+    private RepaymentBatcher repaymentBatcher;
+
+    @Mock
+    private SecondLevelCache secondLevelCache;
+
+    @Mock
+    private LoanListingCache loanListingCache;
+
+    @Mock
+    private AccessLogger accessLogger;
+
+    @Mock
+    private PortfolioAggregates portfolioAggregates;
+
+    @Mock
+    private PortfolioReconciliationJob portfolioReconciliationJob;
+
+    @Mock
+    private OverdueProcessingJob overdueProcessingJob;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Spy
+    private ShardRouter shardRouter = new ShardRouter(1, 1);
+
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.openMocks(this);
     }
 
+    @Test
+    public void testGetLoans_CapsLimit() {
+        LoanPage page = new LoanPage(Collections.emptyList(), null);
+        when(loanService.getLoanPageByStatus("PENDING", null, 500)).thenReturn(page);
+
+        ResponseEntity<BaseResponse> response = adminController.getLoans("PENDING", 10000, null);
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(page, response.getBody().getData());
+    }
+
+    @Test
+    public void testGetLoans_InvalidLimit() {
+        ResponseEntity<BaseResponse> response = adminController.getLoans("PENDING", 0, null);
+
+        assertEquals(400, response.getStatusCodeValue());
+        assertEquals("Limit should be greater than 0", response.getBody().getMessage());
+        verify(loanService, never()).getLoanPageByStatus(any(), any(), anyInt());
+    }
+
+    @Test
+    public void testGetLoans_UnknownStatus() {
+        when(loanService.getLoanPageByStatus("OPEN", null, 50)).thenThrow(new IllegalArgumentException("Unknown status"));
+
+        ResponseEntity<BaseResponse> response = adminController.getLoans("OPEN", null, null);
+
+        assertEquals(400, response.getStatusCodeValue());
+        assertEquals("Unknown status", response.getBody().getMessage());
+    }
+
     @Test
     public void testApproveLoan_LoanNotFound() {
         when(loanService.getLoanById(anyLong())).thenReturn(null);
@@ -62,4 +178,222 @@ public class AdminControllerTest {
         verify(loanService, times(1)).getLoanById(anyLong());
         verify(loanService, times(1)).approveLoan(any(Loan.class));
     }
+
+    @Test
+    public void testGetUserTokenCacheStats() {
+        CacheStats stats = new CacheStats(1, 10, 5L, 1L, 0L, 0L);
+        when(userService.getTokenCacheStats()).thenReturn(stats);
+
+        ResponseEntity<BaseResponse> response = adminController.getUserTokenCacheStats();
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(stats, response.getBody().getData());
+    }
+
+    @Test
+    public void testGetEntityCacheStats() {
+        List<EntityCacheStats> stats = Collections.singletonList(new EntityCacheStats("com.aspire.entities.Loan", 3L, 9L, 1L, 3L));
+        when(secondLevelCache.stats()).thenReturn(stats);
+
+        ResponseEntity<BaseResponse> response = adminController.getEntityCacheStats();
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(stats, response.getBody().getData());
+        assertEquals(0.9, stats.get(0).getHitRatio(), 1e-9);
+    }
+
+    @Test
+    public void testGetLoanListingCacheStats() {
+        ListingCacheStats stats = new ListingCacheStats(2, 4096L, 1024L * 1024, 6L, 2L, 0L, 1L);
+        when(loanListingCache.stats()).thenReturn(stats);
+
+        ResponseEntity<BaseResponse> response = adminController.getLoanListingCacheStats();
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(stats, response.getBody().getData());
+    }
+
+    @Test
+    public void testGetRepaymentRetryStats() {
+        RetryStats stats = new RetryStats(10L, 12L, 2L, 0L);
+        when(optimisticRetryExecutor.stats()).thenReturn(stats);
+
+        ResponseEntity<BaseResponse> response = adminController.getRepaymentRetryStats();
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(stats, response.getBody().getData());
+    }
+
+    @Test
+    public void testGetRepaymentBatchStats() {
+        RepaymentBatchStats stats = new RepaymentBatchStats(true, 0, 4L, 40L, 1L, 0L, 2L);
+        when(repaymentBatcher.stats()).thenReturn(stats);
+
+        ResponseEntity<BaseResponse> response = adminController.getRepaymentBatchStats();
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(10.0, ((RepaymentBatchStats) response.getBody().getData()).getAverageBatchSize());
+    }
+
+    @Test
+    public void testGetUserExposure() {
+        when(portfolioAggregates.exposure(1L)).thenReturn(Money.ofMajor(250));
+
+        ResponseEntity<BaseResponse> response = adminController.getUserExposure(1L);
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(Money.ofMajor(250), response.getBody().getData());
+    }
+
+    @Test
+    public void testReconcilePortfolio() {
+        when(portfolioReconciliationJob.reconcile()).thenReturn(Collections.singletonList("count[APPROVED] 1 != 2"));
+
+        ResponseEntity<BaseResponse> response = adminController.reconcilePortfolio();
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(Collections.singletonList("count[APPROVED] 1 != 2"), response.getBody().getData());
+    }
+
+    @Test
+    public void testRunOverdueProcessing() {
+        LocalDate asOf = LocalDate.of(2024, 1, 10);
+        OverdueRunReport report = new OverdueRunReport(asOf, 1, 5L, 2L, 10L);
+        when(overdueProcessingJob.run(asOf)).thenReturn(report);
+
+        ResponseEntity<BaseResponse> response = adminController.runOverdueProcessing(asOf);
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(report, response.getBody().getData());
+    }
+
+    @Test
+    public void testRunOverdueProcessing_AlreadyRunning() {
+        when(overdueProcessingJob.run(any())).thenThrow(new IllegalStateException("Overdue processing is already running"));
+
+        ResponseEntity<BaseResponse> response = adminController.runOverdueProcessing(null);
+
+        assertEquals(409, response.getStatusCodeValue());
+        assertEquals("Overdue processing is already running", response.getBody().getMessage());
+    }
+
+    @Test
+    public void testImportLoans_DetectsFormatFromContentType() throws IOException {
+        LoanImportReport report = new LoanImportReport(2, 2, 8, 0, null, 5);
+        when(loanImportService.importLoans(any(), eq(true))).thenReturn(report);
+
+        ResponseEntity<BaseResponse> response = adminController.importLoans("text/csv; charset=UTF-8",
+                new ByteArrayInputStream(new byte[0]));
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(report, response.getBody().getData());
+        verify(loanImportService, times(1)).importLoans(any(), eq(true));
+    }
+
+    @Test
+    public void testImportLoans_InvalidHeader() throws IOException {
+        when(loanImportService.importLoans(any(), eq(false))).thenThrow(new IllegalArgumentException("CSV header is missing"));
+
+        ResponseEntity<BaseResponse> response = adminController.importLoans("application/x-ndjson",
+                new ByteArrayInputStream(new byte[0]));
+
+        assertEquals(400, response.getStatusCodeValue());
+    }
+
+    @Test
+    public void testExportLedger_Gzip() throws IOException {
+        when(ledgerExporter.export(eq(Ledger.REPAYMENTS), eq(ExportFormat.CSV), any())).thenAnswer(invocation -> {
+            invocation.getArgument(2, OutputStream.class).write("id,loanId\n".getBytes());
+            return 1L;
+        });
+
+        ResponseEntity<StreamingResponseBody> response = adminController.exportLedger("repayments", "csv", true);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        response.getBody().writeTo(output);
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals("application/gzip", response.getHeaders().getContentType().toString());
+        assertTrue(response.getHeaders().getFirst("Content-Disposition").contains("repayments.csv.gz"));
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(output.toByteArray()))) {
+            assertEquals("id,loanId\n", new String(input.readAllBytes()));
+        }
+    }
+
+    @Test
+    public void testExportLedger_UnknownFormat() throws IOException {
+        ResponseEntity<StreamingResponseBody> response = adminController.exportLedger("loans", "xml", false);
+
+        assertEquals(400, response.getStatusCodeValue());
+        assertEquals("Unknown ledger or format", streamedMessage(response));
+        verifyNoInteractions(ledgerExporter);
+    }
+
+    @Test
+    public void testGetAccessLogStats() {
+        AccessLogStats stats = new AccessLogStats(8192, 3L, 100L, 2L, 0L);
+        when(accessLogger.stats()).thenReturn(stats);
+
+        ResponseEntity<BaseResponse> response = adminController.getAccessLogStats();
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(stats, response.getBody().getData());
+    }
+
+    @Test
+    public void testEvictUserTokens() {
+        ResponseEntity<BaseResponse> response = adminController.evictUserTokens(1L);
+
+        assertEquals(200, response.getStatusCodeValue());
+        verify(userService, times(1)).evictUser(1L);
+    }
+
+    @Test
+    public void testApproveLoans_MissingIdsAndStatus() throws IOException {
+        ResponseEntity<StreamingResponseBody> response = adminController.approveLoans(new BulkApprovalRequest());
+
+        assertEquals(400, response.getStatusCodeValue());
+        assertEquals("Loan ids or status is required", streamedMessage(response));
+        verifyNoInteractions(loanApprovalService);
+    }
+
+    @Test
+    public void testApproveLoans_InvalidStatus() throws IOException {
+        BulkApprovalRequest request = new BulkApprovalRequest();
+        request.setStatus("APPROVED");
+
+        ResponseEntity<StreamingResponseBody> response = adminController.approveLoans(request);
+
+        assertEquals(400, response.getStatusCodeValue());
+        assertEquals("Only PENDING loans can be approved", streamedMessage(response));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testApproveLoans_StreamsResults() throws IOException {
+        BulkApprovalRequest request = new BulkApprovalRequest();
+        request.setLoanIds(Arrays.asList(1L, 2L));
+
+        doAnswer(invocation -> {
+            Consumer<LoanApprovalResult> results = invocation.getArgument(1);
+            results.accept(new LoanApprovalResult(1L, true, "Loan approved successfully"));
+            results.accept(new LoanApprovalResult(2L, false, "Loan not found or not pending"));
+            return null;
+        }).when(loanApprovalService).approveLoans(eq(request), any(Consumer.class));
+
+        ResponseEntity<StreamingResponseBody> response = adminController.approveLoans(request);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        response.getBody().writeTo(outputStream);
+
+        String[] lines = outputStream.toString().split("\n");
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"loanId\":1"));
+        assertTrue(lines[1].contains("\"approved\":false"));
+    }
+
+    private String streamedMessage(ResponseEntity<StreamingResponseBody> response) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        response.getBody().writeTo(output);
+        return objectMapper.readTree(output.toByteArray()).get("message").asText();
+    }
 }
@@ -0,0 +1,176 @@
+package com.aspire.controller;
+
+import com.aspire.cache.UserTokenCache;
+import com.aspire.config.metrics.StatementCountingInspector;
+import com.aspire.entities.Loan;
+import com.aspire.entities.User;
+import com.aspire.money.Money;
+import com.aspire.repo.LoanRepository;
+import com.aspire.repo.RepaymentRepository;
+import com.aspire.service.LoanService;
+import com.aspire.service.UserService;
+import com.aspire.support.SqlBudgetTestConfig;
+import com.aspire.support.SqlStatementRecorder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * SQL statement budgets for the borrower endpoints. Each budget is the sum of the statements the endpoint needs,
+ * listed next to it, so a budget only moves when that list does. The token cache is cleared before each test, but
+ * the token was just looked up, so the Hibernate query cache answers the lookup without SQL. The fixture has several
+ * loans with several installments each, so an N+1 on {@code Loan.repayments} or {@code Repayment.loan} goes well over
+ * budget. Reads pay one query for the version behind their ETag. Inserts may pay one sequence call when a pooled
+ * block of 50 ids runs out.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:sql-budget")
+@AutoConfigureMockMvc
+@Import(SqlBudgetTestConfig.class)
+public class LoanControllerSqlBudgetTest {
+
+    private static final String TOKEN = "token1";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private StatementCountingInspector statementCountingInspector;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserTokenCache userTokenCache;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private RepaymentRepository repaymentRepository;
+
+    private SqlStatementRecorder sql;
+
+    private List<Loan> loans;
+
+    @BeforeEach
+    public void setUp() {
+        sql = new SqlStatementRecorder(statementCountingInspector);
+        User user = userService.getUserByToken(TOKEN);
+        loans = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Loan loan = loanService.createLoan(user, Money.ofMajor(400), 4, LocalDate.now().plusDays(1));
+            loans.add(loanService.approveLoan(loan));
+        }
+        userTokenCache.invalidateAll();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        repaymentRepository.deleteAllInBatch();
+        loanRepository.deleteAllInBatch();
+    }
+
+    @Test
+    public void testGetLoans_Budget() throws Throwable {
+        // Listing version, then the loans with their installments in one join
+        sql.assertAtMost(2, "GET /api/loans", () ->
+                mockMvc.perform(get("/api/loans").header("x-user-token", TOKEN)).andExpect(status().isOk()));
+    }
+
+    @Test
+    public void testGetLoans_CachedBudget() throws Throwable {
+        mockMvc.perform(get("/api/loans").header("x-user-token", TOKEN)).andExpect(status().isOk());
+        // The listing version comes from the query cache and the body from the listing cache
+        sql.assertAtMost(0, "GET /api/loans from the listing cache", () ->
+                mockMvc.perform(get("/api/loans").header("x-user-token", TOKEN)).andExpect(status().isOk()));
+    }
+
+    @Test
+    public void testGetLoanSummaries_Budget() throws Throwable {
+        // Listing version, then one projection query
+        sql.assertAtMost(2, "GET /api/loans?view=summary", () ->
+                mockMvc.perform(get("/api/loans").param("view", "summary").header("x-user-token", TOKEN))
+                        .andExpect(status().isOk()));
+    }
+
+    @Test
+    public void testGetLoanPage_Budget() throws Throwable {
+        // Listing version, the page's ids, then those loans with their installments
+        sql.assertAtMost(3, "GET /api/loans?limit=2", () ->
+                mockMvc.perform(get("/api/loans").param("limit", "2").header("x-user-token", TOKEN))
+                        .andExpect(status().isOk()));
+    }
+
+    @Test
+    public void testStreamLoans_Budget() throws Throwable {
+        // One streamed projection query, counted on the thread that writes the body
+        sql.assertAtMost(1, "GET /api/loans/stream", () -> {
+            MvcResult result = mockMvc.perform(get("/api/loans/stream").header("x-user-token", TOKEN))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            return mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+        });
+    }
+
+    @Test
+    public void testGetLoanById_Budget() throws Throwable {
+        // Owner and version for the 403 check and the ETag, then the installments; the loan is in the entity cache
+        sql.assertAtMost(2, "GET /api/loans/{loanId}", () ->
+                mockMvc.perform(get("/api/loans/{loanId}", loans.get(0).getId()).header("x-user-token", TOKEN))
+                        .andExpect(status().isOk()));
+    }
+
+    @Test
+    public void testGetLoanById_NotModifiedBudget() throws Throwable {
+        String etag = mockMvc.perform(get("/api/loans/{loanId}", loans.get(0).getId()).header("x-user-token", TOKEN))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        userTokenCache.invalidateAll();
+        // Owner and version only; nothing is loaded for a 304
+        sql.assertAtMost(1, "GET /api/loans/{loanId} with If-None-Match", () ->
+                mockMvc.perform(get("/api/loans/{loanId}", loans.get(0).getId()).header("x-user-token", TOKEN)
+                        .header("If-None-Match", etag))
+                        .andExpect(status().isNotModified()));
+    }
+
+    @Test
+    public void testCreateLoan_Budget() throws Throwable {
+        String body = "{\"amount\": 1000, \"term\": 4, \"startDate\": \"" + LocalDate.now().plusDays(1) + "\"}";
+        // Loan insert, and a sequence call if the block of ids runs out
+        sql.assertAtMost(2, "POST /api/loans", () ->
+                mockMvc.perform(post("/api/loans").header("x-user-token", TOKEN)
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                        .andExpect(status().isOk()));
+    }
+
+    @Test
+    public void testAddRepayment_Budget() throws Throwable {
+        Long repaymentId = repaymentRepository.findByLoanId(loans.get(0).getId()).get(0).getId();
+        // Installment and loan come from the entity cache. The loan's installments for the allocation, then the
+        // installment and loan updates
+        sql.assertAtMost(3, "POST /api/loans/repayments/{repaymentId}", () ->
+                mockMvc.perform(post("/api/loans/repayments/{repaymentId}", repaymentId).header("x-user-token", TOKEN)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"amount\": 100}"))
+                        .andExpect(status().isOk()));
+    }
+}
@@ -1,30 +1,56 @@
 package com.aspire.controller;
 
+import com.aspire.cache.LoanListingCache;
+import com.aspire.config.datasource.ReadYourWrites;
 import com.aspire.entities.Loan;
 import com.aspire.entities.Repayment;
 import com.aspire.entities.User;
+import com.aspire.enums.LoanStatus;
 import com.aspire.enums.RepaymentStatus;
+import com.aspire.money.Money;
 import com.aspire.request.LoanRequest;
 import com.aspire.request.RepaymentRequest;
 import com.aspire.response.BaseResponse;
+import com.aspire.response.LoanListingVersion;
+import com.aspire.response.LoanPage;
+import com.aspire.response.LoanSummary;
+import com.aspire.response.LoanVersion;
+import com.aspire.repayment.RepaymentBatcher;
+import com.aspire.retry.OptimisticRetryExecutor;
 import com.aspire.service.LoanService;
-import com.aspire.service.UserService;
+import com.aspire.shard.ShardRouter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
 
-import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class LoanControllerTest {
@@ -33,27 +59,41 @@ public class LoanControllerTest {
     private LoanController loanController;
 
     @Mock
-    private UserService userService;
+    private LoanService loanService;
 
     @Mock
-    private LoanService loanService;
+    private OptimisticRetryExecutor optimisticRetryExecutor;
+
+    @Mock
+    private LoanListingCache loanListingCache;
+
+    @Mock
+    private RepaymentBatcher repaymentBatcher;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Spy
+    private ShardRouter shardRouter = new ShardRouter(1, 1);
 
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(loanController, "objectMapper", objectMapper);
+        when(optimisticRetryExecutor.execute(any())).thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(0)).get());
+        when(loanService.getLoanListingVersion(anyLong())).thenReturn(new LoanListingVersion(0L, 0L, 0L));
     }
 
     @Test
     public void testCreateLoan_InvalidAmount() {
-        Map<String, String> headers = new HashMap<>();
-        headers.put("x-user-token", "valid-token");
+        User user = new User();
+        user.setId(1L);
 
         LoanRequest loanRequest = new LoanRequest();
-        loanRequest.setAmount(BigDecimal.valueOf(0.0));
+        loanRequest.setAmount(Money.ofMajor(0));
         loanRequest.setTerm(12);
         loanRequest.setStartDate(LocalDate.now().plusDays(1));
 
-        ResponseEntity<BaseResponse> response = loanController.createLoan(headers, loanRequest);
+        ResponseEntity<BaseResponse> response = loanController.createLoan(user, loanRequest);
 
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
         assertEquals("Amount should be greater than 0", response.getBody().getMessage());
@@ -61,15 +101,15 @@ public class LoanControllerTest {
 
     @Test
     public void testCreateLoan_InvalidTerm() {
-        Map<String, String> headers = new HashMap<>();
-        headers.put("x-user-token", "valid-token");
+        User user = new User();
+        user.setId(1L);
 
         LoanRequest loanRequest = new LoanRequest();
-        loanRequest.setAmount(BigDecimal.valueOf(1000.0));
+        loanRequest.setAmount(Money.ofMajor(1000));
         loanRequest.setTerm(0);
         loanRequest.setStartDate(LocalDate.now().plusDays(1));
 
-        ResponseEntity<BaseResponse> response = loanController.createLoan(headers, loanRequest);
+        ResponseEntity<BaseResponse> response = loanController.createLoan(user, loanRequest);
 
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
         assertEquals("Term should be greater than 0", response.getBody().getMessage());
@@ -77,15 +117,15 @@ public class LoanControllerTest {
 
     @Test
     public void testCreateLoan_InvalidStartDate() {
-        Map<String, String> headers = new HashMap<>();
-        headers.put("x-user-token", "valid-token");
+        User user = new User();
+        user.setId(1L);
 
         LoanRequest loanRequest = new LoanRequest();
-        loanRequest.setAmount(BigDecimal.valueOf(1000.0));
+        loanRequest.setAmount(Money.ofMajor(1000));
         loanRequest.setTerm(12);
         loanRequest.setStartDate(LocalDate.now().minusDays(1));
 
-        ResponseEntity<BaseResponse> response = loanController.createLoan(headers, loanRequest);
+        ResponseEntity<BaseResponse> response = loanController.createLoan(user, loanRequest);
 
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
         assertEquals("Start date should not be in past", response.getBody().getMessage());
@@ -93,11 +133,8 @@ public class LoanControllerTest {
 
     @Test
     public void testCreateLoan_Success() {
-        Map<String, String> headers = new HashMap<>();
-        headers.put("x-user-token", "valid-token");
-
         LoanRequest loanRequest = new LoanRequest();
-        loanRequest.setAmount(BigDecimal.valueOf(1000.0));
+        loanRequest.setAmount(Money.ofMajor(1000));
         loanRequest.setTerm(12);
         loanRequest.setStartDate(LocalDate.now().plusDays(1));
 
@@ -108,10 +145,9 @@ public class LoanControllerTest {
         loan.setId(1L);
         loan.setUser(user);
 
-        when(userService.getUserByToken("valid-token")).thenReturn(user);
         when(loanService.createLoan(user, loanRequest.getAmount(), loanRequest.getTerm(), loanRequest.getStartDate())).thenReturn(loan);
 
-        ResponseEntity<BaseResponse> response = loanController.createLoan(headers, loanRequest);
+        ResponseEntity<BaseResponse> response = loanController.createLoan(user, loanRequest);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals("Loan created successfully", response.getBody().getMessage());
@@ -119,35 +155,119 @@ public class LoanControllerTest {
     }
 
     @Test
-    public void testGetLoans_Success() {
-        Map<String, String> headers = new HashMap<>();
-        headers.put("x-user-token", "valid-token");
-
+    public void testGetLoans_Success() throws Exception {
         User user = new User();
         user.setId(1L);
 
-        when(userService.getUserByToken("valid-token")).thenReturn(user);
         when(loanService.getLoansByUser(1L, null)).thenReturn(Collections.emptyList());
 
-        ResponseEntity<BaseResponse> response = loanController.getLoans(headers, (String) null);
+        ResponseEntity<?> response = loanController.getLoans(user, null, "full", null, null, webRequest());
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertEquals("Success", response.getBody().getMessage());
-        assertEquals(Collections.emptyList(), response.getBody().getData());
+        JsonNode body = objectMapper.readTree((byte[]) response.getBody());
+        assertEquals("Success", body.get("message").asText());
+        assertEquals(objectMapper.valueToTree(Collections.emptyList()), body.get("data"));
+        verify(loanListingCache).put(eq(1L), isNull(), eq(false), anyLong(), eq("\"loans-1-0-0\""), any(byte[].class));
     }
 
     @Test
-    public void testGetLoan_LoanNotFound() {
-        Map<String, String> headers = new HashMap<>();
-        headers.put("x-user-token", "valid-token");
+    public void testGetLoans_Summary() throws Exception {
+        User user = new User();
+        user.setId(1L);
+
+        LoanSummary summary = new LoanSummary(1L, Money.ofMajor(1000), Money.ofMajor(1000), 4, LocalDate.now(), LoanStatus.PENDING);
+        when(loanService.getLoanSummariesByUser(1L, "PENDING")).thenReturn(Collections.singletonList(summary));
+
+        ResponseEntity<?> response = loanController.getLoans(user, "PENDING", "summary", null, null, webRequest());
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        JsonNode data = objectMapper.readTree((byte[]) response.getBody()).get("data");
+        assertEquals(1, data.size());
+        assertEquals(1L, data.get(0).get("id").asLong());
+        assertEquals("PENDING", data.get(0).get("status").asText());
+        verify(loanService, never()).getLoansByUser(anyLong(), any());
+    }
+
+    @Test
+    public void testGetLoans_CachedListingSkipsServices() {
+        User user = new User();
+        user.setId(1L);
+        byte[] body = "{\"message\":\"Success\"}".getBytes(StandardCharsets.UTF_8);
+        LoanListingCache cache = new LoanListingCache(1024, mock(ReadYourWrites.class));
+        cache.put(1L, null, false, cache.generation(1L), "\"loans-1-2-5\"", body);
+        ReflectionTestUtils.setField(loanController, "loanListingCache", cache);
+
+        ResponseEntity<?> response = loanController.getLoans(user, null, "full", null, null, webRequest());
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(body, response.getBody());
+        verify(loanService, never()).getLoanListingVersion(anyLong());
+        verify(loanService, never()).getLoansByUser(anyLong(), any());
+    }
+
+    @Test
+    public void testGetLoans_CachedListingNotModified() {
+        User user = new User();
+        user.setId(1L);
+        LoanListingCache cache = new LoanListingCache(1024, mock(ReadYourWrites.class));
+        cache.put(1L, null, false, cache.generation(1L), "\"loans-1-2-5\"", new byte[]{'{', '}'});
+        ReflectionTestUtils.setField(loanController, "loanListingCache", cache);
+        ServletWebRequest webRequest = webRequest();
+        ((MockHttpServletRequest) webRequest.getRequest()).addHeader("If-None-Match", "\"loans-1-2-5\"");
+
+        ResponseEntity<?> response = loanController.getLoans(user, null, "full", null, null, webRequest);
+
+        assertNull(response);
+        assertEquals(304, webRequest.getResponse().getStatus());
+        verify(loanService, never()).getLoanListingVersion(anyLong());
+    }
+
+    @Test
+    public void testGetLoans_Page() {
+        User user = new User();
+        user.setId(1L);
+
+        LoanPage page = new LoanPage(Collections.emptyList(), "next-cursor");
+        when(loanService.getLoanPage(1L, null, true, "cursor", 10)).thenReturn(page);
+
+        ResponseEntity<?> response = loanController.getLoans(user, null, "summary", 10, "cursor", webRequest());
 
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(page, ((BaseResponse) response.getBody()).getData());
+    }
+
+    @Test
+    public void testGetLoans_PageInvalidLimit() {
+        User user = new User();
+        user.setId(1L);
+
+        ResponseEntity<?> response = loanController.getLoans(user, null, "full", 0, null, webRequest());
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("Limit should be greater than 0", ((BaseResponse) response.getBody()).getMessage());
+    }
+
+    @Test
+    public void testGetLoans_PageInvalidCursor() {
         User user = new User();
         user.setId(1L);
 
-        when(userService.getUserByToken("valid-token")).thenReturn(user);
-        when(loanService.getLoanById(anyLong())).thenReturn(null);
+        when(loanService.getLoanPage(1L, null, false, "bad", 50)).thenThrow(new IllegalArgumentException("Invalid cursor"));
 
-        ResponseEntity<BaseResponse> response = loanController.getLoans(headers, 1L);
+        ResponseEntity<?> response = loanController.getLoans(user, null, "full", null, "bad", webRequest());
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("Invalid cursor", ((BaseResponse) response.getBody()).getMessage());
+    }
+
+    @Test
+    public void testGetLoan_LoanNotFound() {
+        User user = new User();
+        user.setId(1L);
+
+        when(loanService.getLoanVersion(anyLong())).thenReturn(null);
+
+        ResponseEntity<BaseResponse> response = loanController.getLoans(user, 1L, webRequest());
 
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
         assertEquals("Loan not found", response.getBody().getMessage());
@@ -156,22 +276,12 @@ public class LoanControllerTest {
 
     @Test
     public void testGetLoan_LoanDoesNotBelongToUser() {
-        Map<String, String> headers = new HashMap<>();
-        headers.put("x-user-token", "valid-token");
-
         User user = new User();
         user.setId(1L);
 
-        Loan loan = new Loan();
-        loan.setId(1L);
-        User differentUser = new User();
-        differentUser.setId(2L);
-        loan.setUser(differentUser);
-
-        when(userService.getUserByToken("valid-token")).thenReturn(user);
-        when(loanService.getLoanById(anyLong())).thenReturn(loan);
+        when(loanService.getLoanVersion(anyLong())).thenReturn(new LoanVersion(2L, 0L, false));
 
-        ResponseEntity<BaseResponse> response = loanController.getLoans(headers, 1L);
+        ResponseEntity<BaseResponse> response = loanController.getLoans(user, 1L, webRequest());
 
         assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
         assertEquals("Loan does not belong to user", response.getBody().getMessage());
@@ -179,10 +289,21 @@ public class LoanControllerTest {
     }
 
     @Test
-    public void testGetLoan_Success() {
-        Map<String, String> headers = new HashMap<>();
-        headers.put("x-user-token", "valid-token");
+    public void testGetLoan_LoanOnAnotherShard() {
+        User user = new User();
+        user.setId(1L);
+        ReflectionTestUtils.setField(loanController, "shardRouter", new ShardRouter(2, 1));
+
+        // Id 256 was issued by shard 0 while user 1 lives on shard 1
+        ResponseEntity<BaseResponse> response = loanController.getLoans(user, 256L, webRequest());
 
+        assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
+        assertEquals("Loan does not belong to user", response.getBody().getMessage());
+        verify(loanService, never()).getLoanVersion(anyLong());
+    }
+
+    @Test
+    public void testGetLoan_Success() {
         User user = new User();
         user.setId(1L);
 
@@ -190,26 +311,85 @@ public class LoanControllerTest {
         loan.setId(1L);
         loan.setUser(user);
 
-        when(userService.getUserByToken("valid-token")).thenReturn(user);
+        when(loanService.getLoanVersion(anyLong())).thenReturn(new LoanVersion(1L, 3L, false));
         when(loanService.getLoanById(anyLong())).thenReturn(loan);
+        ServletWebRequest webRequest = webRequest();
 
-        ResponseEntity<BaseResponse> response = loanController.getLoans(headers, 1L);
+        ResponseEntity<BaseResponse> response = loanController.getLoans(user, 1L, webRequest);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals("Success", response.getBody().getMessage());
         assertEquals(true, response.getBody().isSuccess());
         assertEquals(loan, response.getBody().getData());
+        assertEquals("\"loan-1-3\"", webRequest.getResponse().getHeader("ETag"));
+    }
+
+    @Test
+    public void testGetLoan_NotModified() {
+        User user = new User();
+        user.setId(1L);
+
+        when(loanService.getLoanVersion(1L)).thenReturn(new LoanVersion(1L, 3L, false));
+        ServletWebRequest webRequest = webRequest();
+        ((MockHttpServletRequest) webRequest.getRequest()).addHeader("If-None-Match", "\"loan-1-3\"");
+
+        ResponseEntity<BaseResponse> response = loanController.getLoans(user, 1L, webRequest);
+
+        assertNull(response);
+        assertEquals(304, webRequest.getResponse().getStatus());
+        verify(loanService, never()).getLoanById(anyLong());
+    }
+
+    @Test
+    public void testGetLoan_ModifiedSinceTag() {
+        User user = new User();
+        user.setId(1L);
+        Loan loan = new Loan();
+        loan.setId(1L);
+
+        when(loanService.getLoanVersion(1L)).thenReturn(new LoanVersion(1L, 4L, false));
+        when(loanService.getLoanById(1L)).thenReturn(loan);
+        ServletWebRequest webRequest = webRequest();
+        ((MockHttpServletRequest) webRequest.getRequest()).addHeader("If-None-Match", "\"loan-1-3\"");
+
+        ResponseEntity<BaseResponse> response = loanController.getLoans(user, 1L, webRequest);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("\"loan-1-4\"", webRequest.getResponse().getHeader("ETag"));
+    }
+
+    @Test
+    public void testGetLoans_NotModified() {
+        User user = new User();
+        user.setId(1L);
+
+        when(loanService.getLoanListingVersion(1L)).thenReturn(new LoanListingVersion(2L, 5L, 0L));
+        ServletWebRequest webRequest = webRequest();
+        ((MockHttpServletRequest) webRequest.getRequest()).addHeader("If-None-Match", "\"loans-1-2-5\"");
+
+        ResponseEntity<?> response = loanController.getLoans(user, null, "full", null, null, webRequest);
+
+        assertNull(response);
+        assertEquals(304, webRequest.getResponse().getStatus());
+        verify(loanService, never()).getLoansByUser(anyLong(), any());
+    }
+
+    @Test
+    public void testListingETag_CarriesDateForComputedSchedules() {
+        assertEquals("\"loans-1-2-5\"", LoanController.listingETag(1L, new LoanListingVersion(2L, 5L, 0L)));
+        assertEquals("\"loans-1-2-5-" + LocalDate.now().toEpochDay() + "\"",
+                LoanController.listingETag(1L, new LoanListingVersion(2L, 5L, 1L)));
     }
 
     @Test
     public void testAddRepayment_AmountLessThanZero() {
-        Map<String, String> headers = new HashMap<>();
-        headers.put("x-user-token", "valid-token");
+        User user = new User();
+        user.setId(1L);
 
         RepaymentRequest repaymentRequest = new RepaymentRequest();
-        repaymentRequest.setAmount(BigDecimal.valueOf(-1.0));
+        repaymentRequest.setAmount(Money.ofMajor(-1));
 
-        ResponseEntity<BaseResponse> response = loanController.addRepayment(1L, repaymentRequest, headers);
+        ResponseEntity<BaseResponse> response = loanController.addRepayment(1L, repaymentRequest, user);
 
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
         assertEquals("Amount should be greater than 0", response.getBody().getMessage());
@@ -217,15 +397,15 @@ public class LoanControllerTest {
 
     @Test
     public void testAddRepayment_RepaymentNotFound() {
-        Map<String, String> headers = new HashMap<>();
-        headers.put("x-user-token", "valid-token");
+        User user = new User();
+        user.setId(1L);
 
         RepaymentRequest repaymentRequest = new RepaymentRequest();
-        repaymentRequest.setAmount(BigDecimal.valueOf(100.0));
+        repaymentRequest.setAmount(Money.ofMajor(100));
 
         when(loanService.getRepaymentById(anyLong())).thenReturn(null);
 
-        ResponseEntity<BaseResponse> response = loanController.addRepayment(1L, repaymentRequest, headers);
+        ResponseEntity<BaseResponse> response = loanController.addRepayment(1L, repaymentRequest, user);
 
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
         assertEquals("Repayment not found", response.getBody().getMessage());
@@ -233,9 +413,6 @@ public class LoanControllerTest {
 
     @Test
     public void testAddRepayment_RepaymentDoesNotBelongToUser() {
-        Map<String, String> headers = new HashMap<>();
-        headers.put("x-user-token", "valid-token");
-
         User user = new User();
         user.setId(1L);
 
@@ -249,12 +426,11 @@ public class LoanControllerTest {
         repayment.setLoan(loan);
 
         RepaymentRequest repaymentRequest = new RepaymentRequest();
-        repaymentRequest.setAmount(BigDecimal.valueOf(100.0));
+        repaymentRequest.setAmount(Money.ofMajor(100));
 
-        when(userService.getUserByToken("valid-token")).thenReturn(user);
         when(loanService.getRepaymentById(anyLong())).thenReturn(repayment);
 
-        ResponseEntity<BaseResponse> response = loanController.addRepayment(1L, repaymentRequest, headers);
+        ResponseEntity<BaseResponse> response = loanController.addRepayment(1L, repaymentRequest, user);
 
         assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
         assertEquals("Repayment does not belong to user", response.getBody().getMessage());
@@ -262,9 +438,6 @@ public class LoanControllerTest {
 
     @Test
     public void testAddRepayment_RepaymentAlreadyPaid() {
-        Map<String, String> headers = new HashMap<>();
-        headers.put("x-user-token", "valid-token");
-
         User user = new User();
         user.setId(1L);
 
@@ -276,12 +449,11 @@ public class LoanControllerTest {
         repayment.setStatus(RepaymentStatus.PAID);
 
         RepaymentRequest repaymentRequest = new RepaymentRequest();
-        repaymentRequest.setAmount(BigDecimal.valueOf(100.0));
+        repaymentRequest.setAmount(Money.ofMajor(100));
 
-        when(userService.getUserByToken("valid-token")).thenReturn(user);
         when(loanService.getRepaymentById(anyLong())).thenReturn(repayment);
 
-        ResponseEntity<BaseResponse> response = loanController.addRepayment(1L, repaymentRequest, headers);
+        ResponseEntity<BaseResponse> response = loanController.addRepayment(1L, repaymentRequest, user);
 
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
         assertEquals("Repayment already paid", response.getBody().getMessage());
@@ -289,27 +461,23 @@ public class LoanControllerTest {
 
     @Test
     public void testAddRepayment_AmountGreaterThanPendingAmount() {
-        Map<String, String> headers = new HashMap<>();
-        headers.put("x-user-token", "valid-token");
-
         User user = new User();
         user.setId(1L);
 
         Loan loan = new Loan();
         loan.setUser(user);
-        loan.setPendingAmount(BigDecimal.valueOf(50.0));
+        loan.setPendingAmount(Money.ofMajor(50));
 
         Repayment repayment = new Repayment();
         repayment.setLoan(loan);
         repayment.setStatus(RepaymentStatus.PENDING);
 
         RepaymentRequest repaymentRequest = new RepaymentRequest();
-        repaymentRequest.setAmount(BigDecimal.valueOf(100.0));
+        repaymentRequest.setAmount(Money.ofMajor(100));
 
-        when(userService.getUserByToken("valid-token")).thenReturn(user);
         when(loanService.getRepaymentById(anyLong())).thenReturn(repayment);
 
-        ResponseEntity<BaseResponse> response = loanController.addRepayment(1L, repaymentRequest, headers);
+        ResponseEntity<BaseResponse> response = loanController.addRepayment(1L, repaymentRequest, user);
 
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
         assertEquals("Amount is greater than total pending amount", response.getBody().getMessage());
@@ -317,31 +485,109 @@ public class LoanControllerTest {
 
     @Test
     public void testAddRepayment_Success() {
-        Map<String, String> headers = new HashMap<>();
-        headers.put("x-user-token", "valid-token");
-
         User user = new User();
         user.setId(1L);
 
         Loan loan = new Loan();
         loan.setUser(user);
-        loan.setPendingAmount(BigDecimal.valueOf(100.0));
+        loan.setPendingAmount(Money.ofMajor(100));
 
         Repayment repayment = new Repayment();
         repayment.setLoan(loan);
         repayment.setStatus(RepaymentStatus.PENDING);
 
         RepaymentRequest repaymentRequest = new RepaymentRequest();
-        repaymentRequest.setAmount(BigDecimal.valueOf(50.0));
+        repaymentRequest.setAmount(Money.ofMajor(50));
 
-        when(userService.getUserByToken("valid-token")).thenReturn(user);
         when(loanService.getRepaymentById(anyLong())).thenReturn(repayment);
         when(loanService.addRepayment(repayment, repaymentRequest.getAmount())).thenReturn(repayment);
 
-        ResponseEntity<BaseResponse> response = loanController.addRepayment(1L, repaymentRequest, headers);
+        ResponseEntity<BaseResponse> response = loanController.addRepayment(1L, repaymentRequest, user);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals("Repayment added successfully", response.getBody().getMessage());
         assertEquals(repayment, response.getBody().getData());
     }
+
+    @Test
+    public void testAddRepayment_ConflictAfterRetries() {
+        User user = new User();
+        user.setId(1L);
+
+        Loan loan = new Loan();
+        loan.setUser(user);
+        loan.setPendingAmount(Money.ofMajor(100));
+
+        Repayment repayment = new Repayment();
+        repayment.setLoan(loan);
+        repayment.setStatus(RepaymentStatus.PENDING);
+
+        RepaymentRequest repaymentRequest = new RepaymentRequest();
+        repaymentRequest.setAmount(Money.ofMajor(50));
+
+        when(loanService.getRepaymentById(anyLong())).thenReturn(repayment);
+        doThrow(new ObjectOptimisticLockingFailureException(Repayment.class, 1L)).when(optimisticRetryExecutor).execute(any());
+
+        ResponseEntity<BaseResponse> response = loanController.addRepayment(1L, repaymentRequest, user);
+
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+    }
+
+    @Test
+    public void testAddRepayment_Batched() {
+        User user = new User();
+        user.setId(1L);
+
+        Loan loan = new Loan();
+        loan.setUser(user);
+        loan.setPendingAmount(Money.ofMajor(100));
+
+        Repayment repayment = new Repayment();
+        repayment.setLoan(loan);
+        repayment.setStatus(RepaymentStatus.PENDING);
+
+        RepaymentRequest repaymentRequest = new RepaymentRequest();
+        repaymentRequest.setAmount(Money.ofMajor(50));
+
+        when(loanService.getRepaymentById(anyLong())).thenReturn(repayment);
+        when(repaymentBatcher.isEnabled()).thenReturn(true);
+        when(repaymentBatcher.addRepayment(1L, repaymentRequest.getAmount())).thenReturn(repayment);
+
+        ResponseEntity<BaseResponse> response = loanController.addRepayment(1L, repaymentRequest, user);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(repayment, response.getBody().getData());
+        verify(loanService, never()).addRepayment(any(), any());
+    }
+
+    @Test
+    public void testAddRepayment_BatchedRefusal() {
+        User user = new User();
+        user.setId(1L);
+
+        Loan loan = new Loan();
+        loan.setUser(user);
+        loan.setPendingAmount(Money.ofMajor(100));
+
+        Repayment repayment = new Repayment();
+        repayment.setLoan(loan);
+        repayment.setStatus(RepaymentStatus.PENDING);
+
+        RepaymentRequest repaymentRequest = new RepaymentRequest();
+        repaymentRequest.setAmount(Money.ofMajor(50));
+
+        when(loanService.getRepaymentById(anyLong())).thenReturn(repayment);
+        when(repaymentBatcher.isEnabled()).thenReturn(true);
+        when(repaymentBatcher.addRepayment(1L, repaymentRequest.getAmount()))
+                .thenThrow(new IllegalArgumentException("Repayment already paid"));
+
+        ResponseEntity<BaseResponse> response = loanController.addRepayment(1L, repaymentRequest, user);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("Repayment already paid", response.getBody().getMessage());
+    }
+
+    private ServletWebRequest webRequest() {
+        return new ServletWebRequest(new MockHttpServletRequest("GET", "/api/loans"), new MockHttpServletResponse());
+    }
 }
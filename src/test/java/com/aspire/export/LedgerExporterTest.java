@@ -0,0 +1,112 @@
+package com.aspire.export;
+
+import com.aspire.entities.Loan;
+import com.aspire.entities.Repayment;
+import com.aspire.entities.User;
+import com.aspire.enums.LoanStatus;
+import com.aspire.enums.RepaymentStatus;
+import com.aspire.money.Money;
+import com.aspire.repo.LoanRepository;
+import com.aspire.repo.RepaymentRepository;
+import com.aspire.shard.ShardRouter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class LedgerExporterTest {
+
+    @InjectMocks
+    private LedgerExporter ledgerExporter;
+
+    @Mock
+    private LoanRepository loanRepository;
+
+    @Mock
+    private RepaymentRepository repaymentRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Spy
+    private ShardRouter shardRouter = new ShardRouter(1, 1);
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(ledgerExporter, "objectMapper",
+                new ObjectMapper().findAndRegisterModules().disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS));
+        ReflectionTestUtils.setField(ledgerExporter, "clearInterval", 2);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null));
+    }
+
+    @Test
+    public void testExport_LoansAsCsv() throws IOException {
+        when(loanRepository.streamLedger()).thenReturn(Stream.of(loan(1L), loan(2L), loan(3L)));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long rows = ledgerExporter.export(Ledger.LOANS, ExportFormat.CSV, output);
+
+        assertEquals(3, rows);
+        String[] lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(4, lines.length);
+        assertEquals("id,userId,amount,pendingAmount,term,startDate,status,overdue", lines[0]);
+        assertEquals("1,7,400.00,300.00,4,2024-01-01,APPROVED,false", lines[1]);
+        verify(entityManager, times(1)).clear();
+    }
+
+    @Test
+    public void testExport_RepaymentsAsNdjson() throws IOException {
+        Repayment repayment = new Repayment();
+        repayment.setId(10L);
+        repayment.setLoan(loan(1L));
+        repayment.setDueDate(LocalDate.of(2024, 1, 8));
+        repayment.setAmount(Money.ofMajor(100));
+        repayment.setPendingAmount(Money.ZERO);
+        repayment.setStatus(RepaymentStatus.PAID);
+        when(repaymentRepository.streamLedger()).thenReturn(Stream.of(repayment));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long rows = ledgerExporter.export(Ledger.REPAYMENTS, ExportFormat.NDJSON, output);
+
+        assertEquals(1, rows);
+        assertEquals("{\"id\":10,\"loanId\":1,\"userId\":7,\"dueDate\":\"2024-01-08\",\"amount\":100.00,\"pendingAmount\":0.00,\"status\":\"PAID\"}\n",
+                output.toString(StandardCharsets.UTF_8));
+        verify(entityManager, never()).clear();
+    }
+
+    private Loan loan(Long id) {
+        User user = new User();
+        user.setId(7L);
+        Loan loan = new Loan();
+        loan.setId(id);
+        loan.setUser(user);
+        loan.setAmount(Money.ofMajor(400));
+        loan.setPendingAmount(Money.ofMajor(300));
+        loan.setTerm(4);
+        loan.setStartDate(LocalDate.of(2024, 1, 1));
+        loan.setStatus(LoanStatus.APPROVED);
+        return loan;
+    }
+}
@@ -0,0 +1,76 @@
+package com.aspire.logging;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AccessLoggerTest {
+
+    @Test
+    public void testLog_WritesStructuredLine() {
+        List<String> lines = new ArrayList<>();
+        AccessLogger accessLogger = new AccessLogger(4, OverflowPolicy.DROP, lines::add);
+
+        accessLogger.log("GET", "/api/loans/{loanId}", 7L, 200, TimeUnit.MILLISECONDS.toNanos(3));
+        accessLogger.log("GET", "/api/loans", null, 401, 1_000);
+
+        assertEquals(2, accessLogger.drain());
+        assertEquals("method=GET uri=/api/loans/{loanId} user=7 status=200 latency_us=3000", lines.get(0));
+        assertEquals("method=GET uri=/api/loans user=- status=401 latency_us=1", lines.get(1));
+        assertEquals(2, accessLogger.stats().getWritten());
+    }
+
+    @Test
+    public void testLog_DropsWhenFull() {
+        List<String> lines = new ArrayList<>();
+        AccessLogger accessLogger = new AccessLogger(2, OverflowPolicy.DROP, lines::add);
+
+        assertTrue(accessLogger.log("GET", "/a", 1L, 200, 0));
+        assertTrue(accessLogger.log("GET", "/b", 1L, 200, 0));
+        assertFalse(accessLogger.log("GET", "/c", 1L, 200, 0));
+
+        AccessLogStats stats = accessLogger.stats();
+        assertEquals(1, stats.getDropped());
+        assertEquals(2, stats.getPending());
+
+        accessLogger.drain();
+        assertTrue(accessLogger.log("GET", "/d", 1L, 200, 0));
+        accessLogger.drain();
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(2).contains("uri=/d"));
+    }
+
+    @Test
+    public void testLog_BlockWaitsForWriter() throws Exception {
+        List<String> lines = new ArrayList<>();
+        AccessLogger accessLogger = new AccessLogger(2, OverflowPolicy.BLOCK, line -> {
+            synchronized (lines) {
+                lines.add(line);
+            }
+        });
+        accessLogger.start();
+        try {
+            int producers = 4;
+            CountDownLatch done = new CountDownLatch(producers);
+            for (int p = 0; p < producers; p++) {
+                new Thread(() -> {
+                    for (int i = 0; i < 250; i++) {
+                        accessLogger.log("POST", "/api/loans", 1L, 200, 0);
+                    }
+                    done.countDown();
+                }).start();
+            }
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        } finally {
+            accessLogger.stop();
+        }
+
+        assertEquals(1000, lines.size());
+        assertEquals(0, accessLogger.stats().getDropped());
+    }
+}
@@ -0,0 +1,70 @@
+package com.aspire.money;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoneyTest {
+
+    @Test
+    public void testOf_ExactAndRounded() {
+        assertEquals(123456, Money.of(new BigDecimal("1234.56")).getMinorUnits());
+        assertEquals(100, Money.of(new BigDecimal("1")).getMinorUnits());
+        assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("0.005")));
+        assertEquals(1, Money.of(new BigDecimal("0.005"), RoundingMode.HALF_UP).getMinorUnits());
+        assertEquals("1234.50", Money.parse("1234.5").toString());
+    }
+
+    @Test
+    public void testArithmetic_OverflowThrows() {
+        assertEquals(Money.ofMinor(350), Money.ofMajor(5).minus(Money.ofMinor(150)));
+        assertEquals(Money.ofMajor(12), Money.ofMajor(4).times(3));
+        assertThrows(ArithmeticException.class, () -> Money.ofMinor(Long.MAX_VALUE).plus(Money.ofMinor(1)));
+    }
+
+    @Test
+    public void testDivide_MatchesBigDecimalForEveryRoundingMode() {
+        for (RoundingMode mode : RoundingMode.values()) {
+            if (mode == RoundingMode.UNNECESSARY) {
+                continue;
+            }
+            for (long minor = -1000; minor <= 1000; minor++) {
+                for (long divisor : new long[]{1, 2, 3, 4, 7, 52, -3, -8}) {
+                    BigDecimal expected = BigDecimal.valueOf(minor, 2).divide(BigDecimal.valueOf(divisor), mode);
+                    assertEquals(expected, Money.ofMinor(minor).divide(divisor, mode).toBigDecimal(),
+                            minor + " / " + divisor + " " + mode);
+                }
+            }
+        }
+        assertThrows(ArithmeticException.class, () -> Money.ofMinor(10).divide(3, RoundingMode.UNNECESSARY));
+    }
+
+    @Test
+    public void testDivide_ScheduleSplitMatchesBigDecimal() {
+        for (long minor = 1; minor <= 100_000; minor += 37) {
+            for (int term = 1; term <= 60; term += 7) {
+                BigDecimal amount = BigDecimal.valueOf(minor, 2);
+                BigDecimal weekly = amount.divide(BigDecimal.valueOf(term), RoundingMode.HALF_UP);
+                BigDecimal last = amount.subtract(weekly.multiply(BigDecimal.valueOf(term - 1)));
+
+                Money money = Money.ofMinor(minor);
+                Money moneyWeekly = money.divide(term, RoundingMode.HALF_UP);
+                assertEquals(weekly, moneyWeekly.toBigDecimal());
+                assertEquals(last, money.minus(moneyWeekly.times(term - 1)).toBigDecimal());
+            }
+        }
+    }
+
+    @Test
+    public void testJson_RoundTripsAsDecimalNumber() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        assertEquals("1000.50", objectMapper.writeValueAsString(Money.ofMinor(100050)));
+        assertEquals(Money.ofMinor(100050), objectMapper.readValue("1000.5", Money.class));
+        assertEquals(Money.ofMajor(20), objectMapper.readValue("\"20\"", Money.class));
+    }
+}
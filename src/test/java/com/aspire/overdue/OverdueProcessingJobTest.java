@@ -0,0 +1,101 @@
+package com.aspire.overdue;
+
+import com.aspire.cache.LoanListingCache;
+import com.aspire.repo.LoanRepository;
+import com.aspire.repo.RepaymentRepository;
+import com.aspire.shard.ShardRouter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class OverdueProcessingJobTest {
+
+    @InjectMocks
+    private OverdueProcessingJob overdueProcessingJob;
+
+    @Mock
+    private RepaymentRepository repaymentRepository;
+
+    @Mock
+    private LoanRepository loanRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private LoanListingCache loanListingCache;
+
+    private final LocalDate asOf = LocalDate.of(2024, 1, 10);
+
+    @Spy
+    private ShardRouter shardRouter = new ShardRouter(1, 1);
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(overdueProcessingJob, "chunkSize", 2);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null));
+    }
+
+    @Test
+    public void testRun_ProcessesChunksUntilNoneLeft() {
+        when(repaymentRepository.findPendingIdsDueBefore(eq(asOf), any(Pageable.class)))
+                .thenReturn(Arrays.asList(1L, 2L), Collections.singletonList(3L), Collections.emptyList());
+        when(repaymentRepository.markOverdue(Arrays.asList(1L, 2L))).thenReturn(2);
+        when(repaymentRepository.markOverdue(Collections.singletonList(3L))).thenReturn(1);
+        when(loanRepository.markOverdueByRepaymentIds(Arrays.asList(1L, 2L))).thenReturn(1);
+        when(loanRepository.markOverdueByRepaymentIds(Collections.singletonList(3L))).thenReturn(0);
+        when(repaymentRepository.findOwnerIds(Arrays.asList(1L, 2L))).thenReturn(Arrays.asList(7L, 8L));
+        when(repaymentRepository.findOwnerIds(Collections.singletonList(3L))).thenReturn(Collections.singletonList(7L));
+
+        OverdueRunReport report = overdueProcessingJob.run(asOf);
+
+        assertEquals(asOf, report.getAsOf());
+        assertEquals(2, report.getChunks());
+        assertEquals(3, report.getInstallments());
+        assertEquals(1, report.getLoans());
+        verify(transactionTemplate, times(2)).execute(any());
+        verify(loanListingCache, times(2)).invalidateUserAfterCommit(7L);
+        verify(loanListingCache, times(1)).invalidateUserAfterCommit(8L);
+        verify(loanListingCache, never()).invalidateAll();
+    }
+
+    @Test
+    public void testRun_NothingDue() {
+        when(repaymentRepository.findPendingIdsDueBefore(eq(asOf), any(Pageable.class))).thenReturn(Collections.emptyList());
+
+        OverdueRunReport report = overdueProcessingJob.run(asOf);
+
+        assertEquals(0, report.getChunks());
+        verify(repaymentRepository, never()).markOverdue(any());
+    }
+
+    @Test
+    public void testRun_RejectsConcurrentRun() {
+        when(repaymentRepository.findPendingIdsDueBefore(eq(asOf), any(Pageable.class))).thenAnswer(invocation -> {
+            assertThrows(IllegalStateException.class, () -> overdueProcessingJob.run(asOf));
+            return Collections.emptyList();
+        });
+
+        overdueProcessingJob.run(asOf);
+
+        verify(repaymentRepository, times(1)).findPendingIdsDueBefore(eq(asOf), any(Pageable.class));
+    }
+}
@@ -0,0 +1,146 @@
+package com.aspire.portfolio;
+
+import com.aspire.entities.Loan;
+import com.aspire.entities.User;
+import com.aspire.enums.LoanStatus;
+import com.aspire.money.Money;
+import com.aspire.response.PortfolioSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PortfolioAggregatesTest {
+
+    private PortfolioAggregates aggregates;
+
+    @BeforeEach
+    public void setUp() {
+        aggregates = new PortfolioAggregates();
+    }
+
+    @Test
+    public void testRecordTransition_TracksLoanLifecycle() {
+        Loan loan = loan(1L, LoanStatus.PENDING, 1000);
+        aggregates.recordTransition(loan, null, null);
+
+        loan.setStatus(LoanStatus.APPROVED);
+        aggregates.recordTransition(loan, LoanStatus.PENDING, Money.ofMajor(1000));
+
+        loan.setPendingAmount(Money.ofMajor(600));
+        aggregates.recordTransition(loan, LoanStatus.APPROVED, Money.ofMajor(1000));
+
+        PortfolioSummary summary = aggregates.summary();
+        assertEquals(0L, summary.getLoanCounts().get(LoanStatus.PENDING));
+        assertEquals(1L, summary.getLoanCounts().get(LoanStatus.APPROVED));
+        assertEquals(0, Money.ofMajor(600).compareTo(summary.getOutstandingPrincipal()));
+        assertEquals(1, summary.getExposedUsers());
+        assertEquals(0, Money.ofMajor(600).compareTo(aggregates.exposure(1L)));
+    }
+
+    @Test
+    public void testRecordTransition_PaidLoanClearsExposure() {
+        Loan loan = loan(1L, LoanStatus.APPROVED, 500);
+        aggregates.recordTransition(loan, null, null);
+
+        loan.setStatus(LoanStatus.PAID);
+        loan.setPendingAmount(Money.ZERO);
+        aggregates.recordTransition(loan, LoanStatus.APPROVED, Money.ofMajor(500));
+
+        PortfolioSummary summary = aggregates.summary();
+        assertEquals(1L, summary.getLoanCounts().get(LoanStatus.PAID));
+        assertEquals(0, summary.getExposedUsers());
+        assertEquals(0, Money.ZERO.compareTo(aggregates.exposure(1L)));
+    }
+
+    @Test
+    public void testReplace_ReportsDrift() {
+        aggregates.recordTransition(loan(1L, LoanStatus.APPROVED, 500), null, null);
+
+        PortfolioTotals rebuilt = new PortfolioTotals();
+        rebuilt.addLoans(LoanStatus.APPROVED, 2, Money.ofMajor(800));
+        rebuilt.addExposure(1L, Money.ofMajor(800));
+
+        List<String> drift = aggregates.replace(rebuilt, aggregates.updateCount());
+
+        assertEquals(3, drift.size());
+        assertEquals(drift, aggregates.summary().getLastDrift());
+        assertEquals(2L, aggregates.summary().getLoanCounts().get(LoanStatus.APPROVED));
+        assertNotNull(aggregates.summary().getLastReconciledAt());
+    }
+
+    @Test
+    public void testReplace_NoDriftWhenInSync() {
+        aggregates.recordTransition(loan(1L, LoanStatus.APPROVED, 500), null, null);
+
+        PortfolioTotals rebuilt = new PortfolioTotals();
+        rebuilt.addLoans(LoanStatus.APPROVED, 1, Money.parse("500.00"));
+        rebuilt.addExposure(1L, Money.parse("500.00"));
+
+        assertTrue(aggregates.replace(rebuilt, aggregates.updateCount()).isEmpty());
+    }
+
+    @Test
+    public void testReplace_SkippedAfterConcurrentUpdate() {
+        long updatesBefore = aggregates.updateCount();
+        aggregates.recordTransition(loan(1L, LoanStatus.APPROVED, 500), null, null);
+
+        assertNull(aggregates.replace(new PortfolioTotals(), updatesBefore));
+        assertEquals(1L, aggregates.summary().getLoanCounts().get(LoanStatus.APPROVED));
+    }
+
+    @Test
+    public void testReplace_SkippedWhileTransitionCommits() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            aggregates.recordTransition(loan(1L, LoanStatus.APPROVED, 500), null, null);
+            // Committed, so the rebuild already counts the loan, but not applied yet
+            PortfolioTotals rebuilt = new PortfolioTotals();
+            rebuilt.addLoans(LoanStatus.APPROVED, 1, Money.ofMajor(500));
+            rebuilt.addExposure(1L, Money.ofMajor(500));
+
+            assertNull(aggregates.replace(rebuilt, aggregates.updateCount()));
+
+            complete(TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(1L, aggregates.summary().getLoanCounts().get(LoanStatus.APPROVED));
+        assertEquals(0, Money.ofMajor(500).compareTo(aggregates.exposure(1L)));
+    }
+
+    @Test
+    public void testReplace_AllowedAfterRollback() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            aggregates.recordTransition(loan(1L, LoanStatus.APPROVED, 500), null, null);
+            complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(0L, aggregates.summary().getLoanCounts().get(LoanStatus.APPROVED));
+        assertTrue(aggregates.replace(new PortfolioTotals(), aggregates.updateCount()).isEmpty());
+    }
+
+    private void complete(int status) {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(status);
+        }
+    }
+
+    private Loan loan(Long userId, LoanStatus status, long pendingAmount) {
+        User user = new User();
+        user.setId(userId);
+        Loan loan = new Loan();
+        loan.setUser(user);
+        loan.setStatus(status);
+        loan.setAmount(Money.ofMajor(pendingAmount));
+        loan.setPendingAmount(Money.ofMajor(pendingAmount));
+        return loan;
+    }
+}
@@ -0,0 +1,52 @@
+package com.aspire.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AimdConcurrencyLimiterTest {
+
+    @Test
+    public void testTryAcquire_RejectsAboveLimit() {
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(2, 1, 10, 1_000);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(2, limiter.getInFlight());
+    }
+
+    @Test
+    public void testRelease_FastRequestsGrowLimit() {
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(2, 1, 10, 1_000);
+        limiter.tryAcquire();
+        limiter.tryAcquire();
+
+        limiter.release(10, false);
+
+        assertEquals(3, limiter.getLimit());
+        assertEquals(1, limiter.getInFlight());
+    }
+
+    @Test
+    public void testRelease_SlowOrFailedRequestsShrinkLimit() {
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(10, 2, 10, 1_000);
+        limiter.tryAcquire();
+        limiter.release(5_000, false);
+        assertEquals(9, limiter.getLimit());
+
+        limiter.tryAcquire();
+        limiter.release(10, true);
+        assertEquals(8, limiter.getLimit());
+    }
+
+    @Test
+    public void testRelease_LimitStaysWithinBounds() {
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(2, 2, 2, 1_000);
+        for (int i = 0; i < 5; i++) {
+            limiter.tryAcquire();
+            limiter.release(5_000, true);
+        }
+        assertEquals(2, limiter.getLimit());
+    }
+}
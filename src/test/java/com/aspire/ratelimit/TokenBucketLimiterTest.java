@@ -0,0 +1,50 @@
+package com.aspire.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenBucketLimiterTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    public void testTryAcquire_AllowsBurstThenThrottles() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(10, 3, 100);
+
+        assertEquals(0, limiter.tryAcquire("token1", 0));
+        assertEquals(0, limiter.tryAcquire("token1", 0));
+        assertEquals(0, limiter.tryAcquire("token1", 0));
+
+        assertEquals(SECOND / 10, limiter.tryAcquire("token1", 0));
+    }
+
+    @Test
+    public void testTryAcquire_RefillsAtConfiguredRate() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(10, 1, 100);
+
+        assertEquals(0, limiter.tryAcquire("token1", 0));
+        assertTrue(limiter.tryAcquire("token1", SECOND / 20) > 0);
+        assertEquals(0, limiter.tryAcquire("token1", SECOND / 10));
+    }
+
+    @Test
+    public void testTryAcquire_TokensAreIndependent() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(1, 1, 100);
+
+        assertEquals(0, limiter.tryAcquire("token1", 0));
+        assertTrue(limiter.tryAcquire("token1", 0) > 0);
+        assertEquals(0, limiter.tryAcquire("token2", 0));
+    }
+
+    @Test
+    public void testTryAcquire_SweepsIdleBuckets() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(10, 1, 2);
+        limiter.tryAcquire("token1", 0);
+        limiter.tryAcquire("token2", 0);
+
+        limiter.tryAcquire("token3", SECOND);
+
+        assertEquals(1, limiter.size());
+    }
+}
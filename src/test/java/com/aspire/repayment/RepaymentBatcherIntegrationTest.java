@@ -0,0 +1,105 @@
+package com.aspire.repayment;
+
+import com.aspire.entities.Loan;
+import com.aspire.entities.User;
+import com.aspire.money.Money;
+import com.aspire.repo.LoanRepository;
+import com.aspire.repo.RepaymentRepository;
+import com.aspire.service.LoanService;
+import com.aspire.service.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Repayments through the full request path with batching on and more concurrent requests than pooled connections.
+ * Requests waiting for their batch must not hold on to connections, or the writer can never get one. The short
+ * connection timeout makes such a deadlock fail the test quickly instead of hanging it.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:repayment-batching",
+        "spring.datasource.hikari.maximum-pool-size=2",
+        "spring.datasource.hikari.connection-timeout=2000",
+        "aspire.repayment.batch.enabled=true",
+        "aspire.rate-limit.enabled=false"})
+@AutoConfigureMockMvc
+public class RepaymentBatcherIntegrationTest {
+
+    private static final String TOKEN = "token1";
+    private static final int CALLERS = 8;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private RepaymentBatcher repaymentBatcher;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private RepaymentRepository repaymentRepository;
+
+    @AfterEach
+    public void tearDown() {
+        repaymentRepository.deleteAllInBatch();
+        loanRepository.deleteAllInBatch();
+    }
+
+    @Test
+    public void testConcurrentRepayments_MoreCallersThanConnections() throws Exception {
+        User user = userService.getUserByToken(TOKEN);
+        List<Long> repaymentIds = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            Loan loan = loanService.approveLoan(loanService.createLoan(user, Money.ofMajor(400), 4, LocalDate.now().plusDays(1)));
+            repaymentIds.add(repaymentRepository.findByLoanId(loan.getId()).get(0).getId());
+        }
+        long batchesBefore = repaymentBatcher.stats().getBatches();
+
+        ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Integer>> statuses = new ArrayList<>();
+            for (Long repaymentId : repaymentIds) {
+                Callable<Integer> repay = () -> {
+                    start.await();
+                    return mockMvc.perform(post("/api/loans/repayments/{repaymentId}", repaymentId).header("x-user-token", TOKEN)
+                                    .contentType(MediaType.APPLICATION_JSON).content("{\"amount\": 100}"))
+                            .andReturn().getResponse().getStatus();
+                };
+                statuses.add(callers.submit(repay));
+            }
+            start.countDown();
+            for (Future<Integer> status : statuses) {
+                assertEquals(200, status.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+        assertTrue(repaymentBatcher.stats().getBatches() > batchesBefore);
+    }
+}
@@ -0,0 +1,183 @@
+package com.aspire.repayment;
+
+import com.aspire.entities.Loan;
+import com.aspire.entities.Repayment;
+import com.aspire.enums.RepaymentStatus;
+import com.aspire.money.Money;
+import com.aspire.retry.OptimisticRetryExecutor;
+import com.aspire.service.LoanService;
+import com.aspire.shard.ShardContext;
+import com.aspire.shard.ShardRouter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class RepaymentBatcherTest {
+
+    @Mock
+    private LoanService loanService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private ShardRouter shardRouter = new ShardRouter(1, 1);
+
+    private RepaymentBatcher batcher;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null));
+        for (long id = 1; id <= 3; id++) {
+            Repayment repayment = repayment(id);
+            when(loanService.getRepaymentById(id)).thenReturn(repayment);
+            when(loanService.addRepayment(eq(repayment), any())).thenReturn(repayment);
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        if (batcher != null) {
+            batcher.stop();
+        }
+        shardRouter.shutdown();
+    }
+
+    @Test
+    public void testSubmit_CoalescesIntoOneTransaction() throws Exception {
+        batcher = batcher(true, 3);
+        batcher.start();
+
+        CompletableFuture<Repayment> first = batcher.submit(1L, Money.ofMajor(100));
+        CompletableFuture<Repayment> second = batcher.submit(2L, Money.ofMajor(100));
+        CompletableFuture<Repayment> third = batcher.submit(3L, Money.ofMajor(100));
+
+        assertEquals(1L, first.get(5, TimeUnit.SECONDS).getId());
+        assertEquals(2L, second.get(5, TimeUnit.SECONDS).getId());
+        assertEquals(3L, third.get(5, TimeUnit.SECONDS).getId());
+        verify(transactionTemplate, times(1)).execute(any());
+        assertEquals(1, batcher.stats().getBatches());
+        assertEquals(3.0, batcher.stats().getAverageBatchSize());
+    }
+
+    @Test
+    public void testSubmit_RefusedPaymentFailsAlone() throws Exception {
+        when(loanService.validateRepayment(eq(repayment(2L)), any())).thenReturn("Repayment already paid");
+        batcher = batcher(true, 3);
+        batcher.start();
+
+        CompletableFuture<Repayment> first = batcher.submit(1L, Money.ofMajor(100));
+        CompletableFuture<Repayment> second = batcher.submit(2L, Money.ofMajor(100));
+        CompletableFuture<Repayment> third = batcher.submit(3L, Money.ofMajor(100));
+
+        assertEquals(1L, first.get(5, TimeUnit.SECONDS).getId());
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS));
+        assertEquals("Repayment already paid", ex.getCause().getMessage());
+        assertEquals(3L, third.get(5, TimeUnit.SECONDS).getId());
+        verify(transactionTemplate, times(1)).execute(any());
+        verify(loanService, never()).addRepayment(eq(repayment(2L)), any());
+        assertEquals(1, batcher.stats().getRejected());
+    }
+
+    @Test
+    public void testSubmit_FailedBatchIsReplayedOneByOne() throws Exception {
+        when(loanService.addRepayment(eq(repayment(2L)), any())).thenThrow(new IllegalStateException("boom"));
+        batcher = batcher(true, 3);
+        batcher.start();
+
+        CompletableFuture<Repayment> first = batcher.submit(1L, Money.ofMajor(100));
+        CompletableFuture<Repayment> second = batcher.submit(2L, Money.ofMajor(100));
+        CompletableFuture<Repayment> third = batcher.submit(3L, Money.ofMajor(100));
+
+        assertEquals(1L, first.get(5, TimeUnit.SECONDS).getId());
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS));
+        assertEquals("boom", ex.getCause().getMessage());
+        assertEquals(3L, third.get(5, TimeUnit.SECONDS).getId());
+        // One batch transaction, then one transaction per replayed payment
+        verify(transactionTemplate, times(4)).execute(any());
+        assertEquals(1, batcher.stats().getReplayedBatches());
+    }
+
+    @Test
+    public void testSubmit_SplitsBatchByShard() throws Exception {
+        shardRouter = new ShardRouter(2, 1);
+        Map<Long, Integer> shards = new ConcurrentHashMap<>();
+        for (long id = 1; id <= 3; id++) {
+            Repayment repayment = repayment(id);
+            when(loanService.addRepayment(eq(repayment), any())).thenAnswer(invocation -> {
+                shards.put(repayment.getId(), ShardContext.current());
+                return repayment;
+            });
+        }
+        batcher = batcher(true, 3);
+        batcher.start();
+
+        CompletableFuture<Repayment> first = batcher.submit(1L, Money.ofMajor(100));
+        CompletableFuture<Repayment> second = batcher.submit(2L, Money.ofMajor(100));
+        CompletableFuture<Repayment> third = batcher.submit(3L, Money.ofMajor(100));
+
+        assertEquals(1L, first.get(5, TimeUnit.SECONDS).getId());
+        assertEquals(2L, second.get(5, TimeUnit.SECONDS).getId());
+        assertEquals(3L, third.get(5, TimeUnit.SECONDS).getId());
+        // The low bits of a repayment id name its shard
+        assertEquals(Map.of(1L, 1, 2L, 0, 3L, 1), shards);
+        verify(transactionTemplate, times(2)).execute(any());
+        assertEquals(2, batcher.stats().getBatches());
+    }
+
+    @Test
+    public void testAddRepayment_DisabledRunsOnCaller() {
+        batcher = batcher(false, 3);
+        batcher.start();
+
+        Repayment paid = batcher.addRepayment(1L, Money.ofMajor(100));
+
+        assertEquals(1L, paid.getId());
+        assertEquals(0, batcher.stats().getBatches());
+        assertEquals(1, batcher.stats().getCallerRuns());
+    }
+
+    @Test
+    public void testAddRepayment_UnknownRepayment() {
+        batcher = batcher(false, 3);
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> batcher.addRepayment(9L, Money.ofMajor(100)));
+
+        assertEquals("Repayment not found", ex.getMessage());
+    }
+
+    private RepaymentBatcher batcher(boolean enabled, int maxBatchSize) {
+        return new RepaymentBatcher(enabled, maxBatchSize, Duration.ofSeconds(1), 16, loanService, transactionTemplate,
+                new OptimisticRetryExecutor(1, Duration.ZERO, Duration.ZERO), shardRouter);
+    }
+
+    private Repayment repayment(Long id) {
+        Loan loan = new Loan();
+        loan.setPendingAmount(Money.ofMajor(400));
+        Repayment repayment = new Repayment();
+        repayment.setId(id);
+        repayment.setLoan(loan);
+        repayment.setAmount(Money.ofMajor(100));
+        repayment.setPendingAmount(Money.ofMajor(100));
+        repayment.setStatus(RepaymentStatus.PENDING);
+        return repayment;
+    }
+}
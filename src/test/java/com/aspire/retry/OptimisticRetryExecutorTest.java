@@ -0,0 +1,58 @@
+package com.aspire.retry;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OptimisticRetryExecutorTest {
+
+    private final OptimisticRetryExecutor executor = new OptimisticRetryExecutor(3, Duration.ZERO, Duration.ZERO);
+
+    @Test
+    public void testExecute_RetriesConflicts() {
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = executor.execute(() -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new ObjectOptimisticLockingFailureException(Object.class, 1L);
+            }
+            return "done";
+        });
+
+        assertEquals("done", result);
+        RetryStats stats = executor.stats();
+        assertEquals(1, stats.getExecutions());
+        assertEquals(3, stats.getAttempts());
+        assertEquals(2, stats.getConflicts());
+        assertEquals(0, stats.getExhausted());
+    }
+
+    @Test
+    public void testExecute_GivesUpAfterMaxAttempts() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> executor.execute(() -> {
+            calls.incrementAndGet();
+            throw new ObjectOptimisticLockingFailureException(Object.class, 1L);
+        }));
+
+        assertEquals(3, calls.get());
+        assertEquals(1, executor.stats().getExhausted());
+    }
+
+    @Test
+    public void testExecute_DoesNotRetryOtherFailures() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(IllegalArgumentException.class, () -> executor.execute(() -> {
+            calls.incrementAndGet();
+            throw new IllegalArgumentException("Repayment already paid");
+        }));
+
+        assertEquals(1, calls.get());
+    }
+}
@@ -0,0 +1,177 @@
+package com.aspire.service.impl;
+
+import com.aspire.cache.LoanListingCache;
+import com.aspire.cache.SecondLevelCache;
+import com.aspire.entities.Loan;
+import com.aspire.entities.User;
+import com.aspire.enums.LoanStatus;
+import com.aspire.money.Money;
+import com.aspire.portfolio.PortfolioAggregates;
+import com.aspire.repo.LoanRepository;
+import com.aspire.repo.RepaymentRepository;
+import com.aspire.request.BulkApprovalRequest;
+import com.aspire.response.LoanApprovalResult;
+import com.aspire.service.LoanService;
+import com.aspire.shard.ShardRouter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class LoanApprovalServiceImplTest {
+
+    @InjectMocks
+    private LoanApprovalServiceImpl loanApprovalService;
+
+    @Mock
+    private LoanRepository loanRepository;
+
+    @Mock
+    private RepaymentRepository repaymentRepository;
+
+    @Mock
+    private LoanService loanService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private PortfolioAggregates portfolioAggregates;
+
+    @Mock
+    private SecondLevelCache secondLevelCache;
+
+    @Mock
+    private LoanListingCache loanListingCache;
+
+    @Spy
+    private ShardRouter shardRouter = new ShardRouter(1, 1);
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(loanApprovalService, "defaultChunkSize", 2);
+        ReflectionTestUtils.setField(loanApprovalService, "maxChunkSize", 10);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null));
+    }
+
+    @Test
+    public void testApproveLoans_ByIdsInChunks() {
+        when(loanRepository.findWithUserByIdInAndStatus(eq(Arrays.asList(1L, 2L)), eq(LoanStatus.PENDING)))
+                .thenReturn(Arrays.asList(pendingLoan(1L), pendingLoan(2L)));
+        when(loanRepository.findWithUserByIdInAndStatus(eq(Collections.singletonList(3L)), eq(LoanStatus.PENDING)))
+                .thenReturn(Collections.emptyList());
+        when(loanRepository.approvePending(anyCollection())).thenReturn(2);
+
+        BulkApprovalRequest request = new BulkApprovalRequest();
+        request.setLoanIds(Arrays.asList(1L, 2L, 3L));
+        List<LoanApprovalResult> results = new ArrayList<>();
+
+        loanApprovalService.approveLoans(request, results::add);
+
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isApproved());
+        assertTrue(results.get(1).isApproved());
+        assertFalse(results.get(2).isApproved());
+        verify(repaymentRepository, times(1)).saveAll(anyList());
+        verify(loanRepository, times(1)).approvePending(anyCollection());
+        verify(portfolioAggregates, times(2)).recordTransition(any(), eq(LoanStatus.PENDING), any(), eq(LoanStatus.APPROVED), any());
+        verify(secondLevelCache, times(1)).evictRepayments(Arrays.asList(1L, 2L));
+    }
+
+    @Test
+    public void testApproveLoans_FailedChunkFallsBackToSingleApprovals() {
+        Loan good = pendingLoan(1L);
+        when(loanRepository.findWithUserByIdInAndStatus(anyCollection(), eq(LoanStatus.PENDING)))
+                .thenReturn(Arrays.asList(good, pendingLoan(2L)));
+        when(loanRepository.approvePending(anyCollection()))
+                .thenThrow(new IllegalStateException("boom"));
+        when(loanService.getLoanById(1L)).thenReturn(good);
+        when(loanService.getLoanById(2L)).thenReturn(null);
+
+        BulkApprovalRequest request = new BulkApprovalRequest();
+        request.setLoanIds(Arrays.asList(1L, 2L));
+        List<LoanApprovalResult> results = new ArrayList<>();
+
+        loanApprovalService.approveLoans(request, results::add);
+
+        assertEquals(2, results.size());
+        assertTrue(results.get(0).isApproved());
+        assertFalse(results.get(1).isApproved());
+        assertEquals("Loan not found", results.get(1).getMessage());
+        verify(loanService, times(1)).approveLoan(good);
+    }
+
+    @Test
+    public void testApproveLoans_ByStatusUsesKeyset() {
+        when(loanRepository.findIdsByStatusAfter(eq(LoanStatus.PENDING), eq(0L), any(Pageable.class)))
+                .thenReturn(Arrays.asList(4L, 7L));
+        when(loanRepository.findIdsByStatusAfter(eq(LoanStatus.PENDING), eq(7L), any(Pageable.class)))
+                .thenReturn(Collections.emptyList());
+        when(loanRepository.findWithUserByIdInAndStatus(anyCollection(), eq(LoanStatus.PENDING)))
+                .thenReturn(Arrays.asList(pendingLoan(4L), pendingLoan(7L)));
+        when(loanRepository.approvePending(anyCollection())).thenReturn(2);
+
+        BulkApprovalRequest request = new BulkApprovalRequest();
+        request.setStatus("PENDING");
+        List<LoanApprovalResult> results = new ArrayList<>();
+
+        loanApprovalService.approveLoans(request, results::add);
+
+        assertEquals(2, results.size());
+        assertEquals(4L, results.get(0).getLoanId());
+        assertEquals(7L, results.get(1).getLoanId());
+    }
+
+    @Test
+    public void testApproveLoans_VirtualSchedulesSkipRepaymentInserts() {
+        ReflectionTestUtils.setField(loanApprovalService, "virtualSchedules", true);
+        when(loanRepository.findWithUserByIdInAndStatus(anyCollection(), eq(LoanStatus.PENDING)))
+                .thenReturn(Arrays.asList(pendingLoan(1L), pendingLoan(2L)));
+        when(loanRepository.approvePendingVirtual(anyCollection())).thenReturn(2);
+
+        BulkApprovalRequest request = new BulkApprovalRequest();
+        request.setLoanIds(Arrays.asList(1L, 2L));
+        List<LoanApprovalResult> results = new ArrayList<>();
+
+        loanApprovalService.approveLoans(request, results::add);
+
+        assertTrue(results.get(0).isApproved());
+        assertTrue(results.get(1).isApproved());
+        verify(repaymentRepository, never()).saveAll(anyList());
+        verify(loanRepository, never()).approvePending(anyCollection());
+        verify(loanRepository, times(1)).approvePendingVirtual(Arrays.asList(1L, 2L));
+    }
+
+    private Loan pendingLoan(Long id) {
+        Loan loan = new Loan();
+        loan.setId(id);
+        loan.setUser(new User());
+        loan.setAmount(Money.ofMajor(1000));
+        loan.setPendingAmount(Money.ofMajor(1000));
+        loan.setTerm(4);
+        loan.setStartDate(LocalDate.now());
+        loan.setStatus(LoanStatus.PENDING);
+        return loan;
+    }
+}
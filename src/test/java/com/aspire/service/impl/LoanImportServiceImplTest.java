@@ -0,0 +1,213 @@
+package com.aspire.service.impl;
+
+import com.aspire.cache.LoanListingCache;
+import com.aspire.entities.Loan;
+import com.aspire.enums.LoanStatus;
+import com.aspire.enums.RepaymentStatus;
+import com.aspire.money.Money;
+import com.aspire.portfolio.PortfolioAggregates;
+import com.aspire.repo.UserRepository;
+import com.aspire.response.LoanImportReport;
+import com.aspire.shard.ShardRouter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class LoanImportServiceImplTest {
+
+    @InjectMocks
+    private LoanImportServiceImpl loanImportService;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PortfolioAggregates portfolioAggregates;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private LoanListingCache loanListingCache;
+
+    @TempDir
+    Path rejectDir;
+
+    @Spy
+    private ShardRouter shardRouter = new ShardRouter(1, 1);
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(loanImportService, "objectMapper", new ObjectMapper().findAndRegisterModules());
+        ReflectionTestUtils.setField(loanImportService, "chunkSize", 2);
+        ReflectionTestUtils.setField(loanImportService, "rejectDir", rejectDir.toString());
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null));
+        when(userRepository.findIdsByUsernames(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> usernames = invocation.getArgument(0);
+            return usernames.contains("user1") ? List.<Object[]>of(new Object[]{"user1", 1L}) : List.of();
+        });
+    }
+
+    @Test
+    public void testImportLoans_CsvAppliesRepaymentHistory() throws IOException {
+        String future = LocalDate.now().plusDays(1).toString();
+        String csv = "username,amount,term,startDate,status,paidAmount\n"
+                + "user1,400,4,2020-01-06,APPROVED,150\n"
+                + "user1,1000,2," + future + ",,\n";
+
+        LoanImportReport report = loanImportService.importLoans(input(csv), true);
+
+        assertEquals(2, report.getRows());
+        assertEquals(2, report.getImportedLoans());
+        assertEquals(4, report.getImportedInstallments());
+        assertEquals(0, report.getRejected());
+        assertNull(report.getRejectFile());
+
+        ArgumentCaptor<Loan> loans = ArgumentCaptor.forClass(Loan.class);
+        verify(entityManager, times(2)).persist(loans.capture());
+        Loan approved = loans.getAllValues().get(0);
+        assertEquals(LoanStatus.APPROVED, approved.getStatus());
+        assertEquals(0, Money.ofMajor(250).compareTo(approved.getPendingAmount()));
+        assertEquals(3, approved.getUnpaidInstallments());
+        assertEquals(1, approved.getFirstUnpaidInstallment());
+        assertEquals(RepaymentStatus.PAID, approved.getRepayments().get(0).getStatus());
+        assertEquals(0, Money.ofMajor(50).compareTo(approved.getRepayments().get(1).getPendingAmount()));
+        assertEquals(LoanStatus.PENDING, loans.getAllValues().get(1).getStatus());
+        verify(entityManager, times(1)).flush();
+        verify(entityManager, times(1)).clear();
+        verify(portfolioAggregates, times(1)).recordTransition(eq(1L), eq(null), eq(null), eq(LoanStatus.APPROVED), any());
+    }
+
+    @Test
+    public void testImportLoans_NdjsonFullyPaidLoan() throws IOException {
+        String ndjson = "{\"username\":\"user1\",\"amount\":300,\"term\":3,\"startDate\":\"2020-01-06\",\"status\":\"PAID\"}\n";
+
+        LoanImportReport report = loanImportService.importLoans(input(ndjson), false);
+
+        assertEquals(1, report.getImportedLoans());
+        ArgumentCaptor<Loan> loan = ArgumentCaptor.forClass(Loan.class);
+        verify(entityManager).persist(loan.capture());
+        assertEquals(LoanStatus.PAID, loan.getValue().getStatus());
+        assertEquals(0, loan.getValue().getUnpaidInstallments());
+        assertEquals(0, Money.ZERO.compareTo(loan.getValue().getPendingAmount()));
+    }
+
+    @Test
+    public void testImportLoans_InvalidRowsGoToRejectFile() throws IOException {
+        String csv = "username,amount,term,startDate,status,paidAmount\n"
+                + "unknown,400,4,2020-01-06,APPROVED,0\n"
+                + "user1,400,4,2020-01-06,PENDING,\n"
+                + "user1,abc,4,2020-01-06,APPROVED,\n"
+                + "user1,400,4,2020-01-06,APPROVED,500\n";
+
+        LoanImportReport report = loanImportService.importLoans(input(csv), true);
+
+        assertEquals(4, report.getRows());
+        assertEquals(0, report.getImportedLoans());
+        assertEquals(4, report.getRejected());
+        List<String> rejects = Files.readAllLines(Paths.get(report.getRejectFile()));
+        assertEquals(4, rejects.size());
+        assertTrue(rejects.get(0).contains("Start date should not be in past"));
+        assertTrue(rejects.get(1).contains("Malformed row"));
+        assertTrue(rejects.get(2).contains("Paid amount should be between 0 and the loan amount"));
+        // Usernames are resolved when the chunk is written
+        assertTrue(rejects.get(3).startsWith("{\"line\":2,\"error\":\"User not found\""));
+        verify(entityManager, never()).persist(any());
+    }
+
+    @Test
+    public void testImportLoans_ResolvesUsernamesOncePerChunk() throws IOException {
+        String csv = "username,amount,term,startDate,status\n"
+                + "user1,400,4,2020-01-06,APPROVED\n"
+                + "unknown,400,4,2020-01-06,APPROVED\n"
+                + "user1,200,2,2020-01-06,APPROVED\n";
+
+        LoanImportReport report = loanImportService.importLoans(input(csv), true);
+
+        assertEquals(2, report.getImportedLoans());
+        assertEquals(1, report.getRejected());
+        ArgumentCaptor<Collection<String>> usernames = ArgumentCaptor.forClass(Collection.class);
+        verify(userRepository, times(2)).findIdsByUsernames(usernames.capture());
+        assertEquals(Set.of("user1", "unknown"), Set.copyOf(usernames.getAllValues().get(0)));
+        assertEquals(Set.of("user1"), Set.copyOf(usernames.getAllValues().get(1)));
+    }
+
+    @Test
+    public void testImportLoans_QuotedCsvFields() throws IOException {
+        String csv = "\"username\",amount,term,startDate,status\n"
+                + "\"user1\",\"400.00\",4,2020-01-06,\"APPROVED\"\n"
+                + "user1,\"400,4,2020-01-06,APPROVED\n";
+
+        LoanImportReport report = loanImportService.importLoans(input(csv), true);
+
+        assertEquals(1, report.getImportedLoans());
+        assertEquals(1, report.getRejected());
+        List<String> rejects = Files.readAllLines(Paths.get(report.getRejectFile()));
+        assertTrue(rejects.get(0).contains("Malformed row: Unterminated quoted field"));
+    }
+
+    @Test
+    public void testSplitCsv_QuotedCommasAndQuotes() {
+        assertEquals(List.of("a,b", "say \"hi\"", "", "c"), LoanImportServiceImpl.splitCsv("\"a,b\",\"say \"\"hi\"\"\",,c"));
+    }
+
+    @Test
+    public void testImportLoans_FailedChunkFallsBackToSingleRows() throws IOException {
+        doThrow(new PersistenceException("boom")).doNothing().doThrow(new PersistenceException("duplicate"))
+                .when(entityManager).flush();
+        String csv = "username,amount,term,startDate,status\n"
+                + "user1,400,4,2020-01-06,APPROVED\n"
+                + "user1,200,2,2020-01-06,APPROVED\n";
+
+        LoanImportReport report = loanImportService.importLoans(input(csv), true);
+
+        assertEquals(1, report.getImportedLoans());
+        assertEquals(4, report.getImportedInstallments());
+        assertEquals(1, report.getRejected());
+        List<String> rejects = Files.readAllLines(Paths.get(report.getRejectFile()));
+        assertTrue(rejects.get(0).startsWith("{\"line\":3,\"error\":\"duplicate\""));
+        verify(entityManager, times(3)).clear();
+    }
+
+    @Test
+    public void testImportLoans_MissingCsvHeader() {
+        assertThrows(IllegalArgumentException.class, () -> loanImportService.importLoans(input("user1,400,4\n"), true));
+    }
+
+    private ByteArrayInputStream input(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
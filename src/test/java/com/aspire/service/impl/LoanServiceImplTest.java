@@ -1,21 +1,32 @@
 package com.aspire.service.impl;
 
+import com.aspire.cache.LoanListingCache;
 import com.aspire.entities.Loan;
+import com.aspire.entities.LoanPayment;
 import com.aspire.entities.Repayment;
 import com.aspire.entities.User;
 import com.aspire.enums.LoanStatus;
 import com.aspire.enums.RepaymentStatus;
+import com.aspire.money.Money;
+import com.aspire.portfolio.PortfolioAggregates;
+import com.aspire.repo.LoanPaymentRepository;
 import com.aspire.repo.LoanRepository;
 import com.aspire.repo.RepaymentRepository;
+import com.aspire.response.LoanPage;
+import com.aspire.response.LoanSummary;
 import com.aspire.service.LoanService;
+import com.aspire.shard.ShardContext;
+import com.aspire.shard.ShardRouter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import javax.persistence.EntityNotFoundException;
-import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.util.ArrayList;
@@ -23,10 +34,13 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 public class LoanServiceImplTest {
@@ -40,6 +54,18 @@ public class LoanServiceImplTest {
     @Mock
     private RepaymentRepository repaymentRepository;
 
+    @Mock
+    private LoanPaymentRepository loanPaymentRepository;
+
+    @Mock
+    private PortfolioAggregates portfolioAggregates;
+
+    @Mock
+    private LoanListingCache loanListingCache;
+
+    @Spy
+    private ShardRouter shardRouter = new ShardRouter(1, 1);
+
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.openMocks(this);
@@ -49,7 +75,7 @@ public class LoanServiceImplTest {
     public void testCreateLoan_Success() {
         User user = new User();
         user.setId(1L);
-        BigDecimal amount = BigDecimal.valueOf(1000.0);
+        Money amount = Money.ofMajor(1000);
         int term = 12;
         LocalDate startDate = LocalDate.now().plusDays(1);
 
@@ -80,8 +106,9 @@ public class LoanServiceImplTest {
     void testApproveLoan() {
         // Arrange
         Loan loan = new Loan();
+        loan.setUser(borrower());
         loan.setId(1L);
-        loan.setAmount(BigDecimal.valueOf(1000));
+        loan.setAmount(Money.ofMajor(1000));
         loan.setTerm(10);
         loan.setStartDate(LocalDate.now());
         loan.setStatus(LoanStatus.PENDING);
@@ -99,21 +126,24 @@ public class LoanServiceImplTest {
         List<Repayment> repayments = approvedLoan.getRepayments();
         assertEquals(10, repayments.size());
 
-        BigDecimal weeklyAmount = BigDecimal.valueOf(100);
+        Money weeklyAmount = Money.ofMajor(100);
         for (int i = 0; i < 10; i++) {
             Repayment repayment = repayments.get(i);
             assertEquals(loan, repayment.getLoan());
             assertEquals(loan.getStartDate().plusWeeks(i), repayment.getDueDate());
             if (i == 9) {
-                assertEquals(BigDecimal.valueOf(100), repayment.getAmount());
+                assertEquals(Money.ofMajor(100), repayment.getAmount());
             } else {
                 assertEquals(weeklyAmount, repayment.getAmount());
             }
             assertEquals(repayment.getAmount(), repayment.getPendingAmount());
             assertEquals(RepaymentStatus.PENDING, repayment.getStatus());
         }
+        assertEquals(10, approvedLoan.getUnpaidInstallments());
+        assertEquals(0, approvedLoan.getFirstUnpaidInstallment());
 
         verify(loanRepository, times(1)).save(loan);
+        verify(portfolioAggregates, times(1)).recordTransition(eq(loan), eq(LoanStatus.PENDING), isNull());
     }
 
     @Test
@@ -122,7 +152,7 @@ public class LoanServiceImplTest {
         loan.setId(1L);
         loan.setStatus(LoanStatus.APPROVED);
 
-        when(loanRepository.findByUserIdAndStatus(anyLong(), any(LoanStatus.class))).thenReturn(Collections.singletonList(loan));
+        when(loanRepository.findWithRepaymentsByUserIdAndStatus(anyLong(), any(LoanStatus.class))).thenReturn(Collections.singletonList(loan));
 
         List<Loan> loans = loanService.getLoansByUser(1L, LoanStatus.APPROVED.name());
 
@@ -130,7 +160,7 @@ public class LoanServiceImplTest {
         assertEquals(1, loans.size());
         assertEquals(LoanStatus.APPROVED, loans.get(0).getStatus());
 
-        verify(loanRepository, times(1)).findByUserIdAndStatus(anyLong(), any(LoanStatus.class));
+        verify(loanRepository, times(1)).findWithRepaymentsByUserIdAndStatus(anyLong(), any(LoanStatus.class));
     }
 
     @Test
@@ -139,7 +169,7 @@ public class LoanServiceImplTest {
         loan.setId(1L);
         loan.setStatus(LoanStatus.APPROVED);
 
-        when(loanRepository.findByUserId(anyLong())).thenReturn(Collections.singletonList(loan));
+        when(loanRepository.findWithRepaymentsByUserId(anyLong())).thenReturn(Collections.singletonList(loan));
 
         List<Loan> loans = loanService.getLoansByUser(1L, null);
 
@@ -147,19 +177,106 @@ public class LoanServiceImplTest {
         assertEquals(1, loans.size());
         assertEquals(LoanStatus.APPROVED, loans.get(0).getStatus());
 
-        verify(loanRepository, times(1)).findByUserId(anyLong());
+        verify(loanRepository, times(1)).findWithRepaymentsByUserId(anyLong());
+    }
+
+    @Test
+    public void testGetLoanSummariesByUser_InvalidStatusIgnored() {
+        LoanSummary summary = new LoanSummary(1L, Money.ofMajor(1000), Money.ofMajor(1000), 4, LocalDate.now(), LoanStatus.PENDING);
+
+        when(loanRepository.findSummariesByUserId(1L)).thenReturn(Collections.singletonList(summary));
+
+        List<LoanSummary> summaries = loanService.getLoanSummariesByUser(1L, "UNKNOWN");
+
+        assertEquals(1, summaries.size());
+        verify(loanRepository, times(1)).findSummariesByUserId(1L);
+        verify(loanRepository, never()).findSummariesByUserIdAndStatus(anyLong(), any(LoanStatus.class));
+    }
+
+    @Test
+    public void testGetLoanPage_SummaryWithNextCursor() {
+        List<LoanSummary> rows = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            rows.add(new LoanSummary(id, Money.ofMajor(1000), Money.ofMajor(1000), 4, LocalDate.now(), LoanStatus.PENDING));
+        }
+        when(loanRepository.findSummaryPage(eq(1L), isNull(), eq(0L), any(Pageable.class))).thenReturn(rows);
+
+        LoanPage page = loanService.getLoanPage(1L, null, true, null, 2);
+
+        assertEquals(2, page.getItems().size());
+        assertNotNull(page.getNext());
+
+        when(loanRepository.findSummaryPage(eq(1L), isNull(), eq(2L), any(Pageable.class))).thenReturn(rows.subList(2, 3));
+
+        LoanPage nextPage = loanService.getLoanPage(1L, null, true, page.getNext(), 2);
+
+        assertEquals(1, nextPage.getItems().size());
+        assertNull(nextPage.getNext());
+    }
+
+    @Test
+    public void testGetLoanPage_FullResolvesIdsFirst() {
+        Loan loan = new Loan();
+        loan.setId(5L);
+        when(loanRepository.findIdPage(eq(1L), eq(LoanStatus.APPROVED), eq(0L), any(Pageable.class))).thenReturn(Collections.singletonList(5L));
+        when(loanRepository.findWithRepaymentsByIdIn(Collections.singletonList(5L))).thenReturn(Collections.singletonList(loan));
+
+        LoanPage page = loanService.getLoanPage(1L, "APPROVED", false, null, 10);
+
+        assertEquals(Collections.singletonList(loan), page.getItems());
+        assertNull(page.getNext());
+    }
+
+    @Test
+    public void testGetLoanPage_InvalidCursor() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
+            loanService.getLoanPage(1L, null, true, "not-a-cursor", 10);
+        });
+
+        assertEquals("Invalid cursor", exception.getMessage());
+    }
+
+    @Test
+    public void testGetLoanPageByStatus_MergesShardsById() {
+        ShardRouter router = new ShardRouter(2, 2);
+        ReflectionTestUtils.setField(loanService, "shardRouter", router);
+        // Shard 0 holds even ids and shard 1 odd ones
+        when(loanRepository.findSummaryPageByStatus(eq(LoanStatus.PENDING), eq(0L), any(Pageable.class))).thenAnswer(invocation -> {
+            long first = ShardContext.current();
+            List<LoanSummary> rows = new ArrayList<>();
+            for (long id = first; id < 6; id += 2) {
+                rows.add(new LoanSummary(id + 256, Money.ofMajor(1000), Money.ofMajor(1000), 4, LocalDate.now(), LoanStatus.PENDING));
+            }
+            return rows;
+        });
+
+        LoanPage page = loanService.getLoanPageByStatus("PENDING", null, 3);
+        router.shutdown();
+
+        assertEquals(Arrays.asList(256L, 257L, 258L), page.getItems().stream().map(item -> ((LoanSummary) item).getId()).collect(Collectors.toList()));
+        assertNotNull(page.getNext());
+        verify(loanRepository, times(2)).findSummaryPageByStatus(eq(LoanStatus.PENDING), eq(0L), any(Pageable.class));
+    }
+
+    @Test
+    public void testGetLoanPageByStatus_UnknownStatus() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
+            loanService.getLoanPageByStatus("OPEN", null, 10);
+        });
+
+        assertEquals("Unknown status", exception.getMessage());
     }
 
     @Test
     public void testAddRepayment_AmountLessThanPending() {
         Loan loan = new Loan();
-        loan.setPendingAmount(BigDecimal.valueOf(1000.0));
+        loan.setPendingAmount(Money.ofMajor(1000));
 
         Repayment repayment = new Repayment();
         repayment.setLoan(loan);
-        repayment.setPendingAmount(BigDecimal.valueOf(500.0));
+        repayment.setPendingAmount(Money.ofMajor(500));
 
-        BigDecimal amount = BigDecimal.valueOf(400.0);
+        Money amount = Money.ofMajor(400);
 
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
             loanService.addRepayment(repayment, amount);
@@ -168,17 +285,61 @@ public class LoanServiceImplTest {
         assertEquals("Repayment amount is less than the pending amount", exception.getMessage());
     }
 
+    @Test
+    public void testAddRepayment_AlreadyPaid() {
+        Loan loan = new Loan();
+        loan.setPendingAmount(Money.ofMajor(1000));
+
+        Repayment repayment = new Repayment();
+        repayment.setLoan(loan);
+        repayment.setPendingAmount(Money.ZERO);
+        repayment.setStatus(RepaymentStatus.PAID);
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
+            loanService.addRepayment(repayment, Money.ofMajor(100));
+        });
+
+        assertEquals("Repayment already paid", exception.getMessage());
+        verify(repaymentRepository, never()).save(any(Repayment.class));
+    }
+
+    @Test
+    public void testAddRepayment_OverpaymentSettlesFutureRepayments() {
+        Loan loan = new Loan();
+        loan.setUser(borrower());
+        loan.setAmount(Money.ofMajor(300));
+        loan.setPendingAmount(Money.ofMajor(300));
+        loan.setTerm(3);
+        loan.setStartDate(LocalDate.now());
+        loan.setStatus(LoanStatus.APPROVED);
+        loan.setRepayments(RepaymentScheduleGenerator.generate(loan));
+        loan.setUnpaidInstallments(3);
+        loan.setFirstUnpaidInstallment(0);
+
+        Repayment repayment = loan.getRepayments().get(0);
+
+        loanService.addRepayment(repayment, Money.ofMajor(300));
+
+        assertEquals(LoanStatus.PAID, loan.getStatus());
+        assertEquals(0, loan.getUnpaidInstallments());
+        verify(repaymentRepository, times(3)).save(any(Repayment.class));
+        verify(loanRepository, times(1)).save(loan);
+        verify(portfolioAggregates, times(1)).recordTransition(loan, LoanStatus.APPROVED, Money.ofMajor(300));
+        verify(loanListingCache, times(1)).invalidateUserAfterCommit(1L);
+    }
+
     @Test
     public void testAddRepayment_Success() {
         Loan loan = new Loan();
-        loan.setPendingAmount(BigDecimal.valueOf(1000.0));
+        loan.setUser(borrower());
+        loan.setPendingAmount(Money.ofMajor(1000));
 
         Repayment repayment = new Repayment();
         repayment.setLoan(loan);
-        repayment.setPendingAmount(BigDecimal.valueOf(500.0));
+        repayment.setPendingAmount(Money.ofMajor(500));
         repayment.setDueDate(LocalDate.now());
 
-        BigDecimal amount = BigDecimal.valueOf(600.0);
+        Money amount = Money.ofMajor(600);
 
         when(repaymentRepository.save(any(Repayment.class))).thenReturn(repayment);
         when(loanRepository.save(any(Loan.class))).thenReturn(loan);
@@ -186,7 +347,7 @@ public class LoanServiceImplTest {
         Repayment updatedRepayment = loanService.addRepayment(repayment, amount);
 
         assertNotNull(updatedRepayment);
-        assertEquals(BigDecimal.ZERO, updatedRepayment.getPendingAmount());
+        assertEquals(Money.ZERO, updatedRepayment.getPendingAmount());
         assertEquals(RepaymentStatus.PAID, updatedRepayment.getStatus());
 
         verify(repaymentRepository, times(1)).save(any(Repayment.class));
@@ -244,4 +405,88 @@ public class LoanServiceImplTest {
 
         verify(loanRepository, times(1)).findById(anyLong());
     }
+
+    @Test
+    public void testApproveLoan_VirtualScheduleSavesNoRepayments() {
+        ReflectionTestUtils.setField(loanService, "virtualSchedules", true);
+        Loan loan = new Loan();
+        loan.setUser(borrower());
+        loan.setId(5L);
+        loan.setAmount(Money.ofMajor(400));
+        loan.setPendingAmount(Money.ofMajor(400));
+        loan.setTerm(4);
+        loan.setStartDate(LocalDate.now());
+        loan.setStatus(LoanStatus.PENDING);
+        when(loanRepository.save(any(Loan.class))).thenReturn(loan);
+
+        Loan approvedLoan = loanService.approveLoan(loan);
+
+        assertTrue(approvedLoan.isVirtualSchedule());
+        assertEquals(4, approvedLoan.getRepayments().size());
+        assertEquals(VirtualSchedule.installmentId(5L, 3), approvedLoan.getRepayments().get(3).getId());
+        verifyNoInteractions(repaymentRepository);
+    }
+
+    @Test
+    public void testGetRepaymentById_SyntheticId() {
+        Loan loan = virtualLoan(5L);
+        when(loanRepository.findById(5L)).thenReturn(Optional.of(loan));
+        when(loanPaymentRepository.findByLoanIdOrderById(5L)).thenReturn(Collections.singletonList(payment(5L, 0, 100)));
+
+        Repayment repayment = loanService.getRepaymentById(VirtualSchedule.installmentId(5L, 1));
+
+        assertNotNull(repayment);
+        assertEquals(Money.ofMajor(100), repayment.getPendingAmount());
+        assertEquals(RepaymentStatus.PAID, loan.getRepayments().get(0).getStatus());
+        assertNull(loanService.getRepaymentById(VirtualSchedule.installmentId(5L, 4)));
+        verifyNoInteractions(repaymentRepository);
+    }
+
+    @Test
+    public void testAddRepayment_VirtualScheduleRecordsPayment() {
+        Loan loan = virtualLoan(5L);
+        loan.setPendingAmount(Money.ofMajor(400));
+        loan.setUnpaidInstallments(4);
+        loan.setFirstUnpaidInstallment(0);
+        loan.setVirtualRepayments(VirtualSchedule.compute(loan, Collections.emptyList(), LocalDate.now()));
+        Repayment repayment = loan.getRepayments().get(0);
+
+        loanService.addRepayment(repayment, Money.ofMajor(150));
+
+        assertEquals(Money.ofMajor(250), loan.getPendingAmount());
+        assertEquals(Money.ofMajor(50), loan.getRepayments().get(1).getPendingAmount());
+        verify(loanPaymentRepository, times(1)).save(argThat((LoanPayment payment) ->
+                payment.getLoanId() == 5L && payment.getInstallment() == 0 && payment.getAmount().equals(Money.ofMajor(150))));
+        verify(repaymentRepository, never()).save(any(Repayment.class));
+        verify(loanRepository, times(1)).save(loan);
+    }
+
+    private Loan virtualLoan(Long id) {
+        Loan loan = new Loan();
+        loan.setUser(borrower());
+        loan.setId(id);
+        loan.setAmount(Money.ofMajor(400));
+        loan.setPendingAmount(Money.ofMajor(300));
+        loan.setTerm(4);
+        loan.setStartDate(LocalDate.now());
+        loan.setStatus(LoanStatus.APPROVED);
+        loan.setVirtualSchedule(true);
+        loan.setUnpaidInstallments(3);
+        loan.setFirstUnpaidInstallment(1);
+        return loan;
+    }
+
+    private LoanPayment payment(Long loanId, int installment, long amount) {
+        LoanPayment payment = new LoanPayment();
+        payment.setLoanId(loanId);
+        payment.setInstallment(installment);
+        payment.setAmount(Money.ofMajor(amount));
+        return payment;
+    }
+
+    private User borrower() {
+        User user = new User();
+        user.setId(1L);
+        return user;
+    }
 }
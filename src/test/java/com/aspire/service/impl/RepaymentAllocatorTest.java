@@ -0,0 +1,111 @@
+package com.aspire.service.impl;
+
+import com.aspire.entities.Loan;
+import com.aspire.entities.Repayment;
+import com.aspire.enums.LoanStatus;
+import com.aspire.enums.RepaymentStatus;
+import com.aspire.money.Money;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RepaymentAllocatorTest {
+
+    @Test
+    public void testAllocate_ExactPayment() {
+        Loan loan = approvedLoan(400, 4);
+        Repayment first = loan.getRepayments().get(0);
+
+        List<Repayment> changed = RepaymentAllocator.allocate(loan, first, Money.ofMajor(100));
+
+        assertEquals(1, changed.size());
+        assertEquals(RepaymentStatus.PAID, first.getStatus());
+        assertEquals(0, Money.ofMajor(300).compareTo(loan.getPendingAmount()));
+        assertEquals(3, loan.getUnpaidInstallments());
+        assertEquals(1, loan.getFirstUnpaidInstallment());
+        assertEquals(LoanStatus.APPROVED, loan.getStatus());
+    }
+
+    @Test
+    public void testAllocate_OverpaymentSettlesFollowingInstallments() {
+        Loan loan = approvedLoan(400, 4);
+        Repayment first = loan.getRepayments().get(0);
+
+        List<Repayment> changed = RepaymentAllocator.allocate(loan, first, Money.ofMajor(250));
+
+        assertEquals(3, changed.size());
+        assertEquals(RepaymentStatus.PAID, loan.getRepayments().get(1).getStatus());
+        assertEquals(RepaymentStatus.PENDING, loan.getRepayments().get(2).getStatus());
+        assertEquals(0, Money.ofMajor(50).compareTo(loan.getRepayments().get(2).getPendingAmount()));
+        assertEquals(0, Money.ofMajor(150).compareTo(loan.getPendingAmount()));
+        assertEquals(2, loan.getUnpaidInstallments());
+        assertEquals(2, loan.getFirstUnpaidInstallment());
+    }
+
+    @Test
+    public void testAllocate_SkipsAlreadyPaidInstallments() {
+        Loan loan = approvedLoan(400, 4);
+        RepaymentAllocator.allocate(loan, loan.getRepayments().get(1), Money.ofMajor(100));
+
+        RepaymentAllocator.allocate(loan, loan.getRepayments().get(0), Money.ofMajor(200));
+
+        assertEquals(RepaymentStatus.PAID, loan.getRepayments().get(2).getStatus());
+        assertEquals(1, loan.getUnpaidInstallments());
+        assertEquals(3, loan.getFirstUnpaidInstallment());
+    }
+
+    @Test
+    public void testAllocate_LastPaymentMarksLoanPaid() {
+        Loan loan = approvedLoan(400, 4);
+
+        RepaymentAllocator.allocate(loan, loan.getRepayments().get(0), Money.ofMajor(400));
+
+        assertEquals(0, loan.getUnpaidInstallments());
+        assertEquals(4, loan.getFirstUnpaidInstallment());
+        assertEquals(LoanStatus.PAID, loan.getStatus());
+        assertEquals(0, Money.ZERO.compareTo(loan.getPendingAmount()));
+    }
+
+    @Test
+    public void testAllocate_InitializesCountersForLegacyLoans() {
+        Loan loan = approvedLoan(400, 4);
+        loan.setUnpaidInstallments(null);
+        loan.setFirstUnpaidInstallment(null);
+
+        RepaymentAllocator.allocate(loan, loan.getRepayments().get(2), Money.ofMajor(100));
+
+        assertEquals(3, loan.getUnpaidInstallments());
+        assertEquals(0, loan.getFirstUnpaidInstallment());
+    }
+
+    @Test
+    public void testAllocate_ClearsOverdueOnceOverdueInstallmentsArePaid() {
+        Loan loan = approvedLoan(400, 4);
+        loan.setOverdue(true);
+        loan.getRepayments().get(0).setStatus(RepaymentStatus.OVERDUE);
+        loan.getRepayments().get(1).setStatus(RepaymentStatus.OVERDUE);
+
+        RepaymentAllocator.allocate(loan, loan.getRepayments().get(0), Money.ofMajor(100));
+        assertTrue(loan.isOverdue());
+
+        RepaymentAllocator.allocate(loan, loan.getRepayments().get(1), Money.ofMajor(100));
+        assertFalse(loan.isOverdue());
+        assertEquals(2, loan.getUnpaidInstallments());
+    }
+
+    private Loan approvedLoan(long amount, int term) {
+        Loan loan = new Loan();
+        loan.setAmount(Money.ofMajor(amount));
+        loan.setPendingAmount(Money.ofMajor(amount));
+        loan.setTerm(term);
+        loan.setStartDate(LocalDate.now());
+        loan.setStatus(LoanStatus.APPROVED);
+        loan.setRepayments(RepaymentScheduleGenerator.generate(loan));
+        loan.setUnpaidInstallments(term);
+        loan.setFirstUnpaidInstallment(0);
+        return loan;
+    }
+}
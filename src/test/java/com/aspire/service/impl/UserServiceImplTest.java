@@ -1,5 +1,6 @@
 package com.aspire.service.impl;
 
+import com.aspire.cache.UserTokenCache;
 import com.aspire.entities.User;
 import com.aspire.repo.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,7 +13,10 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class UserServiceImplTest {
@@ -23,6 +27,9 @@ public class UserServiceImplTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private UserTokenCache userTokenCache;
+
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.openMocks(this);
@@ -39,6 +46,21 @@ public class UserServiceImplTest {
         User result = userService.getUserByToken("valid-token");
 
         assertEquals(user, result);
+        verify(userTokenCache).put("valid-token", user);
+    }
+
+    @Test
+    public void testGetUserByToken_CacheHit() {
+        User user = new User();
+        user.setId(1L);
+        user.setToken("valid-token");
+
+        when(userTokenCache.get("valid-token")).thenReturn(user);
+
+        User result = userService.getUserByToken("valid-token");
+
+        assertEquals(user, result);
+        verify(userRepository, never()).findByToken(anyString());
     }
 
     @Test
@@ -48,6 +70,7 @@ public class UserServiceImplTest {
         User result = userService.getUserByToken("invalid-token");
 
         assertNull(result);
+        verify(userTokenCache, never()).put(anyString(), any(User.class));
     }
 
     @Test
@@ -56,4 +79,11 @@ public class UserServiceImplTest {
 
         assertNull(result);
     }
+
+    @Test
+    public void testEvictUser() {
+        userService.evictUser(1L);
+
+        verify(userTokenCache).invalidateUser(1L);
+    }
 }
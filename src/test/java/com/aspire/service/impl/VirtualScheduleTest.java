@@ -0,0 +1,107 @@
+package com.aspire.service.impl;
+
+import com.aspire.entities.Loan;
+import com.aspire.entities.LoanPayment;
+import com.aspire.entities.Repayment;
+import com.aspire.enums.LoanStatus;
+import com.aspire.enums.RepaymentStatus;
+import com.aspire.money.Money;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VirtualScheduleTest {
+
+    @Test
+    public void testInstallmentId_RoundTrip() {
+        long id = VirtualSchedule.installmentId(123456789L, 51);
+
+        assertTrue(VirtualSchedule.isInstallmentId(id));
+        assertFalse(VirtualSchedule.isInstallmentId(123456789L));
+        assertTrue(id < (1L << 53));
+        assertEquals(123456789L, VirtualSchedule.loanId(id));
+        assertEquals(51, VirtualSchedule.index(id));
+    }
+
+    @Test
+    public void testCompute_WithoutPayments() {
+        Loan loan = approvedLoan(7L, 400, 4, LocalDate.now());
+
+        List<Repayment> schedule = VirtualSchedule.compute(loan, Collections.emptyList(), LocalDate.now());
+
+        assertEquals(4, schedule.size());
+        for (int i = 0; i < schedule.size(); i++) {
+            assertEquals(VirtualSchedule.installmentId(7L, i), schedule.get(i).getId());
+            assertEquals(Money.ofMajor(100), schedule.get(i).getPendingAmount());
+            assertEquals(RepaymentStatus.PENDING, schedule.get(i).getStatus());
+        }
+        assertFalse(loan.isOverdue());
+    }
+
+    @Test
+    public void testCompute_ReplaysPaymentsLikeMaterializedSchedule() {
+        Loan materialized = approvedLoan(7L, 400, 4, LocalDate.now());
+        materialized.setRepayments(RepaymentScheduleGenerator.generate(materialized));
+        RepaymentAllocator.allocate(materialized, materialized.getRepayments().get(1), Money.ofMajor(100));
+        RepaymentAllocator.allocate(materialized, materialized.getRepayments().get(0), Money.ofMajor(150));
+
+        Loan loan = approvedLoan(7L, 400, 4, LocalDate.now());
+        List<Repayment> schedule = VirtualSchedule.compute(loan,
+                Arrays.asList(payment(1, 100), payment(0, 150)), LocalDate.now());
+
+        for (int i = 0; i < schedule.size(); i++) {
+            assertEquals(materialized.getRepayments().get(i).getStatus(), schedule.get(i).getStatus());
+            assertEquals(materialized.getRepayments().get(i).getPendingAmount(), schedule.get(i).getPendingAmount());
+        }
+        assertEquals(Money.ofMajor(50), schedule.get(2).getPendingAmount());
+        assertEquals(Money.ofMajor(400), loan.getPendingAmount());
+    }
+
+    @Test
+    public void testCompute_MarksPastDueInstallmentsOverdue() {
+        LocalDate start = LocalDate.now().minusWeeks(2);
+        Loan loan = approvedLoan(7L, 400, 4, start);
+
+        List<Repayment> schedule = VirtualSchedule.compute(loan, Collections.singletonList(payment(0, 100)), LocalDate.now());
+
+        assertEquals(RepaymentStatus.PAID, schedule.get(0).getStatus());
+        assertEquals(RepaymentStatus.OVERDUE, schedule.get(1).getStatus());
+        assertEquals(RepaymentStatus.PENDING, schedule.get(3).getStatus());
+        assertTrue(loan.isOverdue());
+    }
+
+    @Test
+    public void testCompute_ClearsOverdueOncePastDueInstallmentsArePaid() {
+        Loan loan = approvedLoan(7L, 400, 4, LocalDate.now().minusWeeks(2));
+        loan.setOverdue(true);
+
+        VirtualSchedule.compute(loan, Arrays.asList(payment(0, 100), payment(1, 100)), LocalDate.now());
+
+        assertFalse(loan.isOverdue());
+    }
+
+    private Loan approvedLoan(Long id, long amount, int term, LocalDate startDate) {
+        Loan loan = new Loan();
+        loan.setId(id);
+        loan.setAmount(Money.ofMajor(amount));
+        loan.setPendingAmount(Money.ofMajor(amount));
+        loan.setTerm(term);
+        loan.setStartDate(startDate);
+        loan.setStatus(LoanStatus.APPROVED);
+        loan.setUnpaidInstallments(term);
+        loan.setFirstUnpaidInstallment(0);
+        return loan;
+    }
+
+    private LoanPayment payment(int installment, long amount) {
+        LoanPayment payment = new LoanPayment();
+        payment.setInstallment(installment);
+        payment.setAmount(Money.ofMajor(amount));
+        return payment;
+    }
+}
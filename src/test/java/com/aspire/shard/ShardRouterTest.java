@@ -0,0 +1,141 @@
+package com.aspire.shard;
+
+import com.aspire.service.impl.VirtualSchedule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardRouterTest {
+
+    private ShardRouter shardRouter;
+
+    @BeforeEach
+    public void setUp() {
+        shardRouter = new ShardRouter(3, 3);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        shardRouter.shutdown();
+    }
+
+    @Test
+    public void testShardOfUser() {
+        assertEquals(0, shardRouter.shardOfUser(3L));
+        assertEquals(1, shardRouter.shardOfUser(4L));
+        assertEquals(2, shardRouter.shardOfUser(5L));
+    }
+
+    @Test
+    public void testShardOfId_ReadsShardFromId() {
+        long id = ShardIds.encode(7, 2);
+
+        assertEquals(2, shardRouter.shardOfId(id));
+        assertEquals(2, shardRouter.shardOfId(VirtualSchedule.installmentId(id, 3)));
+    }
+
+    @Test
+    public void testSingleShard_IdsAreNotDecoded() {
+        ShardRouter single = new ShardRouter(1, 1);
+
+        assertEquals(0, single.shardOfId(ShardIds.encode(7, 2)));
+        assertEquals(0, single.shardOfUser(5L));
+    }
+
+    @Test
+    public void testPartition_KeepsOrderWithinShard() {
+        Map<Integer, List<Long>> groups = shardRouter.partition(Arrays.asList(5L, 3L, 8L, 6L, 4L), id -> shardRouter.shardOfUser(id));
+
+        assertEquals(Arrays.asList(0, 1, 2), List.copyOf(groups.keySet()));
+        assertEquals(Arrays.asList(3L, 6L), groups.get(0));
+        assertEquals(Collections.singletonList(4L), groups.get(1));
+        assertEquals(Arrays.asList(5L, 8L), groups.get(2));
+    }
+
+    @Test
+    public void testOnShard_BindsShardOffCallerThread() {
+        Thread caller = Thread.currentThread();
+
+        int shard = shardRouter.onShard(2, () -> {
+            assertNotSame(caller, Thread.currentThread());
+            return ShardContext.current();
+        });
+
+        assertEquals(2, shard);
+        assertEquals(0, ShardContext.current());
+    }
+
+    @Test
+    public void testOnShard_NestedCallStaysOnWorker() {
+        int shard = shardRouter.onShard(1, () -> {
+            Thread worker = Thread.currentThread();
+            return shardRouter.onShard(2, () -> {
+                assertSame(worker, Thread.currentThread());
+                return ShardContext.current();
+            });
+        });
+
+        assertEquals(2, shard);
+    }
+
+    @Test
+    public void testOnShard_RethrowsFailure() {
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> shardRouter.onShard(1, () -> {
+            throw new IllegalStateException("boom");
+        }));
+
+        assertEquals("boom", exception.getMessage());
+    }
+
+    @Test
+    public void testOnShard_UnknownShard() {
+        assertThrows(IllegalArgumentException.class, () -> shardRouter.onShard(3, () -> null));
+    }
+
+    @Test
+    public void testFanOut_RunsShardsInParallelInOrder() {
+        CountDownLatch started = new CountDownLatch(3);
+
+        List<Integer> shards = shardRouter.fanOut(shard -> {
+            started.countDown();
+            try {
+                // Completes only if every shard is running at the same time
+                assertTrue(started.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException ex) {
+                throw new IllegalStateException(ex);
+            }
+            return ShardContext.current();
+        });
+
+        assertEquals(Arrays.asList(0, 1, 2), shards);
+    }
+
+    @Test
+    public void testFanOut_WaitsForAllShardsBeforeFailing() {
+        AtomicInteger finished = new AtomicInteger();
+
+        assertThrows(IllegalStateException.class, () -> shardRouter.fanOut(shard -> {
+            if (shard == 0) {
+                throw new IllegalStateException("boom");
+            }
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ex) {
+                throw new IllegalStateException(ex);
+            }
+            return finished.incrementAndGet();
+        }));
+
+        assertEquals(2, finished.get());
+    }
+}
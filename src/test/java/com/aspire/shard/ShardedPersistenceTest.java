@@ -0,0 +1,148 @@
+package com.aspire.shard;
+
+import com.aspire.entities.Loan;
+import com.aspire.entities.Repayment;
+import com.aspire.entities.User;
+import com.aspire.enums.LoanStatus;
+import com.aspire.enums.RepaymentStatus;
+import com.aspire.money.Money;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.hibernate.jpa.boot.internal.EntityManagerFactoryBuilderImpl;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Three in-memory H2 databases behind the routing data source, with the entities mapped the way Spring Boot maps
+ * them. Only shard 0 is seeded up front; the other shards get their schema and users while Hibernate starts.
+ */
+public class ShardedPersistenceTest {
+
+    private static final int SHARDS = 3;
+
+    private List<DataSource> shards;
+
+    private EntityManagerFactory entityManagerFactory;
+
+    private EntityManager entityManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        Resource data = new ClassPathResource("data.sql");
+        shards = new ArrayList<>();
+        for (int shard = 0; shard < SHARDS; shard++) {
+            shards.add(new DriverManagerDataSource("jdbc:h2:mem:shard" + shard + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", ""));
+        }
+        new ResourceDatabasePopulator(data).execute(shards.get(0));
+        ShardRoutingDataSource dataSource = new ShardRoutingDataSource(shards);
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("hibernate.hbm2ddl.auto", "update");
+        properties.put("hibernate.physical_naming_strategy", CamelCaseToUnderscoresNamingStrategy.class.getName());
+        properties.put("hibernate.implicit_naming_strategy", SpringImplicitNamingStrategy.class.getName());
+        properties.put("hibernate.cache.use_second_level_cache", "false");
+        properties.put(ShardedSequenceGenerator.SHARD_COUNT_SETTING, SHARDS);
+        ShardSchemaIntegrator integrator = new ShardSchemaIntegrator(dataSource, Collections.singletonList(data), shard -> true);
+        properties.put(EntityManagerFactoryBuilderImpl.INTEGRATOR_PROVIDER, (IntegratorProvider) () -> List.of(integrator));
+
+        LocalContainerEntityManagerFactoryBean factory = new LocalContainerEntityManagerFactoryBean();
+        factory.setDataSource(dataSource);
+        factory.setPackagesToScan("com.aspire.entities", "com.aspire.money");
+        factory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factory.setJpaPropertyMap(properties);
+        factory.afterPropertiesSet();
+        entityManagerFactory = factory.getObject();
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+        transactionTemplate = new TransactionTemplate(new JpaTransactionManager(entityManagerFactory));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        entityManagerFactory.close();
+    }
+
+    @Test
+    public void testExtraShards_GetSchemaAndUsers() {
+        long users = new JdbcTemplate(shards.get(0)).queryForObject("select count(*) from user", Long.class);
+
+        for (int shard = 1; shard < SHARDS; shard++) {
+            JdbcTemplate jdbc = new JdbcTemplate(shards.get(shard));
+            assertEquals(users, jdbc.queryForObject("select count(*) from user", Long.class));
+            assertEquals(0L, jdbc.queryForObject("select count(*) from loan", Long.class));
+        }
+    }
+
+    @Test
+    public void testNewRows_LandOnBoundShardWithShardInId() {
+        for (int shard = 0; shard < SHARDS; shard++) {
+            int current = shard;
+            Loan loan = ShardContext.call(current, () -> transactionTemplate.execute(status -> createLoan((long) current + 1)));
+
+            assertEquals(current, ShardIds.shardOf(loan.getId()));
+            assertEquals(current, ShardIds.shardOf(loan.getRepayments().get(0).getId()));
+        }
+
+        for (int shard = 0; shard < SHARDS; shard++) {
+            JdbcTemplate jdbc = new JdbcTemplate(shards.get(shard));
+            List<Long> loanIds = jdbc.queryForList("select id from loan", Long.class);
+            assertEquals(1, loanIds.size());
+            assertEquals(shard, ShardIds.shardOf(loanIds.get(0)));
+            assertEquals(1L, jdbc.queryForObject("select count(*) from repayment", Long.class));
+        }
+    }
+
+    @Test
+    public void testReads_StayOnBoundShard() {
+        Long loanId = ShardContext.call(2, () -> transactionTemplate.execute(status -> createLoan(3L).getId()));
+
+        assertNotNull(ShardContext.call(2, () -> transactionTemplate.execute(status -> entityManager.find(Loan.class, loanId))));
+        assertNull(ShardContext.call(1, () -> transactionTemplate.execute(status -> entityManager.find(Loan.class, loanId))));
+    }
+
+    private Loan createLoan(Long userId) {
+        Loan loan = new Loan();
+        loan.setUser(entityManager.getReference(User.class, userId));
+        loan.setAmount(Money.ofMajor(100));
+        loan.setPendingAmount(Money.ofMajor(100));
+        loan.setTerm(1);
+        loan.setStartDate(LocalDate.now());
+        loan.setStatus(LoanStatus.PENDING);
+        Repayment repayment = new Repayment();
+        repayment.setLoan(loan);
+        repayment.setAmount(Money.ofMajor(100));
+        repayment.setPendingAmount(Money.ofMajor(100));
+        repayment.setStatus(RepaymentStatus.PENDING);
+        repayment.setDueDate(LocalDate.now());
+        loan.setRepayments(new ArrayList<>(Collections.singletonList(repayment)));
+        entityManager.persist(loan);
+        entityManager.flush();
+        return loan;
+    }
+}
@@ -0,0 +1,17 @@
+package com.aspire.support;
+
+import com.aspire.config.metrics.StatementCountingInspector;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Shared by the SQL budget tests, so they keep running in one application context.
+ */
+@TestConfiguration
+public class SqlBudgetTestConfig {
+
+    @Bean
+    public SqlRecordingTaskDecorator sqlRecordingTaskDecorator(StatementCountingInspector statementCountingInspector) {
+        return new SqlRecordingTaskDecorator(statementCountingInspector);
+    }
+}
@@ -0,0 +1,37 @@
+package com.aspire.support;
+
+import com.aspire.config.metrics.StatementCountingInspector;
+import org.springframework.core.task.TaskDecorator;
+
+import java.util.List;
+
+/**
+ * Lets a task record its SQL into the recording of the thread that submitted it. Registered as a bean, it decorates
+ * the application task executor, which runs the StreamingResponseBody of async endpoints, so
+ * {@link SqlStatementRecorder} also counts the statements of the response body.
+ */
+public class SqlRecordingTaskDecorator implements TaskDecorator {
+
+    private final StatementCountingInspector inspector;
+
+    public SqlRecordingTaskDecorator(StatementCountingInspector inspector) {
+        this.inspector = inspector;
+    }
+
+    @Override
+    public Runnable decorate(Runnable task) {
+        List<String> statements = inspector.recording();
+        if (statements == null) {
+            return task;
+        }
+        return () -> {
+            List<String> previous = inspector.recording();
+            inspector.recordInto(statements);
+            try {
+                task.run();
+            } finally {
+                inspector.recordInto(previous);
+            }
+        };
+    }
+}
@@ -0,0 +1,71 @@
+package com.aspire.support;
+
+import com.aspire.config.metrics.StatementCountingInspector;
+import org.junit.jupiter.api.function.ThrowingSupplier;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Captures the SQL statements Hibernate prepares on the test thread while an action runs, and fails when an
+ * action goes over its statement budget. The failure lists every statement grouped by shape, so an N+1 shows up
+ * as one shape repeated many times.
+ */
+public class SqlStatementRecorder {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern NUMBER = Pattern.compile("\\b\\d+\\b");
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)*\\s*\\)");
+
+    private final StatementCountingInspector inspector;
+
+    public SqlStatementRecorder(StatementCountingInspector inspector) {
+        this.inspector = inspector;
+    }
+
+    /**
+     * Runs {@code action} and fails if it prepared more than {@code maxStatements} statements.
+     *
+     * @return what the action returned
+     */
+    public <T> T assertAtMost(int maxStatements, String description, ThrowingSupplier<T> action) throws Throwable {
+        inspector.startRecording();
+        T result;
+        List<String> statements;
+        try {
+            result = action.get();
+        } finally {
+            statements = inspector.stopRecording();
+        }
+        if (statements.size() > maxStatements) {
+            fail(description + " issued " + statements.size() + " SQL statements, budget is " + maxStatements
+                    + System.lineSeparator() + describe(statements));
+        }
+        return result;
+    }
+
+    /**
+     * Collapses whitespace, literals and parameter lists so statements that differ only in values compare equal.
+     */
+    static String shape(String sql) {
+        String shape = WHITESPACE.matcher(sql.trim()).replaceAll(" ").toLowerCase();
+        shape = NUMBER.matcher(shape).replaceAll("?");
+        return PARAMETER_LIST.matcher(shape).replaceAll("(?...)");
+    }
+
+    private static String describe(List<String> statements) {
+        Map<String, Integer> shapes = new LinkedHashMap<>();
+        for (String statement : statements) {
+            shapes.merge(shape(statement), 1, Integer::sum);
+        }
+        StringBuilder description = new StringBuilder();
+        for (Map.Entry<String, Integer> entry : shapes.entrySet()) {
+            description.append("  ").append(entry.getValue()).append("x ").append(entry.getKey()).append(System.lineSeparator());
+        }
+        return description.toString();
+    }
+}
@@ -0,0 +1,58 @@
+package com.aspire.support;
+
+import com.aspire.config.metrics.StatementCountingInspector;
+import org.junit.jupiter.api.Test;
+import org.opentest4j.AssertionFailedError;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SqlStatementRecorderTest {
+
+    private final StatementCountingInspector inspector = new StatementCountingInspector();
+
+    private final SqlStatementRecorder sql = new SqlStatementRecorder(inspector);
+
+    @Test
+    public void testShape_CollapsesWhitespaceAndCase() {
+        assertEquals("select loan0_.id from loan loan0_ where loan0_.user_id=?",
+                SqlStatementRecorder.shape("  SELECT loan0_.id\n    FROM loan loan0_\n\tWHERE loan0_.user_id=?  "));
+    }
+
+    @Test
+    public void testShape_ReplacesNumbersButNotAliases() {
+        assertEquals("select loan0_.id as col_0_0_ from loan loan0_ where loan0_.id=? limit ?",
+                SqlStatementRecorder.shape("select loan0_.id as col_0_0_ from loan loan0_ where loan0_.id=42 limit 10"));
+    }
+
+    @Test
+    public void testShape_CollapsesParameterLists() {
+        String expected = "update loan set version=version+? where (id in (?...))";
+
+        assertEquals(expected, SqlStatementRecorder.shape("update loan set version=version+1 where (id in (?, ?, ?))"));
+        assertEquals(expected, SqlStatementRecorder.shape("update loan set version=version+1 where (id in (?))"));
+        assertEquals(expected, SqlStatementRecorder.shape("update loan set version=version+1 where (id in (7 , 8))"));
+    }
+
+    @Test
+    public void testAssertAtMost_GroupsStatementsByShape() {
+        AssertionFailedError error = assertThrows(AssertionFailedError.class, () -> sql.assertAtMost(2, "listing", () -> {
+            inspector.inspect("select * from repayment where loan_id=1");
+            inspector.inspect("select * from repayment where loan_id=2");
+            inspector.inspect("select * from repayment where loan_id=3");
+            return inspector.inspect("insert into loan (amount, id) values (?, ?)");
+        }));
+
+        assertTrue(error.getMessage().startsWith("listing issued 4 SQL statements, budget is 2"));
+        assertTrue(error.getMessage().contains("3x select * from repayment where loan_id=?"));
+        assertTrue(error.getMessage().contains("1x insert into loan (amount, id) values (?...)"));
+    }
+
+    @Test
+    public void testAssertAtMost_WithinBudget() throws Throwable {
+        String result = sql.assertAtMost(1, "lookup", () -> inspector.inspect("select 1"));
+
+        assertEquals("select 1", result);
+    }
+}